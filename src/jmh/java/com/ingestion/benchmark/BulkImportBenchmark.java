@@ -0,0 +1,62 @@
+package com.ingestion.benchmark;
+
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.ImportRequest.Compression;
+import com.ingestion.util.ClickHouseHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BULK import: the file body streamed to the ClickHouse stand-in, with each request compression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BulkImportBenchmark {
+
+    @Param({"50000"})
+    private int rows;
+
+    @Param({"NONE", "GZIP", "LZ4", "ZSTD"})
+    private Compression compression;
+
+    private ClickHouseStandIn standIn;
+    private ClickHouseConfig config;
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        standIn = new ClickHouseStandIn();
+        config = new ClickHouseConfig("127.0.0.1", standIn.getPort(), "default", "default", "");
+        body = TaxiData.csv(rows).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        standIn.close();
+    }
+
+    @Benchmark
+    public long insertStream() {
+        return ClickHouseHttpClient.insertStream(config, "INSERT INTO trips FORMAT CSVWithNames",
+                new ByteArrayInputStream(body), compression, null, null);
+    }
+}
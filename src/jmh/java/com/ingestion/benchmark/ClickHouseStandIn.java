@@ -0,0 +1,91 @@
+package com.ingestion.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the ClickHouse HTTP interface. It drains every request body and
+ * answers the few metadata queries the JDBC driver sends on connect, so insert benchmarks
+ * measure client-side serialization rather than a server.
+ */
+final class ClickHouseStandIn implements AutoCloseable {
+    private final HttpServer server;
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    ClickHouseStandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "clickhouse-stand-in");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long received = 0;
+        StringBuilder head = new StringBuilder();
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (head.length() < 256) {
+                    head.append(new String(buffer, 0, Math.min(read, 256), StandardCharsets.UTF_8));
+                }
+                received += read;
+            }
+        }
+        bytesReceived.addAndGet(received);
+
+        String query = exchange.getRequestURI().getRawQuery() == null
+                ? head.toString() : URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8) + head;
+        byte[] response = respond(query.toLowerCase());
+        exchange.getResponseHeaders().add("Content-Type", "text/tab-separated-values; charset=UTF-8");
+        if (response.length == 0) {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private static byte[] respond(String query) {
+        String body = "";
+        if (query.contains("timezone()") && query.contains("version()")) {
+            body = "timezone()\tversion()\nString\tString\nUTC\t21.8.10.19\n";
+        } else if (query.contains("timezone()")) {
+            body = "timezone()\nString\nUTC\n";
+        } else if (query.contains("version()")) {
+            body = "version()\nString\n21.8.10.19\n";
+        } else if (query.contains("select 1")) {
+            body = "1\nUInt8\n1\n";
+        }
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,96 @@
+package com.ingestion.benchmark;
+
+import com.ingestion.util.CsvScanner;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizing taxi trips with commons-csv against {@link CsvScanner}, from the same UTF-8 bytes. The
+ * scanner is measured decoding every field, as the importer does for selected columns, and returning
+ * offsets only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParseBenchmark {
+
+    @Param({"100000"})
+    private int rows;
+
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        body = TaxiData.csv(rows).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void commonsCsv(Blackhole blackhole) throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8);
+             CSVParser parser = CSVFormat.DEFAULT.parse(reader)) {
+            for (CSVRecord record : parser) {
+                for (int i = 0; i < record.size(); i++) {
+                    blackhole.consume(record.get(i));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void scannerStream(Blackhole blackhole) throws IOException {
+        try (CsvScanner scanner = new CsvScanner(new ByteArrayInputStream(body), ',')) {
+            while (scanner.next()) {
+                for (int i = 0; i < scanner.size(); i++) {
+                    blackhole.consume(scanner.get(i));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void scannerBuffer(Blackhole blackhole) throws IOException {
+        CsvScanner scanner = new CsvScanner(ByteBuffer.wrap(body), ',');
+        while (scanner.next()) {
+            for (int i = 0; i < scanner.size(); i++) {
+                blackhole.consume(scanner.get(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public long scannerOffsets() throws IOException {
+        CsvScanner scanner = new CsvScanner(ByteBuffer.wrap(body), ',');
+        long bytes = 0;
+        while (scanner.next()) {
+            for (int i = 0; i < scanner.size(); i++) {
+                bytes += scanner.end(i) - scanner.start(i);
+            }
+        }
+        return bytes;
+    }
+}
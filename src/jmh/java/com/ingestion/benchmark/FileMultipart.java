@@ -0,0 +1,60 @@
+package com.ingestion.benchmark;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Multipart upload backed by a file on disk, for calling the schema parsers outside a request.
+ */
+final class FileMultipart implements MultipartFile {
+    private final Path file;
+
+    FileMultipart(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return file.getFileName().toString();
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/octet-stream";
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getSize() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return file.toFile().length();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(file);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(file, dest.toPath());
+    }
+}
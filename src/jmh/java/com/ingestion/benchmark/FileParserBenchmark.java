@@ -0,0 +1,90 @@
+package com.ingestion.benchmark;
+
+import com.ingestion.dto.FileConfig;
+import com.ingestion.dto.TableSchema;
+import com.ingestion.util.FileParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Preview paging and schema detection of uploaded CSV and NDJSON files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileParserBenchmark {
+
+    @Param({"100000"})
+    private int rows;
+
+    /** Page number of the preview, 0 for the first page or deep into the file. */
+    @Param({"0", "9000"})
+    private int page;
+
+    private Path directory;
+    private Path csv;
+    private Path ndjson;
+    private FileParser parser;
+    private FileConfig config;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("file-parser-benchmark");
+        csv = TaxiData.writeCsv(directory.resolve("trips.csv"), rows);
+        ndjson = TaxiData.writeNdjson(directory.resolve("trips.ndjson"), rows);
+        parser = new FileParser();
+        config = new FileConfig(",", true, 0, null);
+        // Build the row index outside the measurement, as upload does
+        parser.indexFile(csv);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> csvPreviewPage() throws IOException {
+        return parser.readData(csv, config, page, 10);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> ndjsonPreviewPage() throws IOException {
+        return parser.readData(ndjson, config, page, 10);
+    }
+
+    @Benchmark
+    public TableSchema csvSchema() throws IOException {
+        return parser.parseSchema(new FileMultipart(csv), config);
+    }
+
+    @Benchmark
+    public TableSchema ndjsonSchema() throws IOException {
+        return parser.parseSchema(new FileMultipart(ndjson), config);
+    }
+}
@@ -0,0 +1,83 @@
+package com.ingestion.benchmark;
+
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.util.ClickHouseConnectionPool;
+import com.ingestion.util.ClickHouseUtil;
+import com.ingestion.util.TransferProgress;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row inserts through the JDBC driver against the in-process ClickHouse stand-in: the legacy
+ * line-splitting {@code importData} and the commons-csv batched {@code insertRecords} path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ImportBenchmark {
+    private static final String TABLE = "trips";
+
+    @Param({"50000"})
+    private int rows;
+
+    @Param({"10000"})
+    private int batchSize;
+
+    private ClickHouseStandIn standIn;
+    private ClickHouseConfig config;
+    private String body;
+
+    @Setup
+    public void setUp() throws IOException {
+        standIn = new ClickHouseStandIn();
+        // The stand-in answers in plain text, so turn off the driver's compressed responses
+        config = new ClickHouseConfig("127.0.0.1", standIn.getPort(), "default?compress=0", "default", "");
+        String csv = TaxiData.csv(rows);
+        body = csv.substring(csv.indexOf('\n') + 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ClickHouseConnectionPool.shutdown();
+        standIn.close();
+    }
+
+    @Benchmark
+    public void importData() {
+        ClickHouseUtil.importData(config, TABLE, TaxiData.COLUMNS, new StringReader(body), null);
+    }
+
+    @Benchmark
+    public long insertRecords() throws IOException, SQLException {
+        try (CSVParser parser = CSVFormat.DEFAULT.parse(new StringReader(body));
+             Connection conn = ClickHouseUtil.getConnection(config, null)) {
+            int[] sourceIndexes = new int[TaxiData.COLUMNS.size()];
+            for (int i = 0; i < sourceIndexes.length; i++) {
+                sourceIndexes[i] = i;
+            }
+            return ClickHouseUtil.insertRecords(conn, TABLE, TaxiData.COLUMNS, sourceIndexes, parser,
+                    batchSize, new TransferProgress());
+        }
+    }
+}
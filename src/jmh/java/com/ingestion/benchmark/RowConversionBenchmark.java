@@ -0,0 +1,75 @@
+package com.ingestion.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingestion.util.batch.BatchSchema;
+import com.ingestion.util.batch.RowBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning parsed rows into a JSON response: one map per row against a columnar row batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowConversionBenchmark {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Param({"10000"})
+    private int rows;
+
+    private String[][] data;
+
+    @Setup
+    public void setUp() {
+        data = TaxiData.rows(rows);
+    }
+
+    @Benchmark
+    public void mapRows(Blackhole blackhole) throws IOException {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (String[] row : data) {
+            Map<String, Object> map = new HashMap<>();
+            for (int i = 0; i < row.length; i++) {
+                map.put(TaxiData.COLUMNS.get(i), row[i]);
+            }
+            result.add(map);
+        }
+        MAPPER.writeValue(OutputStream.nullOutputStream(), result);
+        blackhole.consume(result);
+    }
+
+    @Benchmark
+    public void rowBatch(Blackhole blackhole) throws IOException {
+        RowBatch batch = new RowBatch(BatchSchema.strings(TaxiData.COLUMNS), data.length);
+        for (String[] row : data) {
+            int index = batch.addRow();
+            for (int i = 0; i < row.length; i++) {
+                batch.stringColumn(i).set(index, row[i]);
+            }
+        }
+        MAPPER.writeValue(OutputStream.nullOutputStream(), batch);
+        blackhole.consume(batch);
+    }
+}
@@ -0,0 +1,52 @@
+package com.ingestion.benchmark;
+
+import com.ingestion.dto.TableSchema;
+import com.ingestion.util.SchemaInferrer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type detection over parsed rows, with head and reservoir sampling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaInferenceBenchmark {
+
+    @Param({"1000", "10000"})
+    private int sampleSize;
+
+    @Param({"false", "true"})
+    private boolean reservoir;
+
+    private String[][] rows;
+
+    @Setup
+    public void setUp() {
+        rows = TaxiData.rows(100_000);
+    }
+
+    @Benchmark
+    public List<TableSchema.Column> infer() {
+        SchemaInferrer inferrer = new SchemaInferrer(sampleSize, reservoir);
+        for (int i = 0; i < rows.length && inferrer.wantsMore(); i++) {
+            inferrer.add(rows[i]);
+        }
+        return inferrer.infer(TaxiData.COLUMNS);
+    }
+}
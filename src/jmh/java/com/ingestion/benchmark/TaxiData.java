@@ -0,0 +1,123 @@
+package com.ingestion.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Synthetic trips shaped like the NYC TLC yellow taxi dataset. Generation is seeded, so every
+ * run of a benchmark sees the same data.
+ */
+final class TaxiData {
+    static final List<String> COLUMNS = Arrays.asList(
+            "VendorID", "tpep_pickup_datetime", "tpep_dropoff_datetime", "passenger_count", "trip_distance",
+            "RatecodeID", "store_and_fwd_flag", "PULocationID", "DOLocationID", "payment_type",
+            "fare_amount", "extra", "mta_tax", "tip_amount", "tolls_amount", "total_amount");
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime START = LocalDateTime.of(2019, 1, 1, 0, 0);
+
+    private TaxiData() {
+    }
+
+    static String[][] rows(int count) {
+        Random random = new Random(42);
+        String[][] rows = new String[count][];
+        for (int i = 0; i < count; i++) {
+            LocalDateTime pickup = START.plusSeconds(random.nextInt(31 * 24 * 3600));
+            LocalDateTime dropoff = pickup.plusSeconds(120 + random.nextInt(3600));
+            double distance = Math.round(random.nextDouble() * 2000) / 100.0;
+            double fare = 2.5 + Math.round(distance * 250) / 100.0;
+            double tip = random.nextInt(4) == 0 ? 0 : Math.round(fare * 20) / 100.0;
+            double tolls = random.nextInt(20) == 0 ? 5.76 : 0;
+            rows[i] = new String[]{
+                    String.valueOf(1 + random.nextInt(2)),
+                    pickup.format(TIMESTAMP),
+                    dropoff.format(TIMESTAMP),
+                    random.nextInt(50) == 0 ? "" : String.valueOf(1 + random.nextInt(6)),
+                    money(distance),
+                    String.valueOf(1 + random.nextInt(6)),
+                    random.nextInt(100) == 0 ? "Y" : "N",
+                    String.valueOf(1 + random.nextInt(265)),
+                    String.valueOf(1 + random.nextInt(265)),
+                    String.valueOf(1 + random.nextInt(4)),
+                    money(fare),
+                    money(random.nextInt(3) * 0.5),
+                    "0.50",
+                    money(tip),
+                    money(tolls),
+                    money(fare + 0.8 + tip + tolls)
+            };
+        }
+        return rows;
+    }
+
+    static String csv(int count) {
+        StringWriter out = new StringWriter();
+        try {
+            writeCsv(out, rows(count));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    static Path writeCsv(Path file, int count) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeCsv(out, rows(count));
+        }
+        return file;
+    }
+
+    static Path writeNdjson(Path file, int count) throws IOException {
+        String[][] rows = rows(count);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (String[] row : rows) {
+                out.write('{');
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    out.write('"');
+                    out.write(COLUMNS.get(i));
+                    out.write("\":");
+                    boolean text = i == 1 || i == 2 || i == 6 || row[i].isEmpty();
+                    if (row[i].isEmpty()) {
+                        out.write("null");
+                    } else if (text) {
+                        out.write('"');
+                        out.write(row[i]);
+                        out.write('"');
+                    } else {
+                        out.write(row[i]);
+                    }
+                }
+                out.write("}\n");
+            }
+        }
+        return file;
+    }
+
+    private static void writeCsv(Writer out, String[][] rows) throws IOException {
+        out.write(String.join(",", COLUMNS));
+        out.write('\n');
+        for (String[] row : rows) {
+            out.write(String.join(",", row));
+            out.write('\n');
+        }
+    }
+
+    private static String money(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,67 @@
+package com.ingestion.config;
+
+import com.ingestion.util.ClickHouseConnectionPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+@Configuration
+public class ClickHousePoolConfig {
+
+    @Value("${clickhouse.pool.max-size:10}")
+    private int maxSize;
+
+    @Value("${clickhouse.pool.min-idle:0}")
+    private int minIdle;
+
+    @Value("${clickhouse.pool.max-pools:32}")
+    private int maxPools;
+
+    @Value("${clickhouse.pool.connection-timeout:30000}")
+    private long connectionTimeout;
+
+    @Value("${clickhouse.pool.first-connection-timeout:1000}")
+    private long firstConnectionTimeout;
+
+    @Value("${clickhouse.pool.validation-timeout:5000}")
+    private long validationTimeout;
+
+    @Value("${clickhouse.pool.idle-timeout:600000}")
+    private long idleTimeout;
+
+    @Value("${clickhouse.pool.max-lifetime:1800000}")
+    private long maxLifetime;
+
+    @Value("${clickhouse.pool.pool-idle-timeout:1800000}")
+    private long poolIdleTimeout;
+
+    @Value("${clickhouse.pool.eviction-interval:60000}")
+    private long evictionInterval;
+
+    @Value("${clickhouse.socket-timeout:30000}")
+    private int socketTimeout;
+
+    @PostConstruct
+    public void configurePool() {
+        ClickHouseConnectionPool.Settings settings = new ClickHouseConnectionPool.Settings();
+        settings.setMaxSize(maxSize);
+        settings.setMinIdle(minIdle);
+        settings.setMaxPools(maxPools);
+        settings.setConnectionTimeoutMs(connectionTimeout);
+        settings.setFirstConnectionTimeoutMs(firstConnectionTimeout);
+        settings.setValidationTimeoutMs(validationTimeout);
+        settings.setIdleTimeoutMs(idleTimeout);
+        settings.setMaxLifetimeMs(maxLifetime);
+        settings.setPoolIdleTimeoutMs(poolIdleTimeout);
+        settings.setEvictionIntervalMs(evictionInterval);
+        settings.setSocketTimeoutMs(socketTimeout);
+        ClickHouseConnectionPool.configure(settings);
+    }
+
+    @PreDestroy
+    public void closePools() {
+        ClickHouseConnectionPool.shutdown();
+    }
+}
@@ -0,0 +1,68 @@
+package com.ingestion.controller;
+
+import com.ingestion.dto.ExportRequest;
+import com.ingestion.dto.ExportResult;
+import com.ingestion.service.ExportService;
+import com.ingestion.util.TransferProgress;
+import com.ingestion.util.WatermarkStore;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final ExportService exportService;
+
+    @PostMapping("/file")
+    public ResponseEntity<ExportResult> exportToFile(
+            @RequestBody ExportRequest exportRequest,
+            HttpServletRequest request) throws IOException {
+        String jwt = extractJwtFromRequest(request);
+        return ResponseEntity.ok(exportService.exportToFile(exportRequest, jwt, new TransferProgress()));
+    }
+
+    @PostMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> exportToStream(
+            @RequestBody ExportRequest exportRequest,
+            HttpServletRequest request) {
+        String jwt = extractJwtFromRequest(request);
+        ExportRequest.Format format = exportRequest.getFormat();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(format.getContentType()));
+        headers.setContentDispositionFormData("attachment", exportRequest.getTable() + "." + format.getExtension());
+
+        StreamingResponseBody body = out -> exportService.exportToStream(exportRequest, out, jwt, new TransferProgress());
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    @GetMapping("/watermarks")
+    public ResponseEntity<Map<String, WatermarkStore.Watermark>> getWatermarks() {
+        return ResponseEntity.ok(exportService.getWatermarks());
+    }
+
+    @DeleteMapping("/watermarks")
+    public ResponseEntity<Void> resetWatermark(@RequestParam String key) {
+        return exportService.resetWatermark(key)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    private String extractJwtFromRequest(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+}
@@ -2,28 +2,47 @@ package com.ingestion.controller;
 
 import com.ingestion.dto.FileConfig;
 import com.ingestion.dto.TableSchema;
+import com.ingestion.dto.UploadResult;
+import com.ingestion.dto.UploadSession;
+import com.ingestion.service.ChunkedUploadService;
 import com.ingestion.service.FileService;
+import com.ingestion.util.FileCompression;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/files")
 public class FileController {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     private final FileService fileService;
+    private final ChunkedUploadService chunkedUploadService;
 
     @Autowired
-    public FileController(FileService fileService) {
+    public FileController(FileService fileService, ChunkedUploadService chunkedUploadService) {
         this.fileService = fileService;
+        this.chunkedUploadService = chunkedUploadService;
     }
 
     @PostMapping("/upload")
@@ -36,15 +55,136 @@ public class FileController {
         return ResponseEntity.ok(filePath);
     }
 
+    /**
+     * Store a raw request body, e.g. {@code curl --data-binary @trips.csv -H 'Content-Type: text/csv'}.
+     * Unlike multipart uploads the body is never buffered, so no upload size limit applies.
+     */
+    @PostMapping(value = "/upload/stream", consumes = {
+            MediaType.APPLICATION_OCTET_STREAM_VALUE, "text/csv", "text/plain",
+            MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<UploadResult> uploadStream(
+            @RequestParam("name") String fileName,
+            @RequestParam(value = "delimiter", defaultValue = ",") String delimiter,
+            HttpServletRequest request) throws IOException {
+        FileConfig config = new FileConfig();
+        config.setDelimiter(delimiter);
+        UploadResult result = fileService.uploadStream(request.getInputStream(), fileName, config);
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/uploads")
+    public ResponseEntity<UploadSession> startChunkedUpload(
+            @RequestParam("name") String fileName,
+            @RequestParam("size") long size,
+            @RequestParam(value = "chunkSize", required = false) Integer chunkSize) throws IOException {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.startUpload(fileName, size, chunkSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<UploadSession> getChunkedUpload(@PathVariable String uploadId) throws IOException {
+        return chunkedUploadService.getUpload(uploadId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping(value = "/uploads/{uploadId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSession> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            HttpServletRequest request) throws IOException {
+        try {
+            return chunkedUploadService.writeChunk(uploadId, index, request.getInputStream())
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<String> completeChunkedUpload(@PathVariable String uploadId) throws IOException {
+        try {
+            return chunkedUploadService.completeUpload(uploadId)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Boolean> abortChunkedUpload(@PathVariable String uploadId) throws IOException {
+        return ResponseEntity.ok(chunkedUploadService.abortUpload(uploadId));
+    }
+
+    /**
+     * Stream a stored file. A single {@code Range: bytes=start-end} is answered with 206 so
+     * clients can resume; {@code gzip=true} compresses the full file on the fly instead.
+     */
     @GetMapping("/download")
-    public ResponseEntity<byte[]> downloadFile(@RequestParam("path") String filePath) throws IOException {
-        byte[] fileContent = fileService.downloadFile(filePath);
-        
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @RequestParam("path") String filePath,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            HttpServletRequest request) throws IOException {
+        Path path = fileService.resolveFile(filePath);
+        long size = Files.size(path);
+
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", filePath.substring(filePath.lastIndexOf("/") + 1));
-        
-        return new ResponseEntity<>(fileContent, headers, HttpStatus.OK);
+        headers.setContentDispositionFormData("attachment", path.getFileName().toString());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setLastModified(Files.getLastModifiedTime(path).toMillis());
+
+        long start = 0;
+        long length = size;
+        HttpStatus status = HttpStatus.OK;
+        if (range != null && !range.isEmpty()) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                // Multiple ranges would need a multipart body; serving the whole file is allowed instead
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    if (start >= size) {
+                        throw new IllegalArgumentException("Range starts beyond the end of the file");
+                    }
+                    length = ranges.get(0).getRangeEnd(size) - start + 1;
+                    status = HttpStatus.PARTIAL_CONTENT;
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + size);
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+        }
+
+        // Compressed uploads such as .csv.gz are sent as stored rather than compressed twice
+        if (gzip && status == HttpStatus.OK && !FileCompression.isCompressed(path)) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            StreamingResponseBody body = out -> {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+                fileService.transferFile(path, 0, size, compressed);
+                compressed.finish();
+            };
+            return new ResponseEntity<>(body, headers, status);
+        }
+
+        headers.setContentLength(length);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the range with sendfile once the headers are committed
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return new ResponseEntity<>(headers, status);
+        }
+        long position = start;
+        long count = length;
+        return new ResponseEntity<>(out -> fileService.transferFile(path, position, count, out), headers, status);
     }
 
     @PostMapping("/schema")
@@ -0,0 +1,36 @@
+package com.ingestion.controller;
+
+import com.ingestion.dto.ImportRequest;
+import com.ingestion.dto.ImportResult;
+import com.ingestion.service.ImportService;
+import com.ingestion.util.TransferProgress;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/import")
+@RequiredArgsConstructor
+public class ImportController {
+
+    private final ImportService importService;
+
+    @PostMapping
+    public ResponseEntity<ImportResult> importFile(
+            @RequestBody ImportRequest importRequest,
+            HttpServletRequest request) throws IOException {
+        String jwt = extractJwtFromRequest(request);
+        return ResponseEntity.ok(importService.importFile(importRequest, jwt, new TransferProgress()));
+    }
+
+    private String extractJwtFromRequest(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.ingestion.controller;
+
+import com.ingestion.dto.Schedule;
+import com.ingestion.dto.ScheduleRun;
+import com.ingestion.dto.ScheduleStatus;
+import com.ingestion.service.ScheduleService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/schedules")
+@RequiredArgsConstructor
+public class ScheduleController {
+
+    private final ScheduleService scheduleService;
+
+    @PostMapping
+    public ResponseEntity<ScheduleStatus> createSchedule(@RequestBody Schedule schedule) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(scheduleService.createSchedule(schedule));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ScheduleStatus>> listSchedules() {
+        return ResponseEntity.ok(scheduleService.listSchedules());
+    }
+
+    @GetMapping("/{scheduleId}")
+    public ResponseEntity<ScheduleStatus> getSchedule(@PathVariable String scheduleId) {
+        return scheduleService.getSchedule(scheduleId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{scheduleId}")
+    public ResponseEntity<ScheduleStatus> updateSchedule(@PathVariable String scheduleId, @RequestBody Schedule schedule) {
+        return scheduleService.updateSchedule(scheduleId, schedule)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{scheduleId}")
+    public ResponseEntity<Void> deleteSchedule(@PathVariable String scheduleId) {
+        return scheduleService.deleteSchedule(scheduleId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/{scheduleId}/runs")
+    public ResponseEntity<List<ScheduleRun>> getRuns(@PathVariable String scheduleId) {
+        return scheduleService.getRuns(scheduleId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{scheduleId}/run")
+    public ResponseEntity<ScheduleRun> runNow(@PathVariable String scheduleId) {
+        return scheduleService.runNow(scheduleId)
+                .map(run -> ResponseEntity.status(run.getState() == ScheduleRun.State.SKIPPED
+                        ? HttpStatus.CONFLICT : HttpStatus.ACCEPTED).body(run))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -6,10 +6,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.ingestion.dto.ClickHouseConfig;
 import com.ingestion.dto.FileConfig;
+import com.ingestion.dto.PoolStats;
+import com.ingestion.dto.QueryRequest;
 import com.ingestion.dto.TableSchema;
 import com.ingestion.service.SourceService;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 
 @RestController
@@ -33,6 +36,31 @@ public class SourceController {
         return ResponseEntity.ok(sourceService.getClickHouseTables(config, jwt));
     }
 
+    @PostMapping("/clickhouse/cache/invalidate")
+    public ResponseEntity<Void> invalidateClickHouseMetadata(
+            @RequestBody ClickHouseConfig config,
+            @RequestParam(value = "table", required = false) String table) {
+        sourceService.invalidateClickHouseMetadata(config, table);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/clickhouse/query")
+    public ResponseEntity<TableSchema> queryClickHouseTable(
+            @RequestBody QueryRequest queryRequest,
+            HttpServletRequest request) {
+        String jwt = extractJwtFromRequest(request);
+        try {
+            return ResponseEntity.ok(sourceService.queryClickHouseTable(queryRequest, jwt));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/clickhouse/pool/stats")
+    public ResponseEntity<List<PoolStats>> getConnectionPoolStats() {
+        return ResponseEntity.ok(sourceService.getConnectionPoolStats());
+    }
+
     @PostMapping("/file/upload")
     public ResponseEntity<TableSchema> uploadFile(
             @RequestParam("file") MultipartFile file,
@@ -0,0 +1,58 @@
+package com.ingestion.controller;
+
+import com.ingestion.dto.TransferRequest;
+import com.ingestion.dto.TransferStatus;
+import com.ingestion.service.TransferService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/transfer")
+@RequiredArgsConstructor
+public class TransferController {
+
+    private final TransferService transferService;
+
+    @PostMapping("/start")
+    public ResponseEntity<TransferStatus> startTransfer(
+            @RequestBody TransferRequest transferRequest,
+            HttpServletRequest request) {
+        String jwt = extractJwtFromRequest(request);
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(transferService.startTransfer(transferRequest, jwt));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+    }
+
+    @GetMapping("/{transferId}/status")
+    public ResponseEntity<TransferStatus> getTransferStatus(@PathVariable String transferId) {
+        return transferService.getStatus(transferId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping
+    public ResponseEntity<List<TransferStatus>> listTransfers() {
+        return ResponseEntity.ok(transferService.listTransfers());
+    }
+
+    @DeleteMapping("/{transferId}")
+    public ResponseEntity<Boolean> cancelTransfer(@PathVariable String transferId) {
+        return ResponseEntity.ok(transferService.cancelTransfer(transferId));
+    }
+
+    private String extractJwtFromRequest(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+}
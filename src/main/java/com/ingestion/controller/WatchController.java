@@ -0,0 +1,43 @@
+package com.ingestion.controller;
+
+import com.ingestion.dto.WatchRequest;
+import com.ingestion.dto.WatchStatus;
+import com.ingestion.service.DirectoryWatchService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/watch")
+@RequiredArgsConstructor
+public class WatchController {
+
+    private final DirectoryWatchService directoryWatchService;
+
+    @PostMapping
+    public ResponseEntity<WatchStatus> startWatch(@RequestBody WatchRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(directoryWatchService.startWatch(request));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<WatchStatus>> listWatches() {
+        return ResponseEntity.ok(directoryWatchService.listWatches());
+    }
+
+    @GetMapping("/{watchId}")
+    public ResponseEntity<WatchStatus> getWatch(@PathVariable String watchId) {
+        return directoryWatchService.getWatch(watchId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{watchId}")
+    public ResponseEntity<Void> stopWatch(@PathVariable String watchId) {
+        return directoryWatchService.stopWatch(watchId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.ingestion.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.NoArgsConstructor;
@@ -14,5 +15,7 @@ public class ClickHouseConfig {
     private int port;
     private String database;
     private String username;
+    // Accepted in requests but never echoed back in responses
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
 }
@@ -0,0 +1,91 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportRequest {
+    private ClickHouseConfig connection;
+    private String table;
+    private List<String> columns;
+    private Format format = Format.CSV_WITH_NAMES;
+    private Long limit;
+    private List<QueryFilter> filters;
+    private List<JoinTable> joins;
+    /**
+     * Export only the rows added since the previous incremental export of the same table and column.
+     */
+    private Incremental incremental;
+
+    /**
+     * An export that remembers the highest value of a monotonic column, such as an auto-increment id or
+     * an insert timestamp, and on its next run reads only rows above it.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Incremental {
+        /**
+         * The watermark column; a reference of the form {@code alias.column} when the export has joins.
+         */
+        private String column;
+        /**
+         * Optional name that keeps the watermarks of several exports of the same table and column apart.
+         */
+        private String name;
+        private Output output = Output.TIMESTAMPED;
+
+        public enum Output {
+            /** A new file per run named after the time it started. */
+            TIMESTAMPED,
+            /** A new file per run named with a sequential part number. */
+            ROLLING
+        }
+    }
+
+    public enum Format {
+        CSV_WITH_NAMES("CSVWithNames", "csv", "text/csv", 1),
+        CSV("CSV", "csv", "text/csv", 0),
+        TAB_SEPARATED_WITH_NAMES("TabSeparatedWithNames", "tsv", "text/tab-separated-values", 1),
+        TAB_SEPARATED("TabSeparated", "tsv", "text/tab-separated-values", 0),
+        ROW_BINARY("RowBinary", "bin", "application/octet-stream", -1),
+        PARQUET("Parquet", "parquet", "application/vnd.apache.parquet", -1),
+        ARROW("Arrow", "arrow", "application/vnd.apache.arrow.file", -1);
+
+        private final String clickHouseName;
+        private final String extension;
+        private final String contentType;
+        private final int headerLines;
+
+        Format(String clickHouseName, String extension, String contentType, int headerLines) {
+            this.clickHouseName = clickHouseName;
+            this.extension = extension;
+            this.contentType = contentType;
+            this.headerLines = headerLines;
+        }
+
+        public String getClickHouseName() {
+            return clickHouseName;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Leading non-data lines, or -1 when the format is not line oriented.
+         */
+        public int getHeaderLines() {
+            return headerLines;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportResult {
+    private String filePath;
+    private ExportRequest.Format format;
+    private long rows;
+    private long bytes;
+    private long elapsedMs;
+    /**
+     * Watermark stored after an incremental export, or null for a full one.
+     */
+    private String watermark;
+}
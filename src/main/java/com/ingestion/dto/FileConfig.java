@@ -15,6 +15,9 @@ public class FileConfig {
 
     public enum FileType {
         CSV,
-        JSON
+        JSON,
+        NDJSON,
+        PARQUET,
+        ARROW
     }
 }
@@ -0,0 +1,43 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRequest {
+    private ClickHouseConfig connection;
+    private String filePath;
+    private String table;
+    private List<String> columns;
+    private FileConfig fileConfig;
+    private Mode mode = Mode.ROW_BATCH;
+    private Compression compression = Compression.NONE;
+
+    public enum Mode {
+        ROW_BATCH,
+        PARALLEL,
+        BULK
+    }
+
+    public enum Compression {
+        NONE(null),
+        GZIP("gzip"),
+        LZ4("lz4"),
+        ZSTD("zstd");
+
+        private final String contentEncoding;
+
+        Compression(String contentEncoding) {
+            this.contentEncoding = contentEncoding;
+        }
+
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
+    }
+}
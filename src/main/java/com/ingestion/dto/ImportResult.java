@@ -0,0 +1,20 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResult {
+    private String table;
+    private ImportRequest.Mode mode;
+    private long rows;
+    private long bytes;
+    private long elapsedMs;
+    private double rowsPerSecond;
+    private List<StageMetrics> stages;
+}
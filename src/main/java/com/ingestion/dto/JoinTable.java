@@ -0,0 +1,52 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A table joined to an export. Columns are referenced as {@code alias.column}, where the alias of the
+ * exported table is its name without the database.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JoinTable {
+    private String table;
+    /**
+     * Name used to qualify this table's columns; defaults to the table name without the database.
+     */
+    private String alias;
+    private Type type = Type.INNER;
+    private List<Key> on;
+
+    public enum Type {
+        INNER("INNER JOIN"),
+        LEFT("LEFT JOIN"),
+        RIGHT("RIGHT JOIN"),
+        FULL("FULL OUTER JOIN");
+
+        private final String sql;
+
+        Type(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+    }
+
+    /**
+     * An equality between a column of a table joined earlier and a column of this one.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key {
+        private String left;
+        private String right;
+    }
+}
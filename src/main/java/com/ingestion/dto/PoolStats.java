@@ -0,0 +1,20 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PoolStats {
+    private String pool;
+    private int maxSize;
+    private int active;
+    private int idle;
+    private int total;
+    private int waiting;
+    private long borrowCount;
+    private double averageWaitMs;
+    private double maxWaitMs;
+}
@@ -0,0 +1,45 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * A condition on one column, combined with the other filters of a query by AND.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryFilter {
+    private String column;
+    private Operator operator;
+    /**
+     * A string, number or boolean; a list for IN and NOT_IN; unused for IS_NULL and IS_NOT_NULL.
+     */
+    private Object value;
+
+    public enum Operator {
+        EQ("="),
+        NE("!="),
+        LT("<"),
+        LE("<="),
+        GT(">"),
+        GE(">="),
+        LIKE("LIKE"),
+        NOT_LIKE("NOT LIKE"),
+        IN("IN"),
+        NOT_IN("NOT IN"),
+        IS_NULL("IS NULL"),
+        IS_NOT_NULL("IS NOT NULL");
+
+        private final String sql;
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+    }
+}
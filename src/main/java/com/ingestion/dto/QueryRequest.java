@@ -0,0 +1,22 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryRequest {
+    private ClickHouseConfig connection;
+    private String table;
+    /**
+     * Columns as returned by the table schema; only those with {@code selected} set are read.
+     */
+    private List<TableSchema.Column> columns;
+    private List<QueryFilter> filters;
+    private Long limit;
+    private Long offset;
+}
@@ -0,0 +1,30 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A transfer definition run repeatedly at the times of a cron expression.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Schedule {
+    private String id;
+    private String name;
+    /**
+     * Spring cron expression with seconds, e.g. {@code 0 0 * * * *}; a Unix expression with five
+     * fields runs at second 0.
+     */
+    private String cron;
+    /**
+     * Time zone the expression is evaluated in, the server's when null.
+     */
+    private String zone;
+    private boolean enabled = true;
+    private TransferRequest transfer;
+    private Instant createdAt;
+}
@@ -0,0 +1,43 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One firing of a schedule, with the throughput of the transfer it ran.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleRun {
+    private String runId;
+    private String scheduleId;
+    private State state;
+    private Instant scheduledAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long rowsRead;
+    private long rowsWritten;
+    private long bytes;
+    private long elapsedMs;
+    private double rowsPerSecond;
+    private double bytesPerSecond;
+    private String filePath;
+    private String error;
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        /** Not run, because the previous run was still active or no worker was free. */
+        SKIPPED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == SKIPPED;
+        }
+    }
+}
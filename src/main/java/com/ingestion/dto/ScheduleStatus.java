@@ -0,0 +1,20 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleStatus {
+    private Schedule schedule;
+    /**
+     * Next firing time, or null when the schedule is disabled or its expression never fires again.
+     */
+    private Instant nextRunAt;
+    private boolean running;
+    private ScheduleRun lastRun;
+}
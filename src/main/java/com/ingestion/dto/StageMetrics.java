@@ -0,0 +1,21 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Timing of one stage of a pipelined import. Busy time is spent doing the stage's work, wait time
+ * blocked on the queue next to it: a parse stage that mostly waits is held back by the inserts, an
+ * insert stage that mostly waits is starved by the parser.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StageMetrics {
+    private String name;
+    private int threads;
+    private long batches;
+    private long busyMs;
+    private long waitMs;
+}
@@ -0,0 +1,19 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferRequest {
+    private Type type;
+    private ImportRequest importRequest;
+    private ExportRequest exportRequest;
+
+    public enum Type {
+        FILE_TO_CLICKHOUSE,
+        CLICKHOUSE_TO_FILE
+    }
+}
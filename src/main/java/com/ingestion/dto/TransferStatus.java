@@ -0,0 +1,43 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferStatus {
+    private String transferId;
+    private TransferRequest.Type type;
+    private State state;
+    private long rowsRead;
+    private long rowsWritten;
+    private long bytes;
+    private long totalBytes;
+    private double progress;
+    private double rowsPerSecond;
+    private double bytesPerSecond;
+    private long etaSeconds;
+    private String filePath;
+    private String error;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private List<StageMetrics> stages;
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+}
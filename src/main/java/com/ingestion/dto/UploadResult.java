@@ -0,0 +1,16 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadResult {
+    private String filePath;
+    private long bytes;
+    private String sha256;
+    private long rows;
+    private TableSchema schema;
+}
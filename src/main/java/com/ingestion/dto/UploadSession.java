@@ -0,0 +1,20 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+    private String uploadId;
+    private String fileName;
+    private long size;
+    private int chunkSize;
+    private int chunkCount;
+    private int receivedChunks;
+    private List<Integer> missingChunks;
+}
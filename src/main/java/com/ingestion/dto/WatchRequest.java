@@ -0,0 +1,28 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A local directory whose new CSV and JSON files are loaded into a table as they arrive.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WatchRequest {
+    private ClickHouseConfig connection;
+    private String directory;
+    /**
+     * Glob matched against file names in the directory, e.g. {@code trips-*.csv.gz}.
+     */
+    private String pattern = "*";
+    private String table;
+    /**
+     * Target columns; when empty, the header or first record of each batch's first file.
+     */
+    private List<String> columns;
+    private FileConfig fileConfig;
+}
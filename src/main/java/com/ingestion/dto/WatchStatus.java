@@ -0,0 +1,35 @@
+package com.ingestion.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WatchStatus {
+    private String watchId;
+    private WatchRequest request;
+    private State state;
+    private long filesIngested;
+    private long filesFailed;
+    private int filesPending;
+    private long batches;
+    private long rowsWritten;
+    private long bytes;
+    private Instant startedAt;
+    private Instant lastBatchAt;
+    private int lastBatchFiles;
+    private long lastBatchRows;
+    private long lastBatchMs;
+    private double lastBatchRowsPerSecond;
+    private String error;
+
+    public enum State {
+        RUNNING,
+        /** The directory could not be watched; the watch must be created again. */
+        FAILED
+    }
+}
@@ -0,0 +1,48 @@
+package com.ingestion.service;
+
+import com.ingestion.dto.UploadSession;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+public interface ChunkedUploadService {
+    /**
+     * Open an upload session for a file sent as numbered chunks
+     * @param fileName The client-side file name, used for its extension
+     * @param size Total size of the file in bytes
+     * @param chunkSize Bytes per chunk, or null for the configured default
+     * @return The new session with every chunk missing
+     */
+    UploadSession startUpload(String fileName, long size, Integer chunkSize) throws IOException;
+
+    /**
+     * Get a session with the chunks still missing, so a client can resume
+     * @param uploadId ID returned by startUpload
+     * @return The session, or empty if it is unknown or already completed
+     */
+    Optional<UploadSession> getUpload(String uploadId) throws IOException;
+
+    /**
+     * Store one chunk. Chunks may arrive in any order and in parallel; resending a chunk replaces it
+     * @param uploadId ID returned by startUpload
+     * @param index Zero-based chunk number
+     * @param in The chunk body, exactly chunkSize bytes except for the last chunk
+     * @return The updated session, or empty if the session is unknown
+     */
+    Optional<UploadSession> writeChunk(String uploadId, int index, InputStream in) throws IOException;
+
+    /**
+     * Reassemble a session whose chunks have all arrived into a stored file
+     * @param uploadId ID returned by startUpload
+     * @return The path where the file was stored, or empty if the session is unknown
+     */
+    Optional<String> completeUpload(String uploadId) throws IOException;
+
+    /**
+     * Discard a session and its chunks
+     * @param uploadId ID returned by startUpload
+     * @return true if the session existed
+     */
+    boolean abortUpload(String uploadId) throws IOException;
+}
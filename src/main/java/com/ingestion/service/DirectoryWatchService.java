@@ -0,0 +1,33 @@
+package com.ingestion.service;
+
+import com.ingestion.dto.WatchRequest;
+import com.ingestion.dto.WatchStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface DirectoryWatchService {
+    /**
+     * Start loading the new files of a directory into a table, and keep doing so across restarts
+     * @param request Directory, file name pattern and target table
+     * @return Initial status carrying the watch ID
+     */
+    WatchStatus startWatch(WatchRequest request);
+
+    /**
+     * Get the counters of a watch
+     * @param watchId ID returned by startWatch
+     * @return The status, or empty if the watch is unknown
+     */
+    Optional<WatchStatus> getWatch(String watchId);
+
+    List<WatchStatus> listWatches();
+
+    /**
+     * Stop a watch and forget its definition; its record of loaded files is kept for a later watch
+     * of the same directory and table
+     * @param watchId ID returned by startWatch
+     * @return true if the watch existed
+     */
+    boolean stopWatch(String watchId);
+}
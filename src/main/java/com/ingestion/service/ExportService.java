@@ -0,0 +1,44 @@
+package com.ingestion.service;
+
+import com.ingestion.dto.ExportRequest;
+import com.ingestion.dto.ExportResult;
+import com.ingestion.util.TransferProgress;
+import com.ingestion.util.WatermarkStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+public interface ExportService {
+    /**
+     * Export a ClickHouse table to a file in the export directory
+     * @param request What to export and in which format
+     * @param jwt Token forwarded to ClickHouse
+     * @param progress Counters updated while the export runs
+     * @return Location and size of the written file
+     */
+    ExportResult exportToFile(ExportRequest request, String jwt, TransferProgress progress) throws IOException;
+
+    /**
+     * Export a ClickHouse table straight to an output stream
+     * @param request What to export and in which format
+     * @param out Destination of the raw formatted bytes
+     * @param jwt Token forwarded to ClickHouse
+     * @param progress Counters updated while the export runs
+     * @return Size of the written output
+     */
+    ExportResult exportToStream(ExportRequest request, OutputStream out, String jwt, TransferProgress progress);
+
+    /**
+     * Watermarks of incremental exports
+     * @return Stored state by export key
+     */
+    Map<String, WatermarkStore.Watermark> getWatermarks();
+
+    /**
+     * Forget the watermark of an incremental export, so its next run exports the whole table
+     * @param key Export key as listed by {@link #getWatermarks()}
+     * @return False when no watermark was stored under the key
+     */
+    boolean resetWatermark(String key);
+}
@@ -2,9 +2,13 @@ package com.ingestion.service;
 
 import com.ingestion.dto.FileConfig;
 import com.ingestion.dto.TableSchema;
+import com.ingestion.dto.UploadResult;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -18,11 +22,31 @@ public interface FileService {
     String uploadFile(MultipartFile file, FileConfig config) throws IOException;
 
     /**
-     * Download a file from the storage location
+     * Write a raw upload to the configured location in a single pass, computing its checksum,
+     * row count and sampled schema while the bytes go to disk
+     * @param in The upload body
+     * @param fileName The client-side file name, used for its extension
+     * @param config Configuration for parsing
+     * @return The stored path with its size, checksum, row count and schema
+     */
+    UploadResult uploadStream(InputStream in, String fileName, FileConfig config) throws IOException;
+
+    /**
+     * Resolve a stored file for download
      * @param filePath The path of the file to download
-     * @return The file as a byte array
+     * @return The path of the existing file
+     */
+    Path resolveFile(String filePath) throws IOException;
+
+    /**
+     * Copy a byte range of a file to an output stream without buffering the file in memory
+     * @param path The file to copy from
+     * @param position The first byte to copy
+     * @param count The number of bytes to copy
+     * @param out The stream to copy to
+     * @return The number of bytes copied
      */
-    byte[] downloadFile(String filePath) throws IOException;
+    long transferFile(Path path, long position, long count, OutputStream out) throws IOException;
 
     /**
      * Parse the schema of an uploaded file
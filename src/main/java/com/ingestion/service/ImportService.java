@@ -0,0 +1,18 @@
+package com.ingestion.service;
+
+import com.ingestion.dto.ImportRequest;
+import com.ingestion.dto.ImportResult;
+import com.ingestion.util.TransferProgress;
+
+import java.io.IOException;
+
+public interface ImportService {
+    /**
+     * Import a previously uploaded file into a ClickHouse table
+     * @param request Source file, target table and import mode
+     * @param jwt Token forwarded to ClickHouse
+     * @param progress Counters updated while the import runs
+     * @return Row and byte counts of the finished import
+     */
+    ImportResult importFile(ImportRequest request, String jwt, TransferProgress progress) throws IOException;
+}
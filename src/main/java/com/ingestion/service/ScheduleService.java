@@ -0,0 +1,51 @@
+package com.ingestion.service;
+
+import com.ingestion.dto.Schedule;
+import com.ingestion.dto.ScheduleRun;
+import com.ingestion.dto.ScheduleStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ScheduleService {
+    /**
+     * Store a schedule and arm its timer when it is enabled
+     * @param schedule Cron expression and the transfer to run; the ID is assigned
+     * @return The stored schedule with its next firing time
+     */
+    ScheduleStatus createSchedule(Schedule schedule);
+
+    /**
+     * Replace the definition of a schedule, keeping its run history
+     * @param scheduleId ID returned by createSchedule
+     * @param schedule New cron expression, state and transfer
+     * @return The updated schedule, or empty if it is unknown
+     */
+    Optional<ScheduleStatus> updateSchedule(String scheduleId, Schedule schedule);
+
+    /**
+     * Remove a schedule and its history; a run in progress is left to finish
+     * @param scheduleId ID returned by createSchedule
+     * @return true if the schedule existed
+     */
+    boolean deleteSchedule(String scheduleId);
+
+    Optional<ScheduleStatus> getSchedule(String scheduleId);
+
+    List<ScheduleStatus> listSchedules();
+
+    /**
+     * Get the recorded runs of a schedule, newest first
+     * @param scheduleId ID returned by createSchedule
+     * @return The runs, or empty if the schedule is unknown
+     */
+    Optional<List<ScheduleRun>> getRuns(String scheduleId);
+
+    /**
+     * Run a schedule now, outside its cron times
+     * @param scheduleId ID returned by createSchedule
+     * @return The queued run, SKIPPED when the previous run is still active or no worker is free,
+     *         or empty if the schedule is unknown
+     */
+    Optional<ScheduleRun> runNow(String scheduleId);
+}
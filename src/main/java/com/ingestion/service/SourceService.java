@@ -3,8 +3,12 @@ package com.ingestion.service;
 import org.springframework.web.multipart.MultipartFile;
 import com.ingestion.dto.ClickHouseConfig;
 import com.ingestion.dto.FileConfig;
+import com.ingestion.dto.PoolStats;
+import com.ingestion.dto.QueryRequest;
 import com.ingestion.dto.TableSchema;
 
+import java.util.List;
+
 public interface SourceService {
     /**
      * Test connection to a ClickHouse database
@@ -16,6 +20,16 @@ public interface SourceService {
      */
     TableSchema getClickHouseTables(ClickHouseConfig config, String jwt);
 
+    /**
+     * Drop cached tables and schemas of a database, or of one table when table is not null
+     */
+    void invalidateClickHouseMetadata(ClickHouseConfig config, String table);
+
+    /**
+     * Read the selected columns of a ClickHouse table, filtered and limited by the server
+     */
+    TableSchema queryClickHouseTable(QueryRequest request, String jwt);
+
     /**
      * Process an uploaded file and return its schema
      */
@@ -25,4 +39,9 @@ public interface SourceService {
      * Get preview data for a previously uploaded file
      */
     TableSchema getFilePreview(String fileId);
+
+    /**
+     * Get metrics for the pooled ClickHouse connections
+     */
+    List<PoolStats> getConnectionPoolStats();
 }
@@ -0,0 +1,36 @@
+package com.ingestion.service;
+
+import com.ingestion.dto.TransferRequest;
+import com.ingestion.dto.TransferStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface TransferService {
+    /**
+     * Queue a transfer on the background executor and return immediately
+     * @param request Import or export to run
+     * @param jwt Token forwarded to ClickHouse
+     * @return Initial status carrying the transfer ID
+     */
+    TransferStatus startTransfer(TransferRequest request, String jwt);
+
+    /**
+     * Get the live status of a running or recently finished transfer
+     * @param transferId ID returned by startTransfer
+     * @return The status, or empty if the transfer is unknown or was evicted
+     */
+    Optional<TransferStatus> getStatus(String transferId);
+
+    /**
+     * Get the status of every tracked transfer
+     */
+    List<TransferStatus> listTransfers();
+
+    /**
+     * Cancel a queued or running transfer
+     * @param transferId ID returned by startTransfer
+     * @return true if the transfer was still active and has been cancelled
+     */
+    boolean cancelTransfer(String transferId);
+}
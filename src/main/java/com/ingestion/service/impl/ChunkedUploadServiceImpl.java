@@ -0,0 +1,262 @@
+package com.ingestion.service.impl;
+
+import com.ingestion.dto.UploadSession;
+import com.ingestion.service.ChunkedUploadService;
+import com.ingestion.util.FileCompression;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps each session under {@code <file.upload.dir>/chunked/<uploadId>}: a properties file with the
+ * file name and sizes, and one file per received chunk. Chunks are written to a temporary name and
+ * renamed once complete, so the directory listing is the resumable state and survives restarts.
+ */
+@Service
+public class ChunkedUploadServiceImpl implements ChunkedUploadService {
+
+    private static final String SESSION_FILE = "upload.properties";
+    private static final String CHUNK_SUFFIX = ".chunk";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${file.upload.dir}")
+    private String uploadDir;
+
+    @Value("${file.upload.chunk-size:8388608}")
+    private int defaultChunkSize = 8 * 1024 * 1024;
+
+    @Value("${file.upload.max-chunk-size:67108864}")
+    private int maxChunkSize = 64 * 1024 * 1024;
+
+    private final Set<String> completing = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public UploadSession startUpload(String fileName, long size, Integer chunkSize) throws IOException {
+        // Rejects names without an extension before any session is created
+        FileCompression.extension(fileName);
+        int effectiveChunkSize = chunkSize != null ? chunkSize : defaultChunkSize;
+        if (effectiveChunkSize <= 0 || effectiveChunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + maxChunkSize + " bytes");
+        }
+        if (size <= 0 || chunkCount(size, effectiveChunkSize) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid upload size: " + size);
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Path sessionDir = sessionsDir().resolve(uploadId);
+        Files.createDirectories(sessionDir);
+
+        Properties properties = new Properties();
+        properties.setProperty("fileName", fileName);
+        properties.setProperty("size", String.valueOf(size));
+        properties.setProperty("chunkSize", String.valueOf(effectiveChunkSize));
+        try (Writer writer = Files.newBufferedWriter(sessionDir.resolve(SESSION_FILE), StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+        return status(uploadId, properties, sessionDir);
+    }
+
+    @Override
+    public Optional<UploadSession> getUpload(String uploadId) throws IOException {
+        Optional<Path> sessionDir = sessionDir(uploadId);
+        if (!sessionDir.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(status(uploadId, readSession(sessionDir.get()), sessionDir.get()));
+    }
+
+    @Override
+    public Optional<UploadSession> writeChunk(String uploadId, int index, InputStream in) throws IOException {
+        Optional<Path> sessionDir = sessionDir(uploadId);
+        if (!sessionDir.isPresent()) {
+            return Optional.empty();
+        }
+        Properties properties = readSession(sessionDir.get());
+        long size = Long.parseLong(properties.getProperty("size"));
+        int chunkSize = Integer.parseInt(properties.getProperty("chunkSize"));
+        int chunkCount = (int) chunkCount(size, chunkSize);
+        if (index < 0 || index >= chunkCount) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (chunkCount - 1));
+        }
+        long expected = chunkLength(index, size, chunkSize);
+
+        // A unique temporary name lets retries of the same chunk run concurrently; the rename
+        // publishes the chunk only once all of its bytes are on disk
+        Path temp = sessionDir.get().resolve(index + "." + UUID.randomUUID() + ".part");
+        try {
+            long written = copy(in, temp, expected + 1);
+            if (written != expected) {
+                throw new IllegalArgumentException("Chunk " + index + " must be " + expected
+                        + " bytes but was " + (written > expected ? "longer" : written + " bytes"));
+            }
+            Files.move(temp, chunkPath(sessionDir.get(), index),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return Optional.of(status(uploadId, properties, sessionDir.get()));
+    }
+
+    @Override
+    public Optional<String> completeUpload(String uploadId) throws IOException {
+        Optional<Path> sessionDir = sessionDir(uploadId);
+        if (!sessionDir.isPresent()) {
+            return Optional.empty();
+        }
+        if (!completing.add(uploadId)) {
+            throw new IllegalStateException("Upload " + uploadId + " is already being completed");
+        }
+        try {
+            Properties properties = readSession(sessionDir.get());
+            UploadSession session = status(uploadId, properties, sessionDir.get());
+            if (!session.getMissingChunks().isEmpty()) {
+                throw new IllegalStateException("Upload " + uploadId + " is missing "
+                        + session.getMissingChunks().size() + " of " + session.getChunkCount() + " chunks");
+            }
+
+            Path uploadPath = Paths.get(uploadDir);
+            Path filePath = uploadPath.resolve(UUID.randomUUID().toString() + FileCompression.extension(session.getFileName()));
+            Path partPath = uploadPath.resolve(filePath.getFileName() + ".part");
+            try {
+                reassemble(sessionDir.get(), partPath, session);
+                Files.move(partPath, filePath, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partPath);
+            }
+            FileSystemUtils.deleteRecursively(sessionDir.get());
+            return Optional.of(filePath.toString());
+        } finally {
+            completing.remove(uploadId);
+        }
+    }
+
+    @Override
+    public boolean abortUpload(String uploadId) throws IOException {
+        Optional<Path> sessionDir = sessionDir(uploadId);
+        return sessionDir.isPresent() && FileSystemUtils.deleteRecursively(sessionDir.get());
+    }
+
+    /**
+     * Copy every chunk to its offset in the target. Positional writes on one channel are
+     * independent, so chunks are copied in parallel.
+     */
+    private void reassemble(Path sessionDir, Path target, UploadSession session) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // transferFrom writes nothing past the current end of file, so size the target first
+            out.write(ByteBuffer.allocate(1), session.getSize() - 1);
+            IntStream.range(0, session.getChunkCount()).parallel().forEach(index -> {
+                long position = (long) index * session.getChunkSize();
+                try (FileChannel in = FileChannel.open(chunkPath(sessionDir, index), StandardOpenOption.READ)) {
+                    long length = in.size();
+                    long copied = 0;
+                    while (copied < length) {
+                        long sent = out.transferFrom(in.position(copied), position + copied, length - copied);
+                        if (sent <= 0) {
+                            throw new IOException("Chunk " + index + " shrank while it was being copied");
+                        }
+                        copied += sent;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to copy chunk " + index, e);
+                }
+            });
+            out.force(false);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long copy(InputStream in, Path target, long limit) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long total = 0;
+        try (OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW)) {
+            int read;
+            while (total < limit && (read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - total))) >= 0) {
+                out.write(buffer, 0, read);
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    private UploadSession status(String uploadId, Properties properties, Path sessionDir) throws IOException {
+        long size = Long.parseLong(properties.getProperty("size"));
+        int chunkSize = Integer.parseInt(properties.getProperty("chunkSize"));
+        int chunkCount = (int) chunkCount(size, chunkSize);
+        BitSet received = new BitSet(chunkCount);
+        try (DirectoryStream<Path> chunks = Files.newDirectoryStream(sessionDir, "*" + CHUNK_SUFFIX)) {
+            for (Path chunk : chunks) {
+                String name = chunk.getFileName().toString();
+                received.set(Integer.parseInt(name.substring(0, name.length() - CHUNK_SUFFIX.length())));
+            }
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (int index = received.nextClearBit(0); index < chunkCount; index = received.nextClearBit(index + 1)) {
+            missing.add(index);
+        }
+        return new UploadSession(uploadId, properties.getProperty("fileName"), size, chunkSize,
+                chunkCount, chunkCount - missing.size(), missing);
+    }
+
+    private Optional<Path> sessionDir(String uploadId) {
+        try {
+            // Only canonical UUIDs, so the ID can never name a path outside the sessions directory
+            if (!UUID.fromString(uploadId).toString().equals(uploadId)) {
+                return Optional.empty();
+            }
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        Path sessionDir = sessionsDir().resolve(uploadId);
+        return Files.exists(sessionDir.resolve(SESSION_FILE)) ? Optional.of(sessionDir) : Optional.empty();
+    }
+
+    private Path sessionsDir() {
+        return Paths.get(uploadDir, "chunked");
+    }
+
+    private static Properties readSession(Path sessionDir) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(sessionDir.resolve(SESSION_FILE), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    private static Path chunkPath(Path sessionDir, int index) {
+        return sessionDir.resolve(index + CHUNK_SUFFIX);
+    }
+
+    private static long chunkCount(long size, int chunkSize) {
+        return (size + chunkSize - 1) / chunkSize;
+    }
+
+    private static long chunkLength(int index, long size, int chunkSize) {
+        return Math.min(chunkSize, size - (long) index * chunkSize);
+    }
+}
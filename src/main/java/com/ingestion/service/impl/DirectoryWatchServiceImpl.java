@@ -0,0 +1,544 @@
+package com.ingestion.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.FileConfig;
+import com.ingestion.dto.WatchRequest;
+import com.ingestion.dto.WatchStatus;
+import com.ingestion.service.DirectoryWatchService;
+import com.ingestion.util.FileBatchSource;
+import com.ingestion.util.ImportPipeline;
+import com.ingestion.util.MetadataCache;
+import com.ingestion.util.ProcessedFileLedger;
+import com.ingestion.util.StateFiles;
+import com.ingestion.util.TransferProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the new CSV and JSON files of watched directories into ClickHouse. Each watch has a thread
+ * blocked on a {@link WatchService}; a file becomes ready once its size and modification time have
+ * stopped changing for the settle time, and ready files are collected for up to the batch delay, or
+ * until a batch is full, and then inserted together through the {@link ImportPipeline}. Coalescing
+ * keeps a stream of small files from creating one part per file in the target table.
+ * <p>
+ * Loaded files are appended to a {@link ProcessedFileLedger} per directory and table, so neither a
+ * restart nor a new watch of the same directory loads them again. A file is recorded once its batch
+ * is inserted, which makes delivery at least once: a crash in between loads the batch again.
+ */
+@Service
+public class DirectoryWatchServiceImpl implements DirectoryWatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryWatchServiceImpl.class);
+    private static final ObjectMapper MAPPER = StateFiles.mapper();
+    private static final long TICK_MS = 200;
+    private static final long STOP_TIMEOUT_MS = 10000;
+
+    private final ImportPipeline importPipeline;
+    private final MetadataCache metadataCache;
+
+    @Value("${watch.state-dir:${user.home}/.ingestion-tool/watches}")
+    private String stateDir;
+
+    @Value("${watch.max-watches:8}")
+    private int maxWatches = 8;
+
+    @Value("${watch.settle-time:1000}")
+    private long settleTimeMs = 1000;
+
+    @Value("${watch.batch-delay:1000}")
+    private long batchDelayMs = 1000;
+
+    @Value("${watch.max-batch-files:100}")
+    private int maxBatchFiles = 100;
+
+    @Value("${watch.max-batch-bytes:268435456}")
+    private long maxBatchBytes = 268435456;
+
+    @Value("${watch.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    @Value("${watch.retry-delay:5000}")
+    private long retryDelayMs = 5000;
+
+    @Value("${import.batch-size:10000}")
+    private int batchSize = 10000;
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    // Guarded by this
+    private final Map<String, Watcher> watchers = new LinkedHashMap<>();
+
+    public DirectoryWatchServiceImpl(ImportPipeline importPipeline, MetadataCache metadataCache) {
+        this.importPipeline = importPipeline;
+        this.metadataCache = metadataCache;
+    }
+
+    @PostConstruct
+    public void start() {
+        Path definitions = Paths.get(stateDir, "watches.json");
+        if (!Files.exists(definitions)) {
+            return;
+        }
+        Map<String, WatchRequest> requests;
+        try {
+            requests = MAPPER.readValue(definitions.toFile(), new TypeReference<LinkedHashMap<String, WatchRequest>>() {});
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read watches from " + definitions, e);
+        }
+        synchronized (this) {
+            requests.forEach((id, request) -> {
+                Watcher watcher = new Watcher(id, request);
+                watchers.put(id, watcher);
+                watcher.start();
+            });
+        }
+        log.info("Resumed {} directory watches", requests.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        List<Watcher> running;
+        synchronized (this) {
+            running = new ArrayList<>(watchers.values());
+        }
+        running.forEach(Watcher::stop);
+    }
+
+    @Override
+    public WatchStatus startWatch(WatchRequest request) {
+        validate(request);
+        Watcher watcher;
+        synchronized (this) {
+            if (watchers.size() >= maxWatches) {
+                throw new IllegalStateException("At most " + maxWatches + " directories can be watched");
+            }
+            Path directory = Paths.get(request.getDirectory()).toAbsolutePath().normalize();
+            for (Watcher other : watchers.values()) {
+                if (other.directory.equals(directory) && ledgerName(other.request).equals(ledgerName(request))) {
+                    throw new IllegalStateException(directory + " is already watched for " + request.getTable()
+                            + " by watch " + other.id);
+                }
+            }
+            watcher = new Watcher(UUID.randomUUID().toString(), request);
+            watchers.put(watcher.id, watcher);
+            try {
+                save();
+            } catch (UncheckedIOException e) {
+                watchers.remove(watcher.id);
+                throw e;
+            }
+        }
+        watcher.start();
+        log.info("Watching {} for {} into {}", watcher.directory, request.getPattern(), request.getTable());
+        return watcher.toStatus();
+    }
+
+    @Override
+    public synchronized Optional<WatchStatus> getWatch(String watchId) {
+        return Optional.ofNullable(watchers.get(watchId)).map(Watcher::toStatus);
+    }
+
+    @Override
+    public synchronized List<WatchStatus> listWatches() {
+        List<WatchStatus> statuses = new ArrayList<>();
+        watchers.values().forEach(watcher -> statuses.add(watcher.toStatus()));
+        return statuses;
+    }
+
+    @Override
+    public boolean stopWatch(String watchId) {
+        Watcher watcher;
+        synchronized (this) {
+            watcher = watchers.remove(watchId);
+            if (watcher == null) {
+                return false;
+            }
+            save();
+        }
+        watcher.stop();
+        log.info("Stopped watch {} of {}", watchId, watcher.directory);
+        return true;
+    }
+
+    private void validate(WatchRequest request) {
+        if (request.getConnection() == null) {
+            throw new IllegalArgumentException("Connection is required");
+        }
+        if (request.getTable() == null || request.getTable().isEmpty()) {
+            throw new IllegalArgumentException("Table is required");
+        }
+        if (request.getDirectory() == null || !Files.isDirectory(Paths.get(request.getDirectory()))) {
+            throw new IllegalArgumentException("Not a directory: " + request.getDirectory());
+        }
+        FileConfig.FileType type = request.getFileConfig() != null ? request.getFileConfig().getFileType() : null;
+        if (type == FileConfig.FileType.PARQUET || type == FileConfig.FileType.ARROW) {
+            throw new IllegalArgumentException("Only CSV and JSON files can be watched");
+        }
+        matcher(request);
+    }
+
+    private static PathMatcher matcher(WatchRequest request) {
+        String pattern = request.getPattern() == null || request.getPattern().isEmpty() ? "*" : request.getPattern();
+        try {
+            return FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid file pattern " + pattern, e);
+        }
+    }
+
+    /**
+     * Name of the ledger shared by all watches that load one directory into one table.
+     */
+    private static String ledgerName(WatchRequest request) {
+        ClickHouseConfig config = request.getConnection();
+        String identity = Paths.get(request.getDirectory()).toAbsolutePath().normalize() + "|" + config.getHost() + ":"
+                + config.getPort() + "/" + config.getDatabase() + "/" + request.getTable();
+        return UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8)) + ".ledger";
+    }
+
+    /**
+     * Write the definitions through a temporary sibling and an atomic move, readable by the owner only.
+     * Callers must hold the lock.
+     */
+    private void save() {
+        Map<String, WatchRequest> requests = new LinkedHashMap<>();
+        watchers.forEach((id, watcher) -> requests.put(id, watcher.request));
+        Path path = Paths.get(stateDir, "watches.json");
+        try {
+            StateFiles.write(MAPPER, path, requests);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write watches to " + path, e);
+        }
+    }
+
+    private static boolean isTemporary(String name) {
+        // Writers commonly fill a hidden or suffixed file and rename it when done
+        return name.startsWith(".") || name.endsWith(".tmp") || name.endsWith(".part") || name.endsWith("~");
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    /**
+     * A file seen in the directory and not loaded yet.
+     */
+    private static class Candidate {
+        private long size = -1;
+        private long lastModified = -1;
+        private long stableSince;
+        private int attempts;
+        private long retryAt;
+    }
+
+    private class Watcher implements Runnable {
+        private final String id;
+        private final WatchRequest request;
+        private final Path directory;
+        private final PathMatcher matcher;
+        private final FileConfig fileConfig;
+        private final Instant startedAt = Instant.now();
+        // Only touched by the watcher thread; ordered so files load in the order they appeared
+        private final Map<Path, Candidate> candidates = new LinkedHashMap<>();
+        private WatchService watchService;
+        private Thread thread;
+        private volatile boolean stopping;
+
+        // Guards the ledger and the counters below, so a status never counts files without their batch
+        private final Object statusLock = new Object();
+        private ProcessedFileLedger ledger;
+        private WatchStatus.State state = WatchStatus.State.RUNNING;
+        private String error;
+        private int pending;
+        private long batches;
+        private long rowsWritten;
+        private long bytes;
+        private Instant lastBatchAt;
+        private int lastBatchFiles;
+        private long lastBatchRows;
+        private long lastBatchMs;
+        private double lastBatchRowsPerSecond;
+
+        Watcher(String id, WatchRequest request) {
+            this.id = id;
+            this.request = request;
+            this.directory = Paths.get(request.getDirectory()).toAbsolutePath().normalize();
+            this.matcher = matcher(request);
+            this.fileConfig = request.getFileConfig() != null ? request.getFileConfig() : new FileConfig(",", true, 0, null);
+        }
+
+        void start() {
+            thread = new Thread(this, "watch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Stop watching; a batch being inserted is finished and recorded first.
+         */
+        void stop() {
+            stopping = true;
+            WatchService service = watchService;
+            if (service != null) {
+                try {
+                    service.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close watch service of {}", directory, e);
+                }
+            }
+            try {
+                thread.join(STOP_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                ProcessedFileLedger opened = ProcessedFileLedger.open(Paths.get(stateDir, ledgerName(request)));
+                synchronized (statusLock) {
+                    ledger = opened;
+                }
+                watchService = FileSystems.getDefault().newWatchService();
+                if (stopping) {
+                    watchService.close();
+                    return;
+                }
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                // Files that arrived while nothing was watching
+                scan();
+                while (!stopping) {
+                    WatchKey key = watchService.poll(TICK_MS, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        for (WatchEvent<?> event : key.pollEvents()) {
+                            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                                scan();
+                            } else {
+                                offer(directory.resolve((Path) event.context()));
+                            }
+                        }
+                        if (!key.reset()) {
+                            throw new IOException("Directory " + directory + " is no longer accessible");
+                        }
+                    }
+                    loadReady();
+                }
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                // Stopped
+            } catch (Exception e) {
+                if (!stopping) {
+                    log.error("Watch {} of {} failed", id, directory, e);
+                    synchronized (statusLock) {
+                        error = rootMessage(e);
+                        state = WatchStatus.State.FAILED;
+                    }
+                }
+            }
+        }
+
+        private void scan() throws IOException {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                List<Path> sorted = new ArrayList<>();
+                files.forEach(sorted::add);
+                Collections.sort(sorted);
+                for (Path file : sorted) {
+                    offer(file);
+                }
+            }
+        }
+
+        private void offer(Path file) throws IOException {
+            String name = file.getFileName().toString();
+            if (candidates.containsKey(file) || isTemporary(name) || !matcher.matches(file.getFileName())
+                    || !Files.isRegularFile(file) || ledger.contains(file)) {
+                return;
+            }
+            candidates.put(file, new Candidate());
+            updatePending();
+        }
+
+        /**
+         * Load the files that have settled once the batch is full or its first file has waited the batch delay.
+         * A file that failed before is retried in a batch of its own, so it cannot hold back the others.
+         */
+        private void loadReady() throws IOException {
+            long now = System.nanoTime();
+            long settleNanos = TimeUnit.MILLISECONDS.toNanos(settleTimeMs);
+            List<Path> ready = new ArrayList<>();
+            long readyBytes = 0;
+            long firstReady = Long.MAX_VALUE;
+            Iterator<Map.Entry<Path, Candidate>> iterator = candidates.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Path, Candidate> entry = iterator.next();
+                Candidate candidate = entry.getValue();
+                if (candidate.retryAt > now) {
+                    continue;
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry.getKey(), BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    iterator.remove();
+                    continue;
+                }
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                if (attributes.size() != candidate.size || lastModified != candidate.lastModified) {
+                    // Still being written
+                    candidate.size = attributes.size();
+                    candidate.lastModified = lastModified;
+                    candidate.stableSince = now;
+                    continue;
+                }
+                if (now - candidate.stableSince < settleNanos) {
+                    continue;
+                }
+                if (candidate.attempts > 0) {
+                    if (ready.isEmpty()) {
+                        load(Collections.singletonList(entry.getKey()));
+                        return;
+                    }
+                    continue;
+                }
+                ready.add(entry.getKey());
+                readyBytes += candidate.size;
+                firstReady = Math.min(firstReady, candidate.stableSince + settleNanos);
+                if (ready.size() >= maxBatchFiles || readyBytes >= maxBatchBytes) {
+                    load(ready);
+                    return;
+                }
+            }
+            updatePending();
+            if (!ready.isEmpty() && now - firstReady >= TimeUnit.MILLISECONDS.toNanos(batchDelayMs)) {
+                load(ready);
+            }
+        }
+
+        private void load(List<Path> files) throws IOException {
+            TransferProgress progress = new TransferProgress();
+            progress.start();
+            try {
+                List<String> columns = request.getColumns() != null && !request.getColumns().isEmpty()
+                        ? request.getColumns() : FileBatchSource.readColumns(files.get(0), fileConfig);
+                if (columns.isEmpty()) {
+                    throw new IllegalArgumentException("No columns selected and " + files.get(0) + " has no header");
+                }
+                try (FileBatchSource source = new FileBatchSource(files, columns, fileConfig, progress)) {
+                    importPipeline.run(request.getConnection(), request.getTable(), columns, source, batchSize, null, progress);
+                } finally {
+                    // Before the batch shows in the status; even a failed insert may have added rows
+                    metadataCache.invalidate(request.getConnection(), request.getTable());
+                }
+                progress.finish();
+                synchronized (statusLock) {
+                    ledger.record(files, ProcessedFileLedger.Outcome.INGESTED);
+                    files.forEach(candidates::remove);
+                    pending = candidates.size();
+                    error = null;
+                    batches++;
+                    rowsWritten += progress.getRowsWritten();
+                    bytes += progress.getBytes();
+                    lastBatchAt = Instant.now();
+                    lastBatchFiles = files.size();
+                    lastBatchRows = progress.getRowsWritten();
+                    lastBatchMs = progress.getElapsedMillis();
+                    lastBatchRowsPerSecond = progress.getRowsPerSecond();
+                }
+                log.info("Loaded {} files from {} into {}: {} rows in {} ms", files.size(), directory,
+                        request.getTable(), progress.getRowsWritten(), progress.getElapsedMillis());
+            } catch (Exception e) {
+                progress.finish();
+                String message = rootMessage(e);
+                synchronized (statusLock) {
+                    error = message;
+                }
+                if (progress.getRowsWritten() > 0) {
+                    // Retrying would insert the rows that made it twice
+                    log.error("Loading {} files from {} failed after {} rows were inserted; not retrying them",
+                            files.size(), directory, progress.getRowsWritten(), e);
+                    giveUp(files);
+                } else {
+                    log.warn("Loading {} files from {} failed: {}", files.size(), directory, message);
+                    long now = System.nanoTime();
+                    List<Path> exhausted = new ArrayList<>();
+                    for (Path file : files) {
+                        Candidate candidate = candidates.get(file);
+                        candidate.attempts++;
+                        candidate.retryAt = now + TimeUnit.MILLISECONDS.toNanos(retryDelayMs * candidate.attempts);
+                        if (candidate.attempts >= maxAttempts) {
+                            exhausted.add(file);
+                        }
+                    }
+                    giveUp(exhausted);
+                }
+            } finally {
+                updatePending();
+            }
+        }
+
+        private void giveUp(List<Path> files) throws IOException {
+            if (files.isEmpty()) {
+                return;
+            }
+            synchronized (statusLock) {
+                ledger.record(files, ProcessedFileLedger.Outcome.FAILED);
+                files.forEach(candidates::remove);
+                pending = candidates.size();
+            }
+            log.error("Gave up on {} files of {}: {}", files.size(), directory, files);
+        }
+
+        private void updatePending() {
+            synchronized (statusLock) {
+                pending = candidates.size();
+            }
+        }
+
+        WatchStatus toStatus() {
+            synchronized (statusLock) {
+                return new WatchStatus(id, request, state,
+                        ledger == null ? 0 : ledger.count(ProcessedFileLedger.Outcome.INGESTED),
+                        ledger == null ? 0 : ledger.count(ProcessedFileLedger.Outcome.FAILED),
+                        pending, batches, rowsWritten, bytes, startedAt, lastBatchAt, lastBatchFiles, lastBatchRows,
+                        lastBatchMs, lastBatchRowsPerSecond, error);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.ingestion.service.impl;
+
+import com.ingestion.dto.ExportRequest;
+import com.ingestion.dto.ExportResult;
+import com.ingestion.dto.QueryFilter;
+import com.ingestion.service.ExportService;
+import com.ingestion.util.ArrowFile;
+import com.ingestion.util.ClickHouseHttpClient;
+import com.ingestion.util.ClickHouseUtil;
+import com.ingestion.util.ParquetFile;
+import com.ingestion.util.QueryBuilder;
+import com.ingestion.util.TransferProgress;
+import com.ingestion.util.WatermarkStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportServiceImpl.class);
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+    private static final DateTimeFormatter PART_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'")
+            .withZone(ZoneOffset.UTC);
+    private static final Pattern UNSAFE_FILE_NAME_CHARS = Pattern.compile("[^A-Za-z0-9._-]");
+    // Types whose watermark is compared as a number rather than as a string literal
+    private static final Pattern NUMERIC_TYPE = Pattern.compile("(Nullable\\()?(U?Int|Float|Decimal).*");
+
+    private final WatermarkStore watermarks;
+
+    @Value("${file.export.dir}")
+    private String exportDir;
+
+    public ExportServiceImpl(WatermarkStore watermarks) {
+        this.watermarks = watermarks;
+    }
+
+    @Override
+    public ExportResult exportToFile(ExportRequest request, String jwt, TransferProgress progress) throws IOException {
+        Path exportPath = Paths.get(exportDir);
+        if (!Files.exists(exportPath)) {
+            Files.createDirectories(exportPath);
+        }
+        if (request.getIncremental() != null) {
+            return exportIncremental(request, exportPath, jwt, progress);
+        }
+
+        String fileName = fileNamePart(request.getTable()) + "-" + UUID.randomUUID() + "." + request.getFormat().getExtension();
+        return writeFile(request, resolveExportFile(exportPath, fileName), jwt, progress);
+    }
+
+    /**
+     * Export the rows above the stored watermark and up to the column's current maximum, then store that
+     * maximum. Bounding the range keeps rows inserted while the export runs for the next one, and the
+     * watermark only moves once the part file is complete, so a failed run is repeated in full.
+     */
+    private ExportResult exportIncremental(ExportRequest request, Path exportPath, String jwt,
+                                           TransferProgress progress) throws IOException {
+        ExportRequest.Incremental incremental = request.getIncremental();
+        String column = incremental.getColumn();
+        if (column == null || column.isEmpty()) {
+            throw new IllegalArgumentException("Incremental export needs a watermark column");
+        }
+        if (request.getLimit() != null) {
+            // Rows cut off by the limit would fall below the next watermark and never be exported
+            throw new IllegalArgumentException("Incremental export does not support a limit");
+        }
+        String key = WatermarkStore.key(request.getConnection(), request.getTable(), column, incremental.getName());
+        if (!watermarks.lock(key)) {
+            throw new IllegalStateException("Incremental export " + key + " is already running");
+        }
+        try {
+            WatermarkStore.Watermark previous = watermarks.get(key);
+            List<QueryFilter> filters = new ArrayList<>(request.getFilters() != null ? request.getFilters() : Collections.emptyList());
+            if (previous != null) {
+                filters.add(new QueryFilter(column, QueryFilter.Operator.GT, previous.getValue()));
+            }
+
+            // The inner query names its column after the reference, so the outer one can quote it as is
+            String w = ClickHouseUtil.quoteIdentifier(column);
+            String highQuery = "SELECT count(" + w + ") AS new_rows, toString(max(" + w + ")) AS high, toTypeName(max(" + w
+                    + ")) AS type FROM (" + QueryBuilder.select(request.getTable()).columns(Collections.singletonList(column))
+                            .join(request.getJoins()).where(filters).build() + ")";
+            Map<String, Object> high = ClickHouseUtil.queryData(request.getConnection(), highQuery, jwt).get(0);
+            // count() is a UInt64, which the driver returns as text
+            if (Long.parseLong(String.valueOf(high.get("new_rows"))) == 0) {
+                log.info("No rows of {} above watermark {} of {}", request.getTable(),
+                        previous == null ? null : previous.getValue(), column);
+                progress.start();
+                progress.finish();
+                return new ExportResult(null, request.getFormat(), 0, 0, progress.getElapsedMillis(),
+                        previous == null ? null : String.valueOf(previous.getValue()));
+            }
+            String highText = (String) high.get("high");
+            Object highValue = NUMERIC_TYPE.matcher((String) high.get("type")).matches() ? new BigDecimal(highText) : highText;
+            filters.add(new QueryFilter(column, QueryFilter.Operator.LE, highValue));
+
+            long part = previous == null ? 1 : previous.getPart() + 1;
+            String name = incremental.getName() == null || incremental.getName().isEmpty()
+                    ? fileNamePart(request.getTable())
+                    : fileNamePart(request.getTable()) + "-" + fileNamePart(incremental.getName());
+            String suffix = incremental.getOutput() == ExportRequest.Incremental.Output.ROLLING
+                    ? String.format(".part-%06d", part) : "-" + PART_TIMESTAMP.format(Instant.now());
+            Path filePath = resolveExportFile(exportPath, name + suffix + "." + request.getFormat().getExtension());
+
+            ExportRequest slice = new ExportRequest(request.getConnection(), request.getTable(), request.getColumns(),
+                    request.getFormat(), null, filters, request.getJoins(), null);
+            log.info("Exporting rows of {} with {} in ({}, {}] to {}", request.getTable(), column,
+                    previous == null ? "" : previous.getValue(), highText, filePath.getFileName());
+            ExportResult result = writeFile(slice, filePath, jwt, progress);
+
+            long total = (previous == null ? 0 : previous.getRows()) + result.getRows();
+            watermarks.put(key, new WatermarkStore.Watermark(highValue, part, total, Instant.now().toString()));
+            result.setWatermark(highText);
+            return result;
+        } finally {
+            watermarks.unlock(key);
+        }
+    }
+
+    /**
+     * Replace the characters of a table or watermark name that are not safe in a file name, path
+     * separators included, so the name cannot point outside the export directory.
+     */
+    private static String fileNamePart(String name) {
+        return UNSAFE_FILE_NAME_CHARS.matcher(String.valueOf(name)).replaceAll("_");
+    }
+
+    private static Path resolveExportFile(Path exportPath, String fileName) {
+        Path filePath = exportPath.resolve(fileName);
+        Path base = exportPath.toAbsolutePath().normalize();
+        if (!base.equals(filePath.toAbsolutePath().normalize().getParent())) {
+            throw new IllegalArgumentException("Invalid export file name: " + fileName);
+        }
+        return filePath;
+    }
+
+    private ExportResult writeFile(ExportRequest request, Path filePath, String jwt, TransferProgress progress) throws IOException {
+        // Never overwrite: an existing part file means the stored watermark is behind the files on disk
+        OutputStream file = Files.newOutputStream(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ExportResult result;
+        try (OutputStream out = new BufferedOutputStream(file, OUTPUT_BUFFER_SIZE)) {
+            result = exportToStream(request, out, jwt, progress);
+        } catch (RuntimeException | IOException e) {
+            Files.deleteIfExists(filePath);
+            throw e;
+        }
+        result.setFilePath(filePath.toString());
+        // Columnar output has no lines to count while streaming, but its footer holds the row count
+        if (request.getFormat() == ExportRequest.Format.PARQUET) {
+            result.setRows(ParquetFile.read(filePath).getRowCount());
+        } else if (request.getFormat() == ExportRequest.Format.ARROW) {
+            result.setRows(ArrowFile.read(filePath).getRowCount());
+        }
+        return result;
+    }
+
+    @Override
+    public ExportResult exportToStream(ExportRequest request, OutputStream out, String jwt, TransferProgress progress) {
+        if (request.getIncremental() != null) {
+            throw new IllegalArgumentException("Incremental exports are written to part files and cannot be streamed");
+        }
+        ExportRequest.Format format = request.getFormat();
+        String query = buildQuery(request) + " FORMAT " + format.getClickHouseName();
+        if (request.getJoins() != null && !request.getJoins().isEmpty()) {
+            log.info("Exporting table {} joined with {} tables as {}", request.getTable(), request.getJoins().size(),
+                    format.getClickHouseName());
+        } else {
+            log.info("Exporting table {} as {}", request.getTable(), format.getClickHouseName());
+        }
+
+        progress.start();
+        long bytes = ClickHouseHttpClient.streamQuery(request.getConnection(), query, jwt, out,
+                format.getHeaderLines(), progress);
+        progress.finish();
+
+        log.info("Exported {} bytes ({} rows) from {} in {} ms",
+                bytes, progress.getRowsWritten(), request.getTable(), progress.getElapsedMillis());
+        return new ExportResult(null, format, progress.getRowsWritten(), bytes, progress.getElapsedMillis(), null);
+    }
+
+    @Override
+    public Map<String, WatermarkStore.Watermark> getWatermarks() {
+        return watermarks.getAll();
+    }
+
+    @Override
+    public boolean resetWatermark(String key) {
+        boolean removed = watermarks.remove(key);
+        if (removed) {
+            log.info("Reset export watermark {}", key);
+        }
+        return removed;
+    }
+
+    private String buildQuery(ExportRequest request) {
+        return QueryBuilder.select(request.getTable())
+                .columns(request.getColumns())
+                .join(request.getJoins())
+                .where(request.getFilters())
+                .limit(request.getLimit())
+                .build();
+    }
+}
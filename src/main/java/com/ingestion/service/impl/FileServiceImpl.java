@@ -2,16 +2,28 @@ package com.ingestion.service.impl;
 
 import com.ingestion.dto.FileConfig;
 import com.ingestion.dto.TableSchema;
+import com.ingestion.dto.UploadResult;
 import com.ingestion.service.FileService;
+import com.ingestion.util.FileCompression;
 import com.ingestion.util.FileParser;
+import com.ingestion.util.TeeInputStream;
+import com.ingestion.util.TransferProgress;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -19,6 +31,8 @@ import java.util.UUID;
 @Service
 public class FileServiceImpl implements FileService {
 
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
     @Value("${file.upload.dir}")
     private String uploadDir;
 
@@ -38,23 +52,85 @@ public class FileServiceImpl implements FileService {
 
         // Generate unique filename
         String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        String extension = FileCompression.extension(originalFilename);
         String uniqueFilename = UUID.randomUUID().toString() + extension;
         Path filePath = uploadPath.resolve(uniqueFilename);
 
         // Save the file
         Files.copy(file.getInputStream(), filePath);
 
+        // Index record offsets up front so preview pages can seek instead of re-parsing
+        if (".csv".equalsIgnoreCase(extension)) {
+            boolean hasDelimiter = config != null && config.getDelimiter() != null && !config.getDelimiter().isEmpty();
+            fileParser.indexFile(filePath, hasDelimiter ? config.getDelimiter().charAt(0) : ',');
+        }
+
         return filePath.toString();
     }
 
     @Override
-    public byte[] downloadFile(String filePath) throws IOException {
+    public UploadResult uploadStream(InputStream in, String fileName, FileConfig config) throws IOException {
+        String extension = FileCompression.extension(fileName);
+        Path uploadPath = Paths.get(uploadDir);
+        Files.createDirectories(uploadPath);
+        Path filePath = uploadPath.resolve(UUID.randomUUID().toString() + extension);
+        Path partPath = uploadPath.resolve(filePath.getFileName() + ".part");
+
+        // The parser reads through the tee, so the bytes reach disk and the digest as they are parsed.
+        // The row-offset index is left to the first preview rather than re-reading the file here.
+        TransferProgress progress = new TransferProgress();
+        boolean columnar = FileParser.isColumnar(fileName);
+        try {
+            TeeInputStream tee;
+            TableSchema schema = null;
+            try (OutputStream out = new BufferedOutputStream(
+                    Files.newOutputStream(partPath, StandardOpenOption.CREATE_NEW), WRITE_BUFFER_SIZE)) {
+                tee = new TeeInputStream(in, out);
+                if (!columnar) {
+                    schema = fileParser.parseSchema(tee, fileName, config, progress);
+                }
+                tee.drain();
+            }
+            if (columnar) {
+                // Parquet and Arrow keep their schema in the footer, which is on disk only once drained
+                schema = fileParser.parseColumnarSchema(partPath, fileName, progress);
+            }
+            Files.move(partPath, filePath, StandardCopyOption.ATOMIC_MOVE);
+            return new UploadResult(filePath.toString(), tee.getCount(), tee.getChecksum(),
+                    progress.getRowsRead(), schema);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partPath);
+            throw e;
+        }
+    }
+
+    @Override
+    public Path resolveFile(String filePath) throws IOException {
         Path path = Paths.get(filePath);
-        if (!Files.exists(path)) {
+        if (!Files.isRegularFile(path)) {
             throw new IOException("File not found: " + filePath);
         }
-        return Files.readAllBytes(path);
+        return path;
+    }
+
+    @Override
+    public long transferFile(Path path, long position, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // transferTo hands the copy to the kernel when the target is a file or socket channel,
+            // otherwise it copies through a small direct buffer; either way the heap stays flat
+            WritableByteChannel target = Channels.newChannel(out);
+            long end = position + count;
+            long current = position;
+            while (current < end) {
+                long sent = channel.transferTo(current, end - current, target);
+                if (sent <= 0) {
+                    break;
+                }
+                current += sent;
+            }
+            out.flush();
+            return current - position;
+        }
     }
 
     @Override
@@ -0,0 +1,399 @@
+package com.ingestion.service.impl;
+
+import com.ingestion.dto.FileConfig;
+import com.ingestion.dto.ImportRequest;
+import com.ingestion.dto.ImportResult;
+import com.ingestion.service.ImportService;
+import com.ingestion.util.ArrowFile;
+import com.ingestion.util.ClickHouseHttpClient;
+import com.ingestion.util.ClickHouseUtil;
+import com.ingestion.util.CsvScanner;
+import com.ingestion.util.FileChunker;
+import com.ingestion.util.FileCompression;
+import com.ingestion.util.FileParser;
+import com.ingestion.util.ImportPipeline;
+import com.ingestion.util.JsonRecordReader;
+import com.ingestion.util.MetadataCache;
+import com.ingestion.util.ParallelImporter;
+import com.ingestion.util.ParquetFile;
+import com.ingestion.util.TransferProgress;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Service
+public class ImportServiceImpl implements ImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportServiceImpl.class);
+
+    private final ParallelImporter parallelImporter;
+    private final ImportPipeline importPipeline;
+    private final MetadataCache metadataCache;
+
+    @Value("${import.batch-size:10000}")
+    private int batchSize;
+
+    @Value("${file.upload.dir}")
+    private String uploadDir;
+
+    public ImportServiceImpl(ParallelImporter parallelImporter, ImportPipeline importPipeline,
+                             MetadataCache metadataCache) {
+        this.parallelImporter = parallelImporter;
+        this.importPipeline = importPipeline;
+        this.metadataCache = metadataCache;
+    }
+
+    @Override
+    public ImportResult importFile(ImportRequest request, String jwt, TransferProgress progress) throws IOException {
+        Path path = resolveUpload(request.getFilePath());
+        if (!Files.exists(path)) {
+            throw new IOException("File not found: " + request.getFilePath());
+        }
+
+        FileConfig fileConfig = request.getFileConfig() != null ? request.getFileConfig() : new FileConfig(",", true, 0, null);
+        char delimiter = fileConfig.getDelimiter() == null || fileConfig.getDelimiter().isEmpty()
+                ? ',' : fileConfig.getDelimiter().charAt(0);
+
+        progress.setTotalBytes(Files.size(path));
+        progress.start();
+        log.info("Importing {} into {} using {} mode", path, request.getTable(), request.getMode());
+
+        try {
+            return runImport(request, fileConfig, delimiter, path, jwt, progress);
+        } finally {
+            // Even a failed import may have inserted some batches, so the cached preview is stale either way
+            metadataCache.invalidate(request.getConnection(), request.getTable());
+        }
+    }
+
+    private ImportResult runImport(ImportRequest request, FileConfig fileConfig, char delimiter, Path path,
+                                   String jwt, TransferProgress progress) throws IOException {
+        long rows;
+        if (isColumnar(path, fileConfig)) {
+            rows = importColumnar(request, fileConfig, path, jwt, progress);
+        } else if (request.getMode() == ImportRequest.Mode.BULK) {
+            rows = importBulk(request, fileConfig, delimiter, path, jwt, progress);
+        } else if (isJson(path, fileConfig)) {
+            rows = importJson(request, fileConfig, path, jwt, progress);
+        } else {
+            // Compressed files have no byte offsets to split or seek on, so they are decoded in one stream
+            boolean compressed = FileCompression.isCompressed(path);
+            List<String> header = fileConfig.isHasHeader() ? readHeader(path, delimiter) : null;
+            long dataStart = fileConfig.isHasHeader() && !compressed ? headerLength(path, delimiter) : 0;
+            List<String> columns = request.getColumns() != null && !request.getColumns().isEmpty()
+                    ? request.getColumns() : header;
+            if (columns == null || columns.isEmpty()) {
+                throw new IllegalArgumentException("No columns selected and file has no header");
+            }
+            int[] sourceIndexes = sourceIndexes(columns, header);
+            progress.addBytes(dataStart);
+
+            if (request.getMode() == ImportRequest.Mode.PARALLEL && !compressed) {
+                rows = parallelImporter.importCsv(request.getConnection(), request.getTable(), columns, sourceIndexes,
+                        path, dataStart, delimiter, jwt, progress);
+            } else {
+                if (request.getMode() == ImportRequest.Mode.PARALLEL) {
+                    log.info("{} is compressed, importing sequentially", path);
+                }
+                rows = importSequential(request, columns, sourceIndexes, path, dataStart,
+                        fileConfig.isHasHeader() && compressed, delimiter, jwt, progress);
+            }
+        }
+
+        progress.finish();
+        log.info("Imported {} rows into {} in {} ms", rows, request.getTable(), progress.getElapsedMillis());
+        return new ImportResult(request.getTable(), request.getMode(), rows, progress.getBytes(),
+                progress.getElapsedMillis(), progress.getRowsPerSecond(), progress.getStages());
+    }
+
+    /**
+     * @param skipHeader drop the first record, for compressed files whose header cannot be skipped by offset
+     */
+    private long importSequential(ImportRequest request, List<String> columns, int[] sourceIndexes, Path path,
+                                  long dataStart, boolean skipHeader, char delimiter, String jwt,
+                                  TransferProgress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Progress counts the bytes read from disk, so it stays comparable to the file size
+            CsvScanner scanner;
+            if (FileCompression.isCompressed(path)) {
+                FileChunker.Chunk wholeFile = new FileChunker.Chunk(0, dataStart, channel.size());
+                scanner = new CsvScanner(FileCompression.decompress(FileChunker.open(channel, wholeFile, progress),
+                        FileCompression.detect(path)), delimiter);
+            } else {
+                // Plain text is scanned in place in the mapped file
+                scanner = CsvScanner.open(channel, dataStart, channel.size(), delimiter, progress);
+            }
+            try (CsvScanner records = scanner) {
+                if (skipHeader) {
+                    records.next();
+                }
+                if (importPipeline.isEnabled()) {
+                    return importPipeline.run(request.getConnection(), request.getTable(), columns,
+                            ImportPipeline.csv(records, sourceIndexes), batchSize, jwt, progress);
+                }
+                try (Connection conn = ClickHouseUtil.getConnection(request.getConnection(), jwt)) {
+                    return ClickHouseUtil.insertRecords(conn, request.getTable(), columns, sourceIndexes,
+                            records, batchSize, progress);
+                }
+            } catch (SQLException e) {
+                log.error("Failed to import data", e);
+                throw new RuntimeException("Failed to import data", e);
+            }
+        }
+    }
+
+    /**
+     * Stream JSON records into batched inserts one object at a time. Newline-delimited files
+     * can be split into chunks for parallel mode; a JSON array is always read sequentially.
+     */
+    private long importJson(ImportRequest request, FileConfig fileConfig, Path path, String jwt,
+                            TransferProgress progress) throws IOException {
+        List<String> columns = request.getColumns() != null && !request.getColumns().isEmpty()
+                ? request.getColumns() : readJsonKeys(path);
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("No columns selected and file has no JSON records");
+        }
+
+        if (request.getMode() == ImportRequest.Mode.PARALLEL) {
+            if (FileCompression.isCompressed(path)) {
+                log.info("{} is compressed, importing sequentially", path);
+            } else if (isJsonLines(path, fileConfig)) {
+                return parallelImporter.importJsonLines(request.getConnection(), request.getTable(), columns,
+                        path, jwt, progress);
+            }
+            log.info("{} is a JSON array, importing sequentially", path);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             JsonRecordReader records = new JsonRecordReader(FileCompression.decompress(
+                     FileChunker.open(channel, new FileChunker.Chunk(0, 0, channel.size()), progress),
+                     FileCompression.detect(path)))) {
+            if (importPipeline.isEnabled()) {
+                return importPipeline.run(request.getConnection(), request.getTable(), columns, records::readBatch,
+                        batchSize, jwt, progress);
+            }
+            try (Connection conn = ClickHouseUtil.getConnection(request.getConnection(), jwt)) {
+                return ClickHouseUtil.insertJsonRecords(conn, request.getTable(), columns, records, batchSize, progress);
+            }
+        } catch (SQLException e) {
+            log.error("Failed to import data", e);
+            throw new RuntimeException("Failed to import data", e);
+        }
+    }
+
+    /**
+     * Stream the file unchanged to ClickHouse and let the server parse it in its native input format.
+     */
+    private long importBulk(ImportRequest request, FileConfig fileConfig, char delimiter, Path path,
+                            String jwt, TransferProgress progress) throws IOException {
+        Map<String, String> settings = new LinkedHashMap<>();
+        String format;
+        if (isJson(path, fileConfig)) {
+            format = "JSONEachRow";
+            settings.put("input_format_skip_unknown_fields", "1");
+        } else if (delimiter == '\t') {
+            format = fileConfig.isHasHeader() ? "TabSeparatedWithNames" : "TabSeparated";
+        } else {
+            format = fileConfig.isHasHeader() ? "CSVWithNames" : "CSV";
+            if (delimiter != ',') {
+                settings.put("format_csv_delimiter", String.valueOf(delimiter));
+            }
+        }
+        if (fileConfig.isHasHeader()) {
+            settings.put("input_format_with_names_use_header", "1");
+            settings.put("input_format_skip_unknown_fields", "1");
+        }
+
+        String columnList = request.getColumns() == null || request.getColumns().isEmpty()
+                ? ""
+                : request.getColumns().stream().map(ClickHouseUtil::quoteIdentifier)
+                        .collect(Collectors.joining(", ", " (", ")"));
+        String query = "INSERT INTO " + ClickHouseUtil.quoteTableName(request.getTable()) + columnList + " FORMAT " + format;
+        ImportRequest.Compression compression = request.getCompression() != null
+                ? request.getCompression() : ImportRequest.Compression.NONE;
+        ImportRequest.Compression fileCompression = FileCompression.detect(path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             InputStream in = FileChunker.open(channel, new FileChunker.Chunk(0, 0, channel.size()), progress)) {
+            long written;
+            if (fileCompression != ImportRequest.Compression.NONE) {
+                // Already compressed: pass the bytes through and let ClickHouse decode them
+                if (compression != ImportRequest.Compression.NONE && compression != fileCompression) {
+                    log.info("{} is already {} compressed, sending it as is", path, fileCompression);
+                }
+                written = ClickHouseHttpClient.insertEncodedStream(request.getConnection(), query, in,
+                        fileCompression, settings, jwt);
+            } else {
+                written = ClickHouseHttpClient.insertStream(request.getConnection(), query, in, compression, settings, jwt);
+            }
+            if (written >= 0) {
+                progress.addRowsRead(written);
+                progress.addRowsWritten(written);
+            }
+            return Math.max(written, 0);
+        }
+    }
+
+    /**
+     * Hand Parquet or Arrow bytes to ClickHouse, which decodes them natively whatever the mode. Parquet
+     * is cut down to the selected columns by copying only their column chunks, and is split on row
+     * groups in parallel mode. Arrow is sent whole; ClickHouse reads only the columns named in the insert.
+     */
+    private long importColumnar(ImportRequest request, FileConfig fileConfig, Path path, String jwt,
+                                TransferProgress progress) throws IOException {
+        boolean parquet = isParquet(path, fileConfig);
+        List<String> columns = request.getColumns() != null && !request.getColumns().isEmpty()
+                ? request.getColumns() : null;
+        String columnList = columns == null
+                ? ""
+                : columns.stream().map(ClickHouseUtil::quoteIdentifier).collect(Collectors.joining(", ", " (", ")"));
+        String query = "INSERT INTO " + ClickHouseUtil.quoteTableName(request.getTable()) + columnList
+                + " FORMAT " + (parquet ? "Parquet" : "Arrow");
+
+        if (!parquet) {
+            ArrowFile arrow = ArrowFile.read(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                 InputStream in = FileChunker.open(channel, new FileChunker.Chunk(0, 0, channel.size()), progress)) {
+                long written = ClickHouseHttpClient.insertStream(request.getConnection(), query, in,
+                        ImportRequest.Compression.NONE, null, jwt);
+                long rows = written >= 0 ? written : arrow.getRowCount();
+                progress.addRowsRead(arrow.getRowCount());
+                progress.addRowsWritten(rows);
+                return rows;
+            }
+        }
+
+        ParquetFile file = ParquetFile.read(path);
+        // Only the selected column chunks are read, so progress is measured against their size
+        progress.setTotalBytes(file.getDataBytes(columns));
+        if (request.getMode() == ImportRequest.Mode.PARALLEL) {
+            return parallelImporter.importParquet(request.getConnection(), query, columns, path, file, jwt, progress);
+        }
+        List<Integer> rowGroups = IntStream.range(0, file.getRowGroupCount()).boxed().collect(Collectors.toList());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ParquetFile.Projection projection = file.open(channel, rowGroups, columns, progress);
+            long written = ClickHouseHttpClient.insertStream(request.getConnection(), query, projection.getStream(),
+                    ImportRequest.Compression.NONE, null, jwt);
+            long rows = written >= 0 ? written : projection.getRowCount();
+            progress.addRowsRead(projection.getRowCount());
+            progress.addRowsWritten(rows);
+            return rows;
+        }
+    }
+
+    private boolean isColumnar(Path path, FileConfig fileConfig) {
+        if (fileConfig.getFileType() != null) {
+            return fileConfig.getFileType() == FileConfig.FileType.PARQUET
+                    || fileConfig.getFileType() == FileConfig.FileType.ARROW;
+        }
+        return FileParser.isColumnar(path.getFileName().toString());
+    }
+
+    private boolean isParquet(Path path, FileConfig fileConfig) {
+        if (fileConfig.getFileType() != null) {
+            return fileConfig.getFileType() == FileConfig.FileType.PARQUET;
+        }
+        return FileParser.isParquet(path.getFileName().toString());
+    }
+
+    private boolean isJson(Path path, FileConfig fileConfig) {
+        if (fileConfig.getFileType() != null) {
+            return fileConfig.getFileType() == FileConfig.FileType.JSON
+                    || fileConfig.getFileType() == FileConfig.FileType.NDJSON;
+        }
+        return FileCompression.baseName(path.getFileName().toString()).toLowerCase().endsWith(".json")
+                || isJsonLines(path, fileConfig);
+    }
+
+    private boolean isJsonLines(Path path, FileConfig fileConfig) {
+        if (fileConfig.getFileType() != null) {
+            return fileConfig.getFileType() == FileConfig.FileType.NDJSON;
+        }
+        String name = FileCompression.baseName(path.getFileName().toString()).toLowerCase();
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    private List<String> readJsonKeys(Path path) throws IOException {
+        try (JsonRecordReader records = new JsonRecordReader(FileCompression.open(path))) {
+            return records.hasNext() ? new ArrayList<>(records.next().keySet()) : new ArrayList<>();
+        }
+    }
+
+    private List<String> readHeader(Path path, char delimiter) throws IOException {
+        try (Reader reader = new BufferedReader(new InputStreamReader(FileCompression.open(path), StandardCharsets.UTF_8));
+             CSVParser parser = CSVFormat.DEFAULT.withDelimiter(delimiter).parse(reader)) {
+            Iterator<CSVRecord> records = parser.iterator();
+            List<String> header = new ArrayList<>();
+            if (records.hasNext()) {
+                records.next().forEach(header::add);
+            }
+            return header;
+        }
+    }
+
+    /**
+     * Resolve a path returned by an upload, or a path relative to the upload directory, and reject
+     * any that leaves that directory.
+     */
+    private Path resolveUpload(String filePath) {
+        if (filePath == null || filePath.isEmpty()) {
+            throw new IllegalArgumentException("File path is required");
+        }
+        Path base = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        if (!path.startsWith(base)) {
+            path = base.resolve(filePath).normalize();
+        }
+        if (!path.startsWith(base)) {
+            throw new IllegalArgumentException("File is outside the upload directory: " + filePath);
+        }
+        return path;
+    }
+
+    private long headerLength(Path path, char delimiter) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return FileChunker.nextRecordStart(channel, 0, 0, channel.size(), delimiter, ByteBuffer.allocate(8 * 1024));
+        }
+    }
+
+    private int[] sourceIndexes(List<String> columns, List<String> header) {
+        int[] indexes = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            if (header == null) {
+                indexes[i] = i;
+                continue;
+            }
+            indexes[i] = header.indexOf(columns.get(i));
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("Column not found in file header: " + columns.get(i));
+            }
+        }
+        return indexes;
+    }
+}
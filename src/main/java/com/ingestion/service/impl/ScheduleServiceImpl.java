@@ -0,0 +1,501 @@
+package com.ingestion.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.ExportResult;
+import com.ingestion.dto.Schedule;
+import com.ingestion.dto.ScheduleRun;
+import com.ingestion.dto.ScheduleStatus;
+import com.ingestion.dto.TransferRequest;
+import com.ingestion.service.ExportService;
+import com.ingestion.service.ImportService;
+import com.ingestion.service.ScheduleService;
+import com.ingestion.util.StateFiles;
+import com.ingestion.util.TransferProgress;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs stored transfers at the times of their cron expressions. One timer thread arms the next firing
+ * of each schedule and hands the transfer to a bounded worker pool, so a slow transfer never delays
+ * the timers of the others. A schedule runs at most once at a time: a firing while its previous run is
+ * still active is recorded as skipped instead of being queued behind it. Definitions and the recent
+ * runs of each schedule are kept in a local JSON file and re-armed on startup.
+ * <p>
+ * Scheduled transfers have no request to take a token from, so they connect with the credentials of
+ * their connection settings alone.
+ */
+@Service
+public class ScheduleServiceImpl implements ScheduleService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduleServiceImpl.class);
+    private static final ObjectMapper MAPPER = StateFiles.mapper();
+
+    private final ImportService importService;
+    private final ExportService exportService;
+
+    @Value("${schedule.workers:2}")
+    private int workers = 2;
+
+    @Value("${schedule.queue-capacity:8}")
+    private int queueCapacity = 8;
+
+    @Value("${schedule.history-size:50}")
+    private int historySize = 50;
+
+    @Value("${schedule.state-file:${user.home}/.ingestion-tool/schedules.json}")
+    private String stateFile;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService timer;
+
+    // Guarded by this, like the runs they hold
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public ScheduleServiceImpl(ImportService importService, ExportService exportService) {
+        this.importService = importService;
+        this.exportService = exportService;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "schedule-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "schedule-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        load();
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Override
+    public synchronized ScheduleStatus createSchedule(Schedule schedule) {
+        Entry entry = new Entry(define(UUID.randomUUID().toString(), schedule, Instant.now()));
+        entries.put(entry.schedule.getId(), entry);
+        try {
+            save();
+        } catch (UncheckedIOException e) {
+            entries.remove(entry.schedule.getId());
+            throw e;
+        }
+        arm(entry, Instant.now());
+        log.info("Created schedule {} ({}) running {} at '{}'", entry.schedule.getId(), entry.schedule.getName(),
+                entry.schedule.getTransfer().getType(), entry.schedule.getCron());
+        return entry.toStatus();
+    }
+
+    @Override
+    public synchronized Optional<ScheduleStatus> updateSchedule(String scheduleId, Schedule schedule) {
+        Entry entry = entries.get(scheduleId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        Schedule updated = define(scheduleId, schedule, entry.schedule.getCreatedAt());
+        Schedule previous = entry.schedule;
+        keepPassword(connection(previous.getTransfer()), connection(updated.getTransfer()));
+        entry.setSchedule(updated);
+        try {
+            save();
+        } catch (UncheckedIOException e) {
+            entry.setSchedule(previous);
+            throw e;
+        }
+        disarm(entry);
+        arm(entry, Instant.now());
+        log.info("Updated schedule {} to '{}'", scheduleId, updated.getCron());
+        return Optional.of(entry.toStatus());
+    }
+
+    @Override
+    public synchronized boolean deleteSchedule(String scheduleId) {
+        Entry entry = entries.remove(scheduleId);
+        if (entry == null) {
+            return false;
+        }
+        disarm(entry);
+        save();
+        log.info("Deleted schedule {}", scheduleId);
+        return true;
+    }
+
+    @Override
+    public synchronized Optional<ScheduleStatus> getSchedule(String scheduleId) {
+        return Optional.ofNullable(entries.get(scheduleId)).map(Entry::toStatus);
+    }
+
+    @Override
+    public synchronized List<ScheduleStatus> listSchedules() {
+        List<ScheduleStatus> statuses = new ArrayList<>();
+        entries.values().forEach(entry -> statuses.add(entry.toStatus()));
+        return statuses;
+    }
+
+    @Override
+    public synchronized Optional<List<ScheduleRun>> getRuns(String scheduleId) {
+        Entry entry = entries.get(scheduleId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        List<ScheduleRun> runs = new ArrayList<>();
+        entry.runs.descendingIterator().forEachRemaining(run -> runs.add(copy(run)));
+        return Optional.of(runs);
+    }
+
+    @Override
+    public Optional<ScheduleRun> runNow(String scheduleId) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(scheduleId);
+        }
+        return Optional.ofNullable(entry).map(found -> trigger(found, Instant.now()));
+    }
+
+    /**
+     * Validate a definition and normalize it for storage.
+     */
+    private Schedule define(String id, Schedule schedule, Instant createdAt) {
+        if (schedule.getCron() == null || schedule.getCron().trim().isEmpty()) {
+            throw new IllegalArgumentException("Cron expression is required");
+        }
+        parseCron(schedule.getCron());
+        zone(schedule.getZone());
+        TransferRequest transfer = schedule.getTransfer();
+        if (transfer == null || transfer.getType() == null) {
+            throw new IllegalArgumentException("Transfer type is required");
+        }
+        if (transfer.getType() == TransferRequest.Type.FILE_TO_CLICKHOUSE && transfer.getImportRequest() == null) {
+            throw new IllegalArgumentException("importRequest is required for " + transfer.getType());
+        }
+        if (transfer.getType() == TransferRequest.Type.CLICKHOUSE_TO_FILE && transfer.getExportRequest() == null) {
+            throw new IllegalArgumentException("exportRequest is required for " + transfer.getType());
+        }
+        return new Schedule(id, schedule.getName(), schedule.getCron().trim(), schedule.getZone(), schedule.isEnabled(),
+                transfer, createdAt);
+    }
+
+    /**
+     * Parse a Spring cron expression, reading a five-field Unix expression as one firing at second 0.
+     */
+    static CronExpression parseCron(String cron) {
+        String expression = cron.trim();
+        if (!expression.startsWith("@") && expression.split("\\s+").length == 5) {
+            expression = "0 " + expression;
+        }
+        return CronExpression.parse(expression);
+    }
+
+    private static ZoneId zone(String zone) {
+        try {
+            return zone == null || zone.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(zone);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Unknown time zone " + zone, e);
+        }
+    }
+
+    /**
+     * Arm the timer of an enabled schedule for its first firing after the given time.
+     * Callers must hold the lock.
+     */
+    private void arm(Entry entry, Instant after) {
+        entry.nextRunAt = null;
+        if (!entry.schedule.isEnabled()) {
+            return;
+        }
+        ZonedDateTime next = parseCron(entry.schedule.getCron()).next(after.atZone(zone(entry.schedule.getZone())));
+        if (next == null) {
+            log.info("Schedule {} has no further firing times", entry.schedule.getId());
+            return;
+        }
+        Instant at = next.toInstant();
+        entry.nextRunAt = at;
+        long delay = Math.max(0, at.toEpochMilli() - System.currentTimeMillis());
+        entry.timer = timer.schedule(() -> fire(entry, at), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void disarm(Entry entry) {
+        if (entry.timer != null) {
+            entry.timer.cancel(false);
+            entry.timer = null;
+        }
+        entry.nextRunAt = null;
+    }
+
+    private void fire(Entry entry, Instant scheduledAt) {
+        synchronized (this) {
+            if (entries.get(entry.schedule.getId()) != entry || !scheduledAt.equals(entry.nextRunAt)) {
+                // Deleted or re-armed since this timer was set
+                return;
+            }
+            // The timer may fire a little before the wall clock reaches the firing time
+            Instant now = Instant.now();
+            arm(entry, now.isAfter(scheduledAt) ? now : scheduledAt);
+        }
+        trigger(entry, scheduledAt);
+    }
+
+    private ScheduleRun trigger(Entry entry, Instant scheduledAt) {
+        ScheduleRun run = new ScheduleRun();
+        run.setRunId(UUID.randomUUID().toString());
+        run.setScheduleId(entry.schedule.getId());
+        run.setScheduledAt(scheduledAt);
+
+        Schedule schedule;
+        synchronized (this) {
+            schedule = entry.schedule;
+            if (entry.running) {
+                run.setState(ScheduleRun.State.SKIPPED);
+                run.setError("Previous run is still active");
+                log.warn("Skipped run of schedule {}: previous run is still active", schedule.getId());
+                record(entry, run);
+                return copy(run);
+            }
+            entry.running = true;
+            run.setState(ScheduleRun.State.QUEUED);
+            record(entry, run);
+        }
+        try {
+            executor.execute(() -> execute(entry, schedule, run));
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                entry.running = false;
+                run.setState(ScheduleRun.State.SKIPPED);
+                run.setError("No schedule worker is free");
+                run.setFinishedAt(Instant.now());
+                saveQuietly();
+            }
+            log.warn("Skipped run of schedule {}: no schedule worker is free", schedule.getId());
+        }
+        synchronized (this) {
+            return copy(run);
+        }
+    }
+
+    private void execute(Entry entry, Schedule schedule, ScheduleRun run) {
+        TransferProgress progress = new TransferProgress();
+        synchronized (this) {
+            run.setState(ScheduleRun.State.RUNNING);
+            run.setStartedAt(Instant.now());
+        }
+        progress.start();
+        ScheduleRun.State state = ScheduleRun.State.FAILED;
+        String filePath = null;
+        // Kept only if an Error escapes the transfer, so the run still ends and the schedule is freed
+        String error = "Aborted by an unexpected error";
+        try {
+            TransferRequest transfer = schedule.getTransfer();
+            if (transfer.getType() == TransferRequest.Type.FILE_TO_CLICKHOUSE) {
+                importService.importFile(transfer.getImportRequest(), null, progress);
+            } else {
+                ExportResult result = exportService.exportToFile(transfer.getExportRequest(), null, progress);
+                filePath = result.getFilePath();
+            }
+            state = ScheduleRun.State.COMPLETED;
+            error = null;
+        } catch (Exception e) {
+            log.error("Run {} of schedule {} failed", run.getRunId(), schedule.getId(), e);
+            error = rootMessage(e);
+        } finally {
+            progress.finish();
+            synchronized (this) {
+                run.setState(state);
+                run.setFinishedAt(Instant.now());
+                run.setRowsRead(progress.getRowsRead());
+                run.setRowsWritten(progress.getRowsWritten());
+                run.setBytes(progress.getBytes());
+                run.setElapsedMs(progress.getElapsedMillis());
+                run.setRowsPerSecond(progress.getRowsPerSecond());
+                run.setBytesPerSecond(progress.getBytesPerSecond());
+                run.setFilePath(filePath);
+                run.setError(error);
+                entry.running = false;
+                if (entries.get(schedule.getId()) == entry) {
+                    saveQuietly();
+                }
+            }
+        }
+        log.info("Run {} of schedule {} {}: {} rows in {} ms ({} rows/s)", run.getRunId(), schedule.getId(),
+                state, progress.getRowsWritten(), progress.getElapsedMillis(), Math.round(progress.getRowsPerSecond()));
+    }
+
+    /**
+     * Add a run to the history of its schedule, dropping the oldest beyond the history size.
+     * Callers must hold the lock.
+     */
+    private void record(Entry entry, ScheduleRun run) {
+        entry.runs.addLast(run);
+        while (entry.runs.size() > historySize) {
+            entry.runs.removeFirst();
+        }
+        saveQuietly();
+    }
+
+    private void load() {
+        Path path = Paths.get(stateFile);
+        if (!Files.exists(path)) {
+            return;
+        }
+        State state;
+        try {
+            state = MAPPER.readValue(path.toFile(), State.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read schedules from " + path, e);
+        }
+        synchronized (this) {
+            for (Schedule schedule : state.getSchedules()) {
+                Entry entry = new Entry(schedule);
+                for (ScheduleRun run : state.getRuns().getOrDefault(schedule.getId(), new ArrayList<>())) {
+                    if (!run.getState().isFinished()) {
+                        // Cut short by the previous shutdown
+                        run.setState(ScheduleRun.State.FAILED);
+                        run.setError("Interrupted by shutdown");
+                    }
+                    entry.runs.addLast(run);
+                }
+                entries.put(schedule.getId(), entry);
+                arm(entry, Instant.now());
+            }
+        }
+        log.info("Loaded {} schedules from {}", entries.size(), path);
+    }
+
+    /**
+     * Write definitions and histories through a temporary sibling and an atomic move, readable by the
+     * owner only. Callers must hold the lock.
+     */
+    private void save() {
+        State state = new State();
+        for (Entry entry : entries.values()) {
+            state.getSchedules().add(entry.schedule);
+            state.getRuns().put(entry.schedule.getId(), new ArrayList<>(entry.runs));
+        }
+        Path path = Paths.get(stateFile);
+        try {
+            StateFiles.write(MAPPER, path, state);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write schedules to " + path, e);
+        }
+    }
+
+    /**
+     * Save from a run, where a failed write must not stop the schedule; the next save catches up.
+     */
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (UncheckedIOException e) {
+            log.error("Failed to record schedule runs", e);
+        }
+    }
+
+    /**
+     * Responses leave passwords out, so a definition read back and sent again has none; it keeps the
+     * stored password while it still connects to the same server as the same user.
+     */
+    private static void keepPassword(ClickHouseConfig previous, ClickHouseConfig updated) {
+        if (previous == null || updated == null || updated.getPassword() != null) {
+            return;
+        }
+        if (Objects.equals(previous.getHost(), updated.getHost()) && previous.getPort() == updated.getPort()
+                && Objects.equals(previous.getUsername(), updated.getUsername())) {
+            updated.setPassword(previous.getPassword());
+        }
+    }
+
+    private static ClickHouseConfig connection(TransferRequest transfer) {
+        if (transfer.getType() == TransferRequest.Type.FILE_TO_CLICKHOUSE) {
+            return transfer.getImportRequest().getConnection();
+        }
+        return transfer.getExportRequest().getConnection();
+    }
+
+    private static ScheduleRun copy(ScheduleRun run) {
+        return new ScheduleRun(run.getRunId(), run.getScheduleId(), run.getState(), run.getScheduledAt(),
+                run.getStartedAt(), run.getFinishedAt(), run.getRowsRead(), run.getRowsWritten(), run.getBytes(),
+                run.getElapsedMs(), run.getRowsPerSecond(), run.getBytesPerSecond(), run.getFilePath(), run.getError());
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    /**
+     * The persisted form of all schedules.
+     */
+    @Data
+    @NoArgsConstructor
+    static class State {
+        private List<Schedule> schedules = new ArrayList<>();
+        private Map<String, List<ScheduleRun>> runs = new LinkedHashMap<>();
+    }
+
+    private static class Entry {
+        private Schedule schedule;
+        private final Deque<ScheduleRun> runs = new ArrayDeque<>();
+        private boolean running;
+        private Instant nextRunAt;
+        private ScheduledFuture<?> timer;
+
+        Entry(Schedule schedule) {
+            this.schedule = schedule;
+        }
+
+        void setSchedule(Schedule schedule) {
+            this.schedule = schedule;
+        }
+
+        ScheduleStatus toStatus() {
+            ScheduleRun last = runs.peekLast();
+            return new ScheduleStatus(schedule, nextRunAt, running, last == null ? null : copy(last));
+        }
+    }
+}
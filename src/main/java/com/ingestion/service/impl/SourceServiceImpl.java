@@ -2,11 +2,15 @@ package com.ingestion.service.impl;
 
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.multipart.MultipartFile;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ingestion.util.ClickHouseUtil;
+import com.ingestion.util.MetadataCache;
 import com.ingestion.dto.ClickHouseConfig;
 import com.ingestion.dto.FileConfig;
+import com.ingestion.dto.PoolStats;
+import com.ingestion.dto.QueryRequest;
 import com.ingestion.dto.TableSchema;
 import com.ingestion.dto.TableSchema.Column;
 import com.ingestion.service.SourceService;
@@ -27,6 +31,12 @@ public class SourceServiceImpl implements SourceService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Value("${query.max-rows:10000}")
+    private long maxRows = 10000;
+
     @Override
     public boolean testClickHouseConnection(ClickHouseConfig config, String jwt) {
         log.info("Testing ClickHouse connection to: {}", config.getHost());
@@ -36,11 +46,13 @@ public class SourceServiceImpl implements SourceService {
     @Override
     public TableSchema getClickHouseTables(ClickHouseConfig config, String jwt) {
         log.info("Fetching tables from ClickHouse database: {}", config.getDatabase());
-        List<String> tables = ClickHouseUtil.getTables(config, jwt);
+        List<String> tables = metadataCache.getTables(config, jwt, () -> ClickHouseUtil.getTables(config, jwt));
         
         if (!tables.isEmpty()) {
             // Get schema for the first table as an example
-            return ClickHouseUtil.getTableSchema(config, tables.get(0), jwt);
+            String table = tables.get(0);
+            return metadataCache.getTableSchema(config, table, jwt,
+                    () -> ClickHouseUtil.getTableSchema(config, table, jwt));
         }
         
         List<Column> columns = new ArrayList<>();
@@ -51,6 +63,13 @@ public class SourceServiceImpl implements SourceService {
         return schema;
     }
 
+    @Override
+    public void invalidateClickHouseMetadata(ClickHouseConfig config, String table) {
+        log.info("Invalidating cached metadata of {} in ClickHouse database: {}",
+                table == null ? "all tables" : table, config.getDatabase());
+        metadataCache.invalidate(config, table);
+    }
+
     @Override
     public TableSchema processFile(MultipartFile file, String configJson) {
         try {
@@ -83,4 +102,21 @@ public class SourceServiceImpl implements SourceService {
         schema.setPreview(preview);
         return schema;
     }
+
+    @Override
+    public TableSchema queryClickHouseTable(QueryRequest request, String jwt) {
+        List<Column> selected = new ArrayList<>();
+        if (request.getColumns() != null) {
+            request.getColumns().stream().filter(Column::isSelected).forEach(selected::add);
+        }
+        log.info("Querying {} of {} columns from ClickHouse table: {}",
+                selected.isEmpty() ? "all" : selected.size(),
+                request.getColumns() == null ? 0 : request.getColumns().size(), request.getTable());
+        return new TableSchema(selected, ClickHouseUtil.queryTable(request, maxRows, jwt));
+    }
+
+    @Override
+    public List<PoolStats> getConnectionPoolStats() {
+        return ClickHouseUtil.getPoolStats();
+    }
 }
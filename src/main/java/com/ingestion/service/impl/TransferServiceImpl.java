@@ -0,0 +1,303 @@
+package com.ingestion.service.impl;
+
+import com.ingestion.dto.ExportResult;
+import com.ingestion.dto.TransferRequest;
+import com.ingestion.dto.TransferStatus;
+import com.ingestion.dto.TransferStatus.State;
+import com.ingestion.service.ExportService;
+import com.ingestion.service.ImportService;
+import com.ingestion.service.TransferService;
+import com.ingestion.util.TransferProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class TransferServiceImpl implements TransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferServiceImpl.class);
+
+    private static final String CANCELLED_MESSAGE = "Cancelled by user";
+
+    private final ImportService importService;
+    private final ExportService exportService;
+
+    @Value("${transfer.workers:4}")
+    private int workers;
+
+    @Value("${transfer.queue-capacity:16}")
+    private int queueCapacity;
+
+    @Value("${transfer.max-finished-jobs:100}")
+    private int maxFinishedJobs;
+
+    @Value("${transfer.finished-job-ttl:3600000}")
+    private long finishedJobTtl;
+
+    private ThreadPoolExecutor executor;
+
+    // Insertion ordered so the oldest finished jobs are evicted first
+    private final Map<String, TransferJob> jobs = new LinkedHashMap<>();
+
+    public TransferServiceImpl(ImportService importService, ExportService exportService) {
+        this.importService = importService;
+        this.exportService = exportService;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "transfer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public TransferStatus startTransfer(TransferRequest request, String jwt) {
+        validate(request);
+        TransferJob job = new TransferJob(UUID.randomUUID().toString(), request.getType());
+
+        synchronized (jobs) {
+            evictFinishedJobs();
+            jobs.put(job.id, job);
+        }
+        try {
+            job.future = executor.submit(() -> run(job, request, jwt));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(job.id);
+            }
+            throw e;
+        }
+
+        log.info("Queued {} transfer {}", request.getType(), job.id);
+        return job.toStatus();
+    }
+
+    @Override
+    public Optional<TransferStatus> getStatus(String transferId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(transferId)).map(TransferJob::toStatus);
+        }
+    }
+
+    @Override
+    public List<TransferStatus> listTransfers() {
+        List<TransferStatus> statuses = new ArrayList<>();
+        synchronized (jobs) {
+            evictFinishedJobs();
+            jobs.values().forEach(job -> statuses.add(job.toStatus()));
+        }
+        return statuses;
+    }
+
+    @Override
+    public boolean cancelTransfer(String transferId) {
+        TransferJob job;
+        synchronized (jobs) {
+            job = jobs.get(transferId);
+        }
+        if (job == null || !job.cancel()) {
+            return false;
+        }
+        if (job.future != null) {
+            // Interrupts waits on queues and locks; the work itself stops at its next progress update
+            job.future.cancel(true);
+        }
+        log.info("Cancelled transfer {}", transferId);
+        return true;
+    }
+
+    private void run(TransferJob job, TransferRequest request, String jwt) {
+        if (!job.markRunning()) {
+            return;
+        }
+        State state = State.FAILED;
+        // Kept only if an Error escapes the transfer, so the job still ends
+        String error = "Aborted by an unexpected error";
+        try {
+            if (request.getType() == TransferRequest.Type.FILE_TO_CLICKHOUSE) {
+                importService.importFile(request.getImportRequest(), jwt, job.progress);
+            } else {
+                ExportResult result = exportService.exportToFile(request.getExportRequest(), jwt, job.progress);
+                job.filePath = result.getFilePath();
+            }
+            state = State.COMPLETED;
+            error = null;
+            log.info("Transfer {} completed in {} ms", job.id, job.progress.getElapsedMillis());
+        } catch (Exception e) {
+            if (job.progress.isCancelled()) {
+                state = State.CANCELLED;
+                error = CANCELLED_MESSAGE;
+                log.info("Transfer {} stopped after {} rows", job.id, job.progress.getRowsWritten());
+            } else {
+                log.error("Transfer {} failed", job.id, e);
+                error = rootMessage(e);
+            }
+        } finally {
+            job.finish(state, error);
+        }
+    }
+
+    private void validate(TransferRequest request) {
+        if (request.getType() == null) {
+            throw new IllegalArgumentException("Transfer type is required");
+        }
+        if (request.getType() == TransferRequest.Type.FILE_TO_CLICKHOUSE && request.getImportRequest() == null) {
+            throw new IllegalArgumentException("importRequest is required for " + request.getType());
+        }
+        if (request.getType() == TransferRequest.Type.CLICKHOUSE_TO_FILE && request.getExportRequest() == null) {
+            throw new IllegalArgumentException("exportRequest is required for " + request.getType());
+        }
+    }
+
+    /**
+     * Drop finished jobs older than the TTL, then the oldest finished jobs beyond the size limit.
+     * Callers must hold the jobs lock.
+     */
+    private void evictFinishedJobs() {
+        Instant expiry = Instant.now().minusMillis(finishedJobTtl);
+        int finished = 0;
+        for (TransferJob job : jobs.values()) {
+            if (job.state.isFinished()) {
+                finished++;
+            }
+        }
+        Iterator<TransferJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            TransferJob job = iterator.next();
+            if (!job.state.isFinished()) {
+                continue;
+            }
+            if (finished > maxFinishedJobs || job.finishedAt.isBefore(expiry)) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    private static class TransferJob {
+        private final String id;
+        private final TransferRequest.Type type;
+        private final TransferProgress progress = new TransferProgress();
+        private final Instant submittedAt = Instant.now();
+        private volatile State state = State.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String filePath;
+        private volatile String error;
+        private volatile Future<?> future;
+
+        TransferJob(String id, TransferRequest.Type type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        synchronized boolean markRunning() {
+            if (state != State.QUEUED) {
+                return false;
+            }
+            state = State.RUNNING;
+            startedAt = Instant.now();
+            progress.start();
+            return true;
+        }
+
+        /**
+         * Cancel the job: a queued job ends at once, a running one stays RUNNING until its work has stopped.
+         *
+         * @return false if the job had already finished
+         */
+        synchronized boolean cancel() {
+            if (state.isFinished()) {
+                return false;
+            }
+            progress.cancel();
+            if (state == State.QUEUED) {
+                finish(State.CANCELLED, CANCELLED_MESSAGE);
+            }
+            return true;
+        }
+
+        synchronized void finish(State finalState, String message) {
+            if (state.isFinished()) {
+                return;
+            }
+            progress.finish();
+            error = message;
+            finishedAt = Instant.now();
+            state = finalState;
+        }
+
+        TransferStatus toStatus() {
+            TransferStatus status = new TransferStatus();
+            status.setTransferId(id);
+            status.setType(type);
+            status.setState(state);
+            status.setRowsRead(progress.getRowsRead());
+            status.setRowsWritten(progress.getRowsWritten());
+            status.setBytes(progress.getBytes());
+            status.setTotalBytes(progress.getTotalBytes());
+            status.setFilePath(filePath);
+            status.setError(error);
+            status.setSubmittedAt(submittedAt);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            status.setStages(progress.getStages());
+
+            if (startedAt != null) {
+                status.setRowsPerSecond(progress.getRowsPerSecond());
+                status.setBytesPerSecond(progress.getBytesPerSecond());
+            }
+
+            long total = progress.getTotalBytes();
+            if (state == State.COMPLETED) {
+                status.setProgress(100);
+                status.setEtaSeconds(0);
+            } else if (total > 0) {
+                status.setProgress(Math.min(100.0, progress.getBytes() * 100.0 / total));
+                double bytesPerSecond = progress.getBytesPerSecond();
+                status.setEtaSeconds(state == State.RUNNING && bytesPerSecond > 0
+                        ? (long) Math.ceil((total - progress.getBytes()) / bytesPerSecond) : -1);
+            } else {
+                status.setProgress(-1);
+                status.setEtaSeconds(-1);
+            }
+            return status;
+        }
+    }
+}
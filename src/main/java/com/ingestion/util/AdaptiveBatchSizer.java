@@ -0,0 +1,123 @@
+package com.ingestion.util;
+
+import com.ingestion.util.batch.ColumnVector;
+import com.ingestion.util.batch.RowBatch;
+
+import java.sql.SQLException;
+
+/**
+ * Chooses the row count of the next insert batch of one import from what the previous inserts cost.
+ * ClickHouse writes every insert as a new part, so batches should be as large as the byte and
+ * latency targets allow: the next size is the smaller of the rows that fit in the target bytes at the
+ * measured row width and the rows the measured insert rate gets through in the target latency. Batches
+ * grow at most twofold per insert but shrink at once when inserts slow down. A server that reports too
+ * many parts gets larger batches and a retry; one out of memory gets smaller batches.
+ */
+public class AdaptiveBatchSizer {
+    static final int TOO_MANY_PARTS = 252;
+    static final int MEMORY_LIMIT_EXCEEDED = 241;
+    private static final int SAMPLE_ROWS = 64;
+    private static final double SMOOTHING = 0.3;
+
+    private final int minRows;
+    private final int maxRows;
+    private final long targetBytes;
+    private final long targetLatencyNanos;
+    private double rowBytes = -1;
+    private double rowNanos = -1;
+    private int rows;
+
+    /**
+     * @param targetBytes approximate text size of a batch, or 0 for no byte target
+     * @param targetLatencyMs duration of one insert to aim for, or 0 for no latency target
+     */
+    public AdaptiveBatchSizer(int initialRows, int minRows, int maxRows, long targetBytes, long targetLatencyMs) {
+        this.minRows = Math.max(1, Math.min(minRows, maxRows));
+        this.maxRows = Math.max(1, maxRows);
+        this.targetBytes = targetBytes;
+        this.targetLatencyNanos = targetLatencyMs * 1_000_000;
+        this.rows = clamp(initialRows);
+    }
+
+    public synchronized int nextRows() {
+        return rows;
+    }
+
+    /**
+     * Account for an insert that succeeded.
+     */
+    public synchronized void recordInsert(int batchRows, long batchBytes, long latencyNanos) {
+        if (batchRows <= 0) {
+            return;
+        }
+        rowBytes = smooth(rowBytes, (double) batchBytes / batchRows);
+        rowNanos = smooth(rowNanos, (double) latencyNanos / batchRows);
+        double target = maxRows;
+        if (targetBytes > 0) {
+            target = Math.min(target, targetBytes / Math.max(1.0, rowBytes));
+        }
+        if (targetLatencyNanos > 0) {
+            target = Math.min(target, targetLatencyNanos / Math.max(1.0, rowNanos));
+        }
+        rows = clamp((long) Math.min(target, rows * 2.0));
+    }
+
+    /**
+     * Account for an insert the server rejected.
+     *
+     * @return whether the same batch is worth retrying
+     */
+    public synchronized boolean recordFailure(Throwable error) {
+        switch (errorCode(error)) {
+            case TOO_MANY_PARTS:
+                // Merges are behind: fewer, larger inserts let them catch up
+                rows = clamp(rows * 2L);
+                return true;
+            case MEMORY_LIMIT_EXCEEDED:
+                rows = clamp(rows / 2);
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Approximate text size of a batch, from a sample of its rows.
+     */
+    public static long estimateBytes(RowBatch batch) {
+        int size = batch.size();
+        if (size == 0) {
+            return 0;
+        }
+        int step = Math.max(1, size / SAMPLE_ROWS);
+        int columnCount = batch.getSchema().size();
+        long bytes = 0;
+        int sampled = 0;
+        for (int row = 0; row < size; row += step) {
+            for (int i = 0; i < columnCount; i++) {
+                ColumnVector column = batch.column(i);
+                // One byte per value stands in for the separator
+                bytes += 1 + (column.isNull(row) ? 0 : column.getText(row).length());
+            }
+            sampled++;
+        }
+        return bytes * size / sampled;
+    }
+
+    private int clamp(long value) {
+        return (int) Math.max(minRows, Math.min(maxRows, value));
+    }
+
+    private static double smooth(double average, double value) {
+        return average < 0 ? value : average + SMOOTHING * (value - average);
+    }
+
+    private static int errorCode(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && ((SQLException) cause).getErrorCode() != 0) {
+                return ((SQLException) cause).getErrorCode();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,197 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.TableSchema;
+import org.apache.arrow.flatbuf.Block;
+import org.apache.arrow.flatbuf.Decimal;
+import org.apache.arrow.flatbuf.DictionaryEncoding;
+import org.apache.arrow.flatbuf.Field;
+import org.apache.arrow.flatbuf.FixedSizeBinary;
+import org.apache.arrow.flatbuf.FloatingPoint;
+import org.apache.arrow.flatbuf.Footer;
+import org.apache.arrow.flatbuf.Int;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.Precision;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.flatbuf.Schema;
+import org.apache.arrow.flatbuf.TimeUnit;
+import org.apache.arrow.flatbuf.Timestamp;
+import org.apache.arrow.flatbuf.Type;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Footer-level access to an Arrow IPC file (also written as Feather v2): its schema and the row count
+ * of its record batches. Values are never decoded here; ClickHouse reads them with {@code FORMAT Arrow}.
+ */
+public class ArrowFile {
+    private static final byte[] MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+    private static final int TRAILER_LENGTH = 4 + 6;
+    private static final int CONTINUATION = 0xFFFFFFFF;
+
+    private final Schema schema;
+    private final long rowCount;
+    private final int batchCount;
+
+    private ArrowFile(Schema schema, long rowCount, int batchCount) {
+        this.schema = schema;
+        this.rowCount = rowCount;
+        this.batchCount = batchCount;
+    }
+
+    public static ArrowFile read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    public static ArrowFile read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < 8 + TRAILER_LENGTH) {
+            throw new IllegalArgumentException("Not an Arrow file: too short");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, trailer, size - TRAILER_LENGTH);
+        ByteBuffer head = ByteBuffer.allocate(MAGIC.length);
+        readFully(channel, head, 0);
+        byte[] tail = Arrays.copyOfRange(trailer.array(), 4, TRAILER_LENGTH);
+        if (!Arrays.equals(MAGIC, head.array()) || !Arrays.equals(MAGIC, tail)) {
+            throw new IllegalArgumentException("Not an Arrow IPC file: magic bytes do not match");
+        }
+
+        int footerLength = trailer.getInt(0);
+        long footerStart = size - TRAILER_LENGTH - footerLength;
+        if (footerLength <= 0 || footerStart < 8) {
+            throw new IllegalArgumentException("Corrupt Arrow footer length: " + footerLength);
+        }
+        ByteBuffer footerBytes = ByteBuffer.allocate(footerLength).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, footerBytes, footerStart);
+        Footer footer = Footer.getRootAsFooter((ByteBuffer) footerBytes.flip());
+
+        // The footer lists the record batches but not their lengths; each batch header holds those
+        long rows = 0;
+        Block block = new Block();
+        for (int i = 0; i < footer.recordBatchesLength(); i++) {
+            footer.recordBatches(block, i);
+            rows += batchLength(channel, block);
+        }
+        return new ArrowFile(footer.schema(), rows, footer.recordBatchesLength());
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getRecordBatchCount() {
+        return batchCount;
+    }
+
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>(schema.fieldsLength());
+        for (int i = 0; i < schema.fieldsLength(); i++) {
+            names.add(schema.fields(i).name());
+        }
+        return names;
+    }
+
+    /**
+     * One column per top-level field with the ClickHouse type its Arrow type maps to. Structs, maps
+     * and other nested types are suggested as String, as nested JSON values are.
+     */
+    public List<TableSchema.Column> getColumns() {
+        List<TableSchema.Column> columns = new ArrayList<>(schema.fieldsLength());
+        for (int i = 0; i < schema.fieldsLength(); i++) {
+            Field field = schema.fields(i);
+            String type = clickHouseType(field);
+            columns.add(new TableSchema.Column(field.name(), ColumnTypeDetector.sourceType(type), true, field.name(), type));
+        }
+        return columns;
+    }
+
+    private static long batchLength(FileChannel channel, Block block) throws IOException {
+        ByteBuffer metadata = ByteBuffer.allocate(block.metaDataLength()).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, metadata, block.offset());
+        // Current writers prefix the length with a continuation marker, older ones do not
+        int start = metadata.getInt(0) == CONTINUATION ? 8 : 4;
+        metadata.position(start);
+        Message message = Message.getRootAsMessage(metadata.slice().order(ByteOrder.LITTLE_ENDIAN));
+        if (message.headerType() != MessageHeader.RecordBatch) {
+            throw new IllegalArgumentException("Corrupt Arrow file: block at " + block.offset() + " is not a record batch");
+        }
+        return ((RecordBatch) message.header(new RecordBatch())).length();
+    }
+
+    private static String clickHouseType(Field field) {
+        DictionaryEncoding dictionary = field.dictionary();
+        String type = valueType(field);
+        if (field.nullable() && field.typeType() != Type.List && field.typeType() != Type.LargeList
+                && field.typeType() != Type.FixedSizeList) {
+            type = "Nullable(" + type + ")";
+        }
+        return dictionary != null ? "LowCardinality(" + type + ")" : type;
+    }
+
+    private static String valueType(Field field) {
+        switch (field.typeType()) {
+            case Type.Int:
+                Int integer = (Int) field.type(new Int());
+                return (integer.isSigned() ? "Int" : "UInt") + integer.bitWidth();
+            case Type.FloatingPoint:
+                FloatingPoint floating = (FloatingPoint) field.type(new FloatingPoint());
+                return floating.precision() == Precision.DOUBLE ? "Float64" : "Float32";
+            case Type.Bool:
+                return "Bool";
+            case Type.Decimal:
+                Decimal decimal = (Decimal) field.type(new Decimal());
+                return "Decimal(" + decimal.precision() + ", " + decimal.scale() + ")";
+            case Type.Date:
+                return "Date32";
+            case Type.Timestamp:
+                Timestamp timestamp = (Timestamp) field.type(new Timestamp());
+                return "DateTime64(" + scale(timestamp.unit()) + ")";
+            case Type.FixedSizeBinary:
+                return "FixedString(" + ((FixedSizeBinary) field.type(new FixedSizeBinary())).byteWidth() + ")";
+            case Type.List:
+            case Type.LargeList:
+            case Type.FixedSizeList:
+                return field.childrenLength() == 1 ? "Array(" + clickHouseType(field.children(0)) + ")" : "String";
+            case Type.Utf8:
+            case Type.LargeUtf8:
+            case Type.Binary:
+            case Type.LargeBinary:
+            default:
+                return "String";
+        }
+    }
+
+    private static int scale(short unit) {
+        switch (unit) {
+            case TimeUnit.SECOND:
+                return 0;
+            case TimeUnit.MILLISECOND:
+                return 3;
+            case TimeUnit.MICROSECOND:
+                return 6;
+            default:
+                return 9;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of Arrow file");
+            }
+        }
+    }
+}
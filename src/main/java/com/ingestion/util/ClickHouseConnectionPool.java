@@ -0,0 +1,328 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.PoolStats;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.pool.HikariPool;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of pooled ClickHouse connections, one pool per connection identity
+ * (host, port, database, credentials and JWT).
+ */
+public final class ClickHouseConnectionPool {
+    private static final Logger log = LoggerFactory.getLogger(ClickHouseConnectionPool.class);
+    private static final String DRIVER_CLASS_NAME = "ru.yandex.clickhouse.ClickHouseDriver";
+    private static final String JDBC_URL_TEMPLATE = "jdbc:clickhouse://%s:%d/%s";
+
+    private static final Map<PoolKey, ManagedPool> POOLS = new ConcurrentHashMap<>();
+    private static volatile Settings settings = new Settings();
+    private static volatile ScheduledExecutorService evictor;
+
+    private ClickHouseConnectionPool() {
+    }
+
+    /**
+     * Apply pool settings. Existing pools keep their sizing until they are evicted.
+     */
+    public static synchronized void configure(Settings newSettings) {
+        settings = newSettings;
+        startEvictor();
+    }
+
+    public static Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Borrow a connection for the given config. Closing the connection returns it to the pool.
+     */
+    public static Connection getConnection(ClickHouseConfig config, String jwt) throws SQLException {
+        PoolKey key = PoolKey.of(config, jwt);
+        while (true) {
+            ManagedPool pool = POOLS.get(key);
+            if (pool == null) {
+                if (POOLS.size() >= settings.getMaxPools()) {
+                    evictLeastRecentlyUsed();
+                }
+                if (evictor == null) {
+                    startEvictorIfAbsent();
+                }
+                pool = POOLS.computeIfAbsent(key, ClickHouseConnectionPool::createPool);
+            }
+            Connection connection = pool.borrow();
+            if (connection != null) {
+                return connection;
+            }
+            // Being evicted: the evicting thread either removes and closes it or puts it back in service
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Snapshot of the metrics of every open pool.
+     */
+    public static List<PoolStats> getStats() {
+        List<PoolStats> stats = new ArrayList<>();
+        for (ManagedPool pool : POOLS.values()) {
+            stats.add(pool.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Close the pool serving the given config, if any.
+     */
+    public static void evict(ClickHouseConfig config, String jwt) {
+        Optional.ofNullable(POOLS.remove(PoolKey.of(config, jwt))).ifPresent(ManagedPool::close);
+    }
+
+    /**
+     * Close every pool and stop the background evictor.
+     */
+    public static synchronized void shutdown() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+        POOLS.values().forEach(ManagedPool::close);
+        POOLS.clear();
+    }
+
+    private static ManagedPool createPool(PoolKey key) {
+        Settings current = settings;
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName("clickhouse-" + key.describe());
+        hikari.setDriverClassName(DRIVER_CLASS_NAME);
+        hikari.setJdbcUrl(String.format(JDBC_URL_TEMPLATE, key.host, key.port, key.database));
+        if (key.username != null) {
+            hikari.addDataSourceProperty("user", key.username);
+        }
+        if (key.password != null) {
+            hikari.addDataSourceProperty("password", key.password);
+        }
+        hikari.addDataSourceProperty("ssl", "false");
+        hikari.addDataSourceProperty("socket_timeout", String.valueOf(current.getSocketTimeoutMs()));
+        if (key.jwt != null && !key.jwt.isEmpty()) {
+            hikari.addDataSourceProperty("custom_http_headers", "Authorization: Bearer " + key.jwt);
+        }
+        hikari.setMaximumPoolSize(current.getMaxSize());
+        hikari.setMinimumIdle(current.getMinIdle());
+        hikari.setIdleTimeout(current.getIdleTimeoutMs());
+        hikari.setMaxLifetime(current.getMaxLifetimeMs());
+        hikari.setConnectionTimeout(current.getConnectionTimeoutMs());
+        hikari.setValidationTimeout(current.getValidationTimeoutMs());
+        hikari.setConnectionTestQuery("SELECT 1");
+        // Do not fail pool creation when the server is down; the first borrow reports the error instead
+        hikari.setInitializationFailTimeout(-1);
+
+        log.info("Creating ClickHouse connection pool {}", hikari.getPoolName());
+        return new ManagedPool(key, new HikariDataSource(hikari),
+                Math.min(current.getFirstConnectionTimeoutMs(), current.getConnectionTimeoutMs()));
+    }
+
+    private static void evictLeastRecentlyUsed() {
+        POOLS.values().stream()
+                .filter(pool -> pool.activeConnections() == 0)
+                .sorted(Comparator.comparingLong(ManagedPool::lastUsedMillis))
+                .filter(ManagedPool::retire)
+                .findFirst()
+                .ifPresent(pool -> {
+                    log.info("Evicting least recently used ClickHouse pool {}", pool.key.describe());
+                    POOLS.remove(pool.key, pool);
+                    pool.close();
+                });
+    }
+
+    private static void evictIdlePools() {
+        long cutoff = System.currentTimeMillis() - settings.getPoolIdleTimeoutMs();
+        for (ManagedPool pool : POOLS.values()) {
+            if (pool.lastUsedMillis() < cutoff && pool.retire()) {
+                log.info("Evicting idle ClickHouse pool {}", pool.key.describe());
+                POOLS.remove(pool.key, pool);
+                pool.close();
+            }
+        }
+    }
+
+    private static synchronized void startEvictorIfAbsent() {
+        if (evictor == null) {
+            startEvictor();
+        }
+    }
+
+    private static void startEvictor() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "clickhouse-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1000L, settings.getEvictionIntervalMs());
+        evictor.scheduleWithFixedDelay(() -> {
+            try {
+                evictIdlePools();
+            } catch (Exception e) {
+                log.warn("Failed to evict idle ClickHouse pools", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tunables for every pool created by the registry.
+     */
+    @Getter
+    @Setter
+    public static class Settings {
+        private int maxSize = 10;
+        private int minIdle = 0;
+        private int maxPools = 32;
+        private long connectionTimeoutMs = 30000;
+        /** Wait for a connection until a pool has lent its first one, so an unreachable server fails fast. */
+        private long firstConnectionTimeoutMs = 1000;
+        private long validationTimeoutMs = 5000;
+        private long idleTimeoutMs = 600000;
+        private long maxLifetimeMs = 1800000;
+        private long poolIdleTimeoutMs = 1800000;
+        private long evictionIntervalMs = 60000;
+        private int socketTimeoutMs = 30000;
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    static final class PoolKey {
+        private final String host;
+        private final int port;
+        private final String database;
+        private final String username;
+        private final String password;
+        private final String jwt;
+
+        static PoolKey of(ClickHouseConfig config, String jwt) {
+            return new PoolKey(config.getHost(), config.getPort(), config.getDatabase(),
+                    config.getUsername(), config.getPassword(), jwt);
+        }
+
+        String describe() {
+            return username + "@" + host + ":" + port + "/" + database;
+        }
+    }
+
+    private static final class ManagedPool {
+        private final PoolKey key;
+        private final HikariDataSource dataSource;
+        private final LongAdder borrowCount = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong lastUsed = new AtomicLong(System.currentTimeMillis());
+        private final long firstConnectionTimeoutMs;
+        private volatile boolean connected;
+        // Borrows in progress, or -1 once the pool is retired and no longer lends connections
+        private final AtomicInteger pins = new AtomicInteger();
+
+        ManagedPool(PoolKey key, HikariDataSource dataSource, long firstConnectionTimeoutMs) {
+            this.key = key;
+            this.dataSource = dataSource;
+            this.firstConnectionTimeoutMs = firstConnectionTimeoutMs;
+        }
+
+        /**
+         * @return a connection, or null if the pool was retired by eviction
+         */
+        Connection borrow() throws SQLException {
+            int current;
+            do {
+                current = pins.get();
+                if (current < 0) {
+                    return null;
+                }
+            } while (!pins.compareAndSet(current, current + 1));
+            long start = System.nanoTime();
+            try {
+                if (connected) {
+                    return dataSource.getConnection();
+                }
+                Connection connection = ((HikariPool) dataSource.getHikariPoolMXBean()).getConnection(firstConnectionTimeoutMs);
+                connected = true;
+                return connection;
+            } finally {
+                long waited = System.nanoTime() - start;
+                borrowCount.increment();
+                totalWaitNanos.add(waited);
+                maxWaitNanos.accumulateAndGet(waited, Math::max);
+                lastUsed.set(System.currentTimeMillis());
+                pins.decrementAndGet();
+            }
+        }
+
+        /**
+         * Stop lending connections if no borrow is in progress and none is out, so the pool can be closed.
+         */
+        boolean retire() {
+            if (!pins.compareAndSet(0, -1)) {
+                return false;
+            }
+            // Checked after retiring, so no borrow can start in between
+            if (activeConnections() > 0) {
+                pins.set(0);
+                return false;
+            }
+            return true;
+        }
+
+        int activeConnections() {
+            HikariPoolMXBean bean = dataSource.getHikariPoolMXBean();
+            return bean == null ? 0 : bean.getActiveConnections();
+        }
+
+        long lastUsedMillis() {
+            return lastUsed.get();
+        }
+
+        PoolStats stats() {
+            HikariPoolMXBean bean = dataSource.getHikariPoolMXBean();
+            long borrows = borrowCount.sum();
+            PoolStats stats = new PoolStats();
+            stats.setPool(key.describe());
+            stats.setMaxSize(dataSource.getMaximumPoolSize());
+            stats.setActive(bean == null ? 0 : bean.getActiveConnections());
+            stats.setIdle(bean == null ? 0 : bean.getIdleConnections());
+            stats.setTotal(bean == null ? 0 : bean.getTotalConnections());
+            stats.setWaiting(bean == null ? 0 : bean.getThreadsAwaitingConnection());
+            stats.setBorrowCount(borrows);
+            stats.setAverageWaitMs(borrows == 0 ? 0 : totalWaitNanos.sum() / (double) borrows / 1_000_000);
+            stats.setMaxWaitMs(maxWaitNanos.get() / 1_000_000.0);
+            return stats;
+        }
+
+        void close() {
+            // Borrowers still holding a reference look the pool up again instead of failing on the closed one
+            pins.set(-1);
+            dataSource.close();
+        }
+    }
+}
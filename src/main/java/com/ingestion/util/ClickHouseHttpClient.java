@@ -0,0 +1,240 @@
+package com.ingestion.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.ImportRequest.Compression;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Raw ClickHouse HTTP interface access for streaming bodies the JDBC driver would buffer or re-encode.
+ */
+public class ClickHouseHttpClient {
+    private static final Logger log = LoggerFactory.getLogger(ClickHouseHttpClient.class);
+    private static final String URL_TEMPLATE = "http://%s:%d/?database=%s";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ERROR_LENGTH = 4096;
+    private static final ObjectMapper SUMMARY_READER = new ObjectMapper();
+
+    /**
+     * Run a query and copy the raw response body to the output stream.
+     * Rows are counted by line breaks when the format is line oriented.
+     *
+     * @param headerLines number of leading lines that are not data rows, or -1 to skip row counting
+     * @return number of bytes written
+     */
+    public static long streamQuery(ClickHouseConfig config, String query, String jwt, OutputStream out,
+                                   int headerLines, TransferProgress progress) {
+        HttpURLConnection conn = null;
+        try {
+            conn = openConnection(config, jwt, null);
+            conn.setDoOutput(true);
+            conn.setFixedLengthStreamingMode(query.getBytes(StandardCharsets.UTF_8).length);
+            try (OutputStream body = conn.getOutputStream()) {
+                body.write(query.getBytes(StandardCharsets.UTF_8));
+            }
+            checkResponse(conn);
+
+            long total = 0;
+            long lines = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = conn.getInputStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    total += read;
+                    progress.addBytes(read);
+                    if (headerLines >= 0) {
+                        long rowsBefore = Math.max(0, lines - headerLines);
+                        lines += countLines(buffer, read);
+                        long rows = Math.max(0, lines - headerLines) - rowsBefore;
+                        progress.addRowsRead(rows);
+                        progress.addRowsWritten(rows);
+                    }
+                }
+            }
+            out.flush();
+            return total;
+        } catch (IOException e) {
+            disconnect(conn);
+            log.error("Failed to stream query results", e);
+            throw new RuntimeException("Failed to stream query results", e);
+        }
+    }
+
+    /**
+     * Send a raw data stream as the body of an INSERT ... FORMAT query, optionally compressing
+     * it on the fly with the given HTTP content encoding.
+     *
+     * @param insertQuery statement such as {@code INSERT INTO t (a, b) FORMAT CSVWithNames}
+     * @param settings ClickHouse settings passed as URL parameters
+     * @return number of rows ClickHouse reports as written, or -1 when the server does not report it
+     */
+    public static long insertStream(ClickHouseConfig config, String insertQuery, InputStream data, Compression compression,
+                                    Map<String, String> settings, String jwt) {
+        return insert(config, insertQuery, data, compression, true, settings, jwt);
+    }
+
+    /**
+     * Send data that is already compressed, such as a {@code .csv.gz} file, unchanged with the
+     * matching content encoding so that ClickHouse decodes it instead of this application.
+     *
+     * @param encoding compression of the bytes in data
+     * @return number of rows ClickHouse reports as written, or -1 when the server does not report it
+     */
+    public static long insertEncodedStream(ClickHouseConfig config, String insertQuery, InputStream data, Compression encoding,
+                                           Map<String, String> settings, String jwt) {
+        return insert(config, insertQuery, data, encoding, false, settings, jwt);
+    }
+
+    private static long insert(ClickHouseConfig config, String insertQuery, InputStream data, Compression compression,
+                               boolean encode, Map<String, String> settings, String jwt) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (settings != null) {
+            params.putAll(settings);
+        }
+        params.put("query", insertQuery);
+
+        HttpURLConnection conn = null;
+        try {
+            conn = openConnection(config, jwt, params);
+            conn.setDoOutput(true);
+            conn.setChunkedStreamingMode(BUFFER_SIZE);
+            conn.setRequestProperty("Content-Type", "application/octet-stream");
+            if (compression != Compression.NONE) {
+                conn.setRequestProperty("Content-Encoding", compression.getContentEncoding());
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream body = encode ? compress(conn.getOutputStream(), compression) : conn.getOutputStream()) {
+                int read;
+                while ((read = data.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            }
+            checkResponse(conn);
+            long written = writtenRows(conn.getHeaderField("X-ClickHouse-Summary"));
+            try (InputStream in = conn.getInputStream()) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return written;
+        } catch (IOException e) {
+            disconnect(conn);
+            log.error("Failed to stream insert", e);
+            throw new RuntimeException("Failed to stream insert", e);
+        }
+    }
+
+    static HttpURLConnection openConnection(ClickHouseConfig config, String jwt, Map<String, String> settings) throws IOException {
+        StringBuilder url = new StringBuilder(String.format(URL_TEMPLATE,
+                config.getHost(), config.getPort(), encode(config.getDatabase())));
+        if (settings != null) {
+            for (Map.Entry<String, String> setting : settings.entrySet()) {
+                url.append('&').append(encode(setting.getKey())).append('=').append(encode(setting.getValue()));
+            }
+        }
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(url.toString()).openConnection();
+        int timeout = ClickHouseConnectionPool.getSettings().getSocketTimeoutMs();
+        conn.setConnectTimeout(timeout);
+        conn.setReadTimeout(timeout);
+        conn.setRequestMethod("POST");
+        if (config.getUsername() != null) {
+            conn.setRequestProperty("X-ClickHouse-User", config.getUsername());
+        }
+        if (config.getPassword() != null) {
+            conn.setRequestProperty("X-ClickHouse-Key", config.getPassword());
+        }
+        if (jwt != null && !jwt.isEmpty()) {
+            conn.setRequestProperty("Authorization", "Bearer " + jwt);
+        }
+        return conn;
+    }
+
+    /**
+     * Drop a connection that failed mid-request so it is not handed back to the keep-alive cache.
+     */
+    static void disconnect(HttpURLConnection conn) {
+        if (conn != null) {
+            conn.disconnect();
+        }
+    }
+
+    static void checkResponse(HttpURLConnection conn) throws IOException {
+        int status = conn.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            throw new IOException("ClickHouse returned HTTP " + status + ": " + readError(conn));
+        }
+    }
+
+    private static String readError(HttpURLConnection conn) throws IOException {
+        try (InputStream err = conn.getErrorStream()) {
+            if (err == null) {
+                return conn.getResponseMessage();
+            }
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while (message.size() < MAX_ERROR_LENGTH && (read = err.read(buffer)) != -1) {
+                message.write(buffer, 0, read);
+            }
+            return message.toString(StandardCharsets.UTF_8.name()).trim();
+        }
+    }
+
+    private static OutputStream compress(OutputStream out, Compression compression) throws IOException {
+        switch (compression) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            case LZ4:
+                return new LZ4FrameOutputStream(out);
+            case ZSTD:
+                return new ZstdOutputStream(out);
+            case NONE:
+            default:
+                return out;
+        }
+    }
+
+    private static long writtenRows(String summary) {
+        if (summary == null) {
+            return -1;
+        }
+        try {
+            JsonNode writtenRows = SUMMARY_READER.readTree(summary).get("written_rows");
+            return writtenRows == null ? -1 : writtenRows.asLong(-1);
+        } catch (IOException e) {
+            log.warn("Unreadable X-ClickHouse-Summary header: {}", summary);
+            return -1;
+        }
+    }
+
+    private static long countLines(byte[] buffer, int length) {
+        long lines = 0;
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value == null ? "" : value, StandardCharsets.UTF_8.name());
+    }
+}
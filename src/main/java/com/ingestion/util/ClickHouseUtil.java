@@ -1,16 +1,23 @@
 package com.ingestion.util;
 
 import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.PoolStats;
+import com.ingestion.dto.QueryRequest;
 import com.ingestion.dto.TableSchema;
 import com.ingestion.dto.TableSchema.Column;
+import com.ingestion.util.batch.BatchSchema;
+import com.ingestion.util.batch.ColumnType;
+import com.ingestion.util.batch.ColumnVector;
+import com.ingestion.util.batch.RowBatch;
+import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -20,7 +27,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.stream.Collectors;
 
 /**
@@ -28,39 +34,27 @@ import java.util.stream.Collectors;
  */
 public class ClickHouseUtil {
     private static final Logger log = LoggerFactory.getLogger(ClickHouseUtil.class);
-    private static final String JDBC_URL_TEMPLATE = "jdbc:clickhouse://%s:%d/%s";
     private static final int PREVIEW_LIMIT = 10;
 
     /**
-     * Get a connection to ClickHouse
+     * Get a pooled connection to ClickHouse. Closing it returns it to the pool.
      */
     public static Connection getConnection(String host, int port, String database, String username, String password, String jwt) throws SQLException {
-        String url = String.format(JDBC_URL_TEMPLATE, host, port, database);
-        Properties properties = new Properties();
-        properties.setProperty("user", username);
-        properties.setProperty("password", password);
-        properties.setProperty("ssl", "false"); // Disable SSL by default
-        properties.setProperty("socket_timeout", "30000"); // 30 seconds timeout
-        
-        if (jwt != null && !jwt.isEmpty()) {
-            properties.setProperty("custom_http_headers", "Authorization: Bearer " + jwt);
-        }
-        
-        return DriverManager.getConnection(url, properties);
+        return getConnection(new ClickHouseConfig(host, port, database, username, password), jwt);
     }
 
     /**
-     * Get a connection to ClickHouse using config object
+     * Get a pooled connection to ClickHouse using config object
      */
     public static Connection getConnection(ClickHouseConfig config, String jwt) throws SQLException {
-        return getConnection(
-            config.getHost(), 
-            config.getPort(), 
-            config.getDatabase(), 
-            config.getUsername(), 
-            config.getPassword(), 
-            jwt
-        );
+        return ClickHouseConnectionPool.getConnection(config, jwt);
+    }
+
+    /**
+     * Metrics of the open connection pools
+     */
+    public static List<PoolStats> getPoolStats() {
+        return ClickHouseConnectionPool.getStats();
     }
 
     /**
@@ -119,21 +113,11 @@ public class ClickHouseUtil {
 
             // Get preview data only if we have columns
             if (!columns.isEmpty()) {
+                String query = QueryBuilder.select(tableName).selected(columns).limit((long) PREVIEW_LIMIT).build();
                 try (Statement stmt = conn.createStatement();
-                     ResultSet rs = stmt.executeQuery("SELECT * FROM " + tableName + " LIMIT " + PREVIEW_LIMIT)) {
+                     ResultSet rs = stmt.executeQuery(query)) {
                     
-                    ResultSetMetaData rsMetaData = rs.getMetaData();
-                    int columnCount = rsMetaData.getColumnCount();
-                    
-                    while (rs.next()) {
-                        Map<String, Object> row = new HashMap<>();
-                        for (int i = 1; i <= columnCount; i++) {
-                            String columnName = rsMetaData.getColumnName(i);
-                            Object value = rs.getObject(i);
-                            row.put(columnName, value);
-                        }
-                        preview.add(row);
-                    }
+                    preview = readRows(rs, PREVIEW_LIMIT);
                 }
             }
 
@@ -167,30 +151,33 @@ public class ClickHouseUtil {
      * Execute a query and return results
      */
     public static List<Map<String, Object>> queryData(ClickHouseConfig config, String query, String jwt) {
-        List<Map<String, Object>> results = new ArrayList<>();
         try (Connection conn = getConnection(config, jwt);
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
-            
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
-                    Object value = rs.getObject(i);
-                    row.put(columnName, value);
-                }
-                results.add(row);
-            }
-            return results;
+            return readRows(rs, Integer.MAX_VALUE);
         } catch (Exception e) {
             log.error("Failed to execute query", e);
             throw new RuntimeException("Failed to execute query", e);
         }
     }
 
+    /**
+     * Read the selected columns of a table, filtered and limited by the server.
+     *
+     * @param maxRows upper bound on the rows returned, also applied when the request has no limit
+     */
+    public static List<Map<String, Object>> queryTable(QueryRequest request, long maxRows, String jwt) {
+        long limit = request.getLimit() != null ? Math.min(request.getLimit(), maxRows) : maxRows;
+        String query = QueryBuilder.select(request.getTable())
+                .selected(request.getColumns())
+                .where(request.getFilters())
+                .limit(limit)
+                .offset(request.getOffset())
+                .build();
+        log.debug("Querying table {}: {}", request.getTable(), query);
+        return queryData(request.getConnection(), query, jwt);
+    }
+
     /**
      * Import data into a table
      */
@@ -203,8 +190,8 @@ public class ClickHouseUtil {
              PreparedStatement stmt = conn.prepareStatement(sql);
              BufferedReader reader = new BufferedReader(data)) {
             
+            // ClickHouse has no transactions: each executed batch is one INSERT
             String line;
-            conn.setAutoCommit(false);
             int batchSize = 1000;
             int count = 0;
 
@@ -217,18 +204,194 @@ public class ClickHouseUtil {
                 
                 if (++count % batchSize == 0) {
                     stmt.executeBatch();
-                    conn.commit();
                 }
             }
             
             stmt.executeBatch();
-            conn.commit();
         } catch (Exception e) {
             log.error("Failed to import data", e);
             throw new RuntimeException("Failed to import data", e);
         }
     }
 
+    /**
+     * Quote an identifier with backticks so reserved words and special characters are safe in generated SQL
+     */
+    public static String quoteIdentifier(String identifier) {
+        return "`" + identifier.replace("\\", "\\\\").replace("`", "\\`") + "`";
+    }
+
+    /**
+     * Quote a table name that may be qualified with a database as {@code database.table}
+     */
+    public static String quoteTableName(String tableName) {
+        int dot = tableName.indexOf('.');
+        if (dot < 0) {
+            return quoteIdentifier(tableName);
+        }
+        return quoteIdentifier(tableName.substring(0, dot)) + "." + quoteIdentifier(tableName.substring(dot + 1));
+    }
+
+    /**
+     * Build a parameterised INSERT statement for the given columns
+     */
+    public static String buildInsertSql(String tableName, List<String> columns) {
+        String columnList = columns.stream().map(ClickHouseUtil::quoteIdentifier).collect(Collectors.joining(", "));
+        String placeholders = columns.stream().map(c -> "?").collect(Collectors.joining(", "));
+        return String.format("INSERT INTO %s (%s) VALUES (%s)", quoteTableName(tableName), columnList, placeholders);
+    }
+
+    /**
+     * Insert parsed CSV records over an open connection in batches.
+     *
+     * @param sourceIndexes position in each record of the value for each target column
+     * @return number of rows inserted
+     */
+    public static long insertRecords(Connection conn, String tableName, List<String> columns, int[] sourceIndexes,
+                                     Iterable<CSVRecord> records, int batchSize, TransferProgress progress) throws SQLException {
+        long count = 0;
+        int pending = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(buildInsertSql(tableName, columns))) {
+            for (CSVRecord record : records) {
+                for (int i = 0; i < sourceIndexes.length; i++) {
+                    int source = sourceIndexes[i];
+                    stmt.setString(i + 1, source < record.size() ? record.get(source) : null);
+                }
+                stmt.addBatch();
+                progress.addRowsRead(1);
+
+                if (++pending == batchSize) {
+                    stmt.executeBatch();
+                    progress.addRowsWritten(pending);
+                    count += pending;
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+                progress.addRowsWritten(pending);
+                count += pending;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Insert delimited records over an open connection in batches, decoding only the selected fields.
+     *
+     * @param sourceIndexes position in each record of the value for each target column
+     * @return number of rows inserted
+     */
+    public static long insertRecords(Connection conn, String tableName, List<String> columns, int[] sourceIndexes,
+                                     CsvScanner records, int batchSize, TransferProgress progress) throws SQLException, IOException {
+        long count = 0;
+        int pending = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(buildInsertSql(tableName, columns))) {
+            while (records.next()) {
+                for (int i = 0; i < sourceIndexes.length; i++) {
+                    int source = sourceIndexes[i];
+                    stmt.setString(i + 1, source < records.size() ? records.get(source) : null);
+                }
+                stmt.addBatch();
+                progress.addRowsRead(1);
+
+                if (++pending == batchSize) {
+                    stmt.executeBatch();
+                    progress.addRowsWritten(pending);
+                    count += pending;
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+                progress.addRowsWritten(pending);
+                count += pending;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Read up to limit rows of a result set into a typed row batch.
+     */
+    public static RowBatch readRows(ResultSet rs, int limit) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        List<String> names = new ArrayList<>();
+        List<ColumnType> types = new ArrayList<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            names.add(metaData.getColumnName(i));
+            types.add(ColumnType.forClickHouseType(metaData.getColumnTypeName(i)));
+        }
+        BatchSchema schema = new BatchSchema(names, types);
+        RowBatch batch = new RowBatch(schema, limit);
+
+        while (!batch.isFull() && rs.next()) {
+            int row = batch.addRow();
+            for (int i = 0; i < schema.size(); i++) {
+                switch (schema.getType(i)) {
+                    case LONG:
+                        long longValue = rs.getLong(i + 1);
+                        if (!rs.wasNull()) {
+                            batch.longColumn(i).set(row, longValue);
+                        }
+                        break;
+                    case DOUBLE:
+                        double doubleValue = rs.getDouble(i + 1);
+                        if (!rs.wasNull()) {
+                            batch.doubleColumn(i).set(row, doubleValue);
+                        }
+                        break;
+                    case BOOLEAN:
+                        boolean booleanValue = rs.getBoolean(i + 1);
+                        if (!rs.wasNull()) {
+                            batch.booleanColumn(i).set(row, booleanValue);
+                        }
+                        break;
+                    default:
+                        batch.stringColumn(i).set(row, rs.getString(i + 1));
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Add every row of a batch to a prepared insert, columns in schema order.
+     */
+    public static void addBatch(PreparedStatement stmt, RowBatch batch) throws SQLException {
+        int columnCount = batch.getSchema().size();
+        for (int row = 0; row < batch.size(); row++) {
+            for (int i = 0; i < columnCount; i++) {
+                ColumnVector column = batch.column(i);
+                stmt.setString(i + 1, column.isNull(row) ? null : column.getText(row));
+            }
+            stmt.addBatch();
+        }
+    }
+
+    /**
+     * Insert JSON records over an open connection in batches, reading each target column by key.
+     * Records are decoded straight into a reused row batch.
+     *
+     * @return number of rows inserted
+     */
+    public static long insertJsonRecords(Connection conn, String tableName, List<String> columns,
+                                         JsonRecordReader records, int batchSize,
+                                         TransferProgress progress) throws SQLException {
+        long count = 0;
+        RowBatch batch = new RowBatch(BatchSchema.strings(columns), batchSize);
+        try (PreparedStatement stmt = conn.prepareStatement(buildInsertSql(tableName, columns))) {
+            while (records.readBatch(batch) > 0) {
+                progress.addRowsRead(batch.size());
+                addBatch(stmt, batch);
+                stmt.executeBatch();
+                progress.addRowsWritten(batch.size());
+                count += batch.size();
+            }
+        }
+        return count;
+    }
+
     /**
      * Execute a query without returning results
      */
@@ -0,0 +1,285 @@
+package com.ingestion.util;
+
+import java.math.BigInteger;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Narrows the ClickHouse type of one column from sampled text values. Every candidate type starts
+ * possible and is ruled out by the first value it cannot hold; the narrowest survivor wins.
+ * Not thread-safe: use one detector per column.
+ */
+public class ColumnTypeDetector {
+    private static final int MAX_DISTINCT = 1000;
+    private static final int LOW_CARDINALITY_RATIO = 10;
+    private static final int MAX_DECIMAL_PRECISION = 38;
+    private static final BigInteger UINT64_MAX = new BigInteger("18446744073709551615");
+
+    private static final Pattern WRAPPER = Pattern.compile("(?:Nullable|LowCardinality|Array)\\((.*)\\)");
+    private static final Pattern FIXED_POINT = Pattern.compile("-?(0|[1-9]\\d*)(?:\\.(\\d+))?");
+    private static final Pattern FLOATING = Pattern.compile(
+            "[-+]?((0|[1-9]\\d*)(\\.\\d*)?|\\.\\d+)([eE][-+]?\\d+)?|[-+]?(?i:nan|inf|infinity)");
+    private static final Pattern DATE = Pattern.compile("(\\d{4})-(\\d{2})-(\\d{2})");
+    private static final Pattern DATE_TIME = Pattern.compile(
+            "(\\d{4})-(\\d{2})-(\\d{2})[ T]([01]\\d|2[0-3]):([0-5]\\d):([0-5]\\d)(?:\\.(\\d{1,9}))?");
+
+    private long nonNull;
+    private long nulls;
+    private long empties;
+
+    private boolean bool = true;
+    private boolean integer = true;
+    private boolean beyondInt64;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private boolean fixedPoint = true;
+    private int integerDigits;
+    private int scale = -1;
+    private boolean floating = true;
+    private boolean date = true;
+    private boolean dateTime = true;
+    private int minYear = Integer.MAX_VALUE;
+    private int maxYear = Integer.MIN_VALUE;
+    private int fractionDigits;
+
+    private final Set<String> distinct = new HashSet<>();
+    private boolean distinctOverflow;
+
+    /**
+     * Record one sampled value. {@code null} is a missing value; an empty string is a missing
+     * value for every type except String.
+     */
+    public void accept(String value) {
+        if (value == null) {
+            nulls++;
+            return;
+        }
+        if (value.isEmpty()) {
+            empties++;
+            return;
+        }
+        nonNull++;
+        trackDistinct(value);
+
+        if (bool) {
+            bool = value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false");
+        }
+        if (integer) {
+            integer = acceptInteger(value);
+        }
+        if (fixedPoint && !integer) {
+            fixedPoint = acceptFixedPoint(value);
+        }
+        if (floating) {
+            floating = FLOATING.matcher(value).matches();
+        }
+        if (date) {
+            date = acceptDate(value);
+        }
+        if (dateTime) {
+            dateTime = acceptDateTime(value);
+        }
+    }
+
+    /**
+     * ClickHouse type for the values seen so far, e.g. {@code Nullable(UInt16)} or
+     * {@code LowCardinality(String)}.
+     */
+    public String getClickHouseType() {
+        if (nonNull == 0) {
+            return "Nullable(String)";
+        }
+        String type = typedColumn();
+        if (type != null) {
+            return nulls + empties > 0 ? "Nullable(" + type + ")" : type;
+        }
+        String string = nulls > 0 ? "Nullable(String)" : "String";
+        return isLowCardinality() ? "LowCardinality(" + string + ")" : string;
+    }
+
+    /**
+     * Generic source type shown next to the column in the UI.
+     */
+    public String getSourceType() {
+        String type = nonNull == 0 ? null : typedColumn();
+        return type == null ? "string" : sourceType(type);
+    }
+
+    /**
+     * Generic source type of a ClickHouse type, ignoring Nullable, LowCardinality and Array wrappers.
+     */
+    public static String sourceType(String clickHouseType) {
+        String type = clickHouseType;
+        Matcher wrapper;
+        while ((wrapper = WRAPPER.matcher(type)).matches()) {
+            type = wrapper.group(1);
+        }
+        if (type.equals("Bool")) {
+            return "boolean";
+        }
+        if (type.contains("Int")) {
+            return "integer";
+        }
+        if (type.startsWith("Float") || type.startsWith("Decimal")) {
+            return "float";
+        }
+        if (type.startsWith("DateTime")) {
+            return "datetime";
+        }
+        return type.startsWith("Date") ? "date" : "string";
+    }
+
+    private String typedColumn() {
+        if (bool) {
+            return "Bool";
+        }
+        if (integer) {
+            return integerType();
+        }
+        if (fixedPoint && scale > 0 && integerDigits + scale <= MAX_DECIMAL_PRECISION) {
+            return "Decimal(" + (integerDigits + scale) + ", " + scale + ")";
+        }
+        if (floating) {
+            return "Float64";
+        }
+        if (date) {
+            return minYear >= 1970 && maxYear <= 2149 ? "Date" : "Date32";
+        }
+        if (dateTime) {
+            if (fractionDigits == 0 && minYear >= 1970 && maxYear <= 2105) {
+                return "DateTime";
+            }
+            return "DateTime64(" + fractionDigits + ")";
+        }
+        return null;
+    }
+
+    private String integerType() {
+        if (beyondInt64) {
+            return "UInt64";
+        }
+        if (min >= 0) {
+            if (max <= 0xFF) return "UInt8";
+            if (max <= 0xFFFF) return "UInt16";
+            if (max <= 0xFFFFFFFFL) return "UInt32";
+            return "UInt64";
+        }
+        if (min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE) return "Int8";
+        if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE) return "Int16";
+        if (min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE) return "Int32";
+        return "Int64";
+    }
+
+    private boolean isLowCardinality() {
+        return !distinctOverflow && distinct.size() * (long) LOW_CARDINALITY_RATIO <= nonNull;
+    }
+
+    private void trackDistinct(String value) {
+        if (!distinctOverflow && distinct.add(value) && distinct.size() > MAX_DISTINCT) {
+            distinctOverflow = true;
+            distinct.clear();
+        }
+    }
+
+    /**
+     * Plain decimal integers only: a leading zero marks an identifier such as a zip code.
+     */
+    private boolean acceptInteger(String value) {
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        int length = value.length() - start;
+        if (length == 0 || length > 20 || (value.charAt(start) == '0' && length > 1)) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        // Keeps Decimal precision right if fractional values follow
+        integerDigits = Math.max(integerDigits, length);
+        if (length < 19) {
+            return trackRange(Long.parseLong(value));
+        }
+        BigInteger big = new BigInteger(value);
+        if (big.bitLength() < 64) {
+            return trackRange(big.longValue());
+        }
+        // Only non-negative values beyond Int64 fit, as UInt64. Wider whole numbers are
+        // identifiers that Float64 would round, so they stay String.
+        if (big.signum() < 0 || big.compareTo(UINT64_MAX) > 0 || min < 0) {
+            floating = false;
+            fixedPoint = false;
+            return false;
+        }
+        beyondInt64 = true;
+        return true;
+    }
+
+    private boolean trackRange(long value) {
+        if (value < 0 && beyondInt64) {
+            return false;
+        }
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        return true;
+    }
+
+    /**
+     * Values with the same number of fraction digits, as in money amounts, fit a Decimal.
+     * Whole numbers mixed in are accepted at that scale.
+     */
+    private boolean acceptFixedPoint(String value) {
+        Matcher matcher = FIXED_POINT.matcher(value);
+        if (!matcher.matches()) {
+            return false;
+        }
+        integerDigits = Math.max(integerDigits, matcher.group(1).length());
+        if (matcher.group(2) == null) {
+            // Whole numbers fit any scale
+            return true;
+        }
+        int digits = matcher.group(2).length();
+        if (scale >= 0 && scale != digits) {
+            return false;
+        }
+        scale = digits;
+        return true;
+    }
+
+    private boolean acceptDate(String value) {
+        Matcher matcher = DATE.matcher(value);
+        return matcher.matches() && validDate(matcher);
+    }
+
+    private boolean acceptDateTime(String value) {
+        Matcher matcher = DATE_TIME.matcher(value);
+        if (!matcher.matches() || !validDate(matcher)) {
+            return false;
+        }
+        if (matcher.group(7) != null) {
+            fractionDigits = Math.max(fractionDigits, matcher.group(7).length());
+        }
+        return true;
+    }
+
+    private boolean validDate(Matcher matcher) {
+        int year = Integer.parseInt(matcher.group(1));
+        try {
+            LocalDate.of(year, Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+        } catch (DateTimeException e) {
+            return false;
+        }
+        // Beyond the range of Date32 and DateTime64
+        if (year < 1900 || year > 2299) {
+            return false;
+        }
+        minYear = Math.min(minYear, year);
+        maxYear = Math.max(maxYear, year);
+        return true;
+    }
+}
@@ -0,0 +1,363 @@
+package com.ingestion.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits UTF-8 delimited text into records and fields without decoding it: each record is exposed
+ * as byte offsets into {@link #buffer()}, and a field becomes a String only when it is read with
+ * {@link #get(int)}. Quoting follows RFC 4180 with the same leniency as commons-csv's
+ * {@code CSVFormat.DEFAULT}: empty lines are skipped, a quote inside an unquoted field is literal and
+ * a quoted field may span lines. Unquoted text is scanned eight bytes at a time, testing a whole
+ * {@code long} for the delimiter, quote and line-break bytes at once.
+ * <p>
+ * The input is either a buffer holding all of it, such as a region mapped by {@link MappedFile}, or a
+ * stream that is read in blocks; a record must then fit in memory, which the block buffer grows to ensure.
+ */
+public class CsvScanner implements Closeable {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int REPORT_BYTES = 64 * 1024;
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long QUOTES = ONES * '"';
+    private static final long LINE_FEEDS = ONES * '\n';
+    private static final long RETURNS = ONES * '\r';
+
+    private final InputStream in;
+    private final TransferProgress progress;
+    private int reported;
+    private final byte delimiter;
+    private final long delimiters;
+    private ByteBuffer buffer;
+    private boolean eof;
+    private int position;
+    private long recordNumber;
+
+    private int fieldCount;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    // Quoted fields whose content holds doubled quotes
+    private boolean[] escaped = new boolean[16];
+    private byte[] scratch;
+
+    /**
+     * Scan the bytes between the buffer's position and limit.
+     */
+    public CsvScanner(ByteBuffer data, char delimiter) {
+        this(data, delimiter, null);
+    }
+
+    /**
+     * Scan the bytes between the buffer's position and limit, adding consumed bytes to progress as
+     * records are read.
+     */
+    public CsvScanner(ByteBuffer data, char delimiter, TransferProgress progress) {
+        this.in = null;
+        this.progress = progress;
+        this.delimiter = checkDelimiter(delimiter);
+        this.delimiters = ONES * (this.delimiter & 0xFF);
+        this.buffer = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.eof = true;
+    }
+
+    /**
+     * Scan a stream, reading it in blocks as records are consumed.
+     */
+    public CsvScanner(InputStream in, char delimiter) {
+        this.in = in;
+        this.progress = null;
+        this.delimiter = checkDelimiter(delimiter);
+        this.delimiters = ONES * (this.delimiter & 0xFF);
+        this.buffer = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Scan the bytes [start, end) of a file, mapped as one buffer when the range allows it and read
+     * through mapped windows otherwise.
+     *
+     * @param progress counter of bytes consumed, or null
+     */
+    public static CsvScanner open(FileChannel channel, long start, long end, char delimiter,
+                                  TransferProgress progress) throws IOException {
+        return MappedFile.fits(start, end)
+                ? new CsvScanner(MappedFile.map(channel, start, end), delimiter, progress)
+                : new CsvScanner(MappedFile.stream(channel, start, end, progress), delimiter);
+    }
+
+    private static byte checkDelimiter(char delimiter) {
+        if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Delimiter must be a single ASCII character other than a quote or line break: "
+                    + delimiter);
+        }
+        return (byte) delimiter;
+    }
+
+    /**
+     * Advance to the next record.
+     *
+     * @return false at the end of the input
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int end = scanRecord(position);
+            if (end >= 0) {
+                position = end;
+                recordNumber++;
+                report(REPORT_BYTES);
+                return true;
+            }
+            if (end == -2) {
+                // Only line breaks were left
+                position = buffer.limit();
+                report(1);
+                return false;
+            }
+            if (!fill()) {
+                throw new IOException("Unterminated quoted field in record " + (recordNumber + 1));
+            }
+        }
+    }
+
+    /**
+     * Number of fields of the current record.
+     */
+    public int size() {
+        return fieldCount;
+    }
+
+    /**
+     * Bytes the field offsets point into; valid until the next call to {@link #next()}.
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int start(int field) {
+        return starts[checkField(field)];
+    }
+
+    public int end(int field) {
+        return ends[checkField(field)];
+    }
+
+    /**
+     * Number of records returned so far.
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Decode a field of the current record, with doubled quotes of a quoted field undone.
+     */
+    public String get(int field) {
+        checkField(field);
+        int start = starts[field];
+        int length = ends[field] - start;
+        if (length == 0) {
+            return "";
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        } else {
+            if (scratch == null || scratch.length < length) {
+                scratch = new byte[Math.max(length, 256)];
+            }
+            // One bulk copy out of the mapped buffer; a duplicate leaves the scanner's own position alone
+            ByteBuffer bytes = buffer.duplicate();
+            bytes.limit(start + length).position(start);
+            bytes.get(scratch, 0, length);
+            value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return escaped[field] ? value.replace("\"\"", "\"") : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    private void report(int minBytes) {
+        if (progress != null && position - reported >= minBytes) {
+            progress.addBytes(position - reported);
+            reported = position;
+        }
+    }
+
+    private int checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + field + " of " + fieldCount);
+        }
+        return field;
+    }
+
+    /**
+     * Parse the record starting at pos into the field arrays.
+     *
+     * @return the position after the record, -1 when more input is needed, -2 at the end of the input
+     */
+    private int scanRecord(int pos) throws IOException {
+        int limit = buffer.limit();
+        // Skip empty lines
+        while (pos < limit && isLineBreak(buffer.get(pos))) {
+            pos++;
+        }
+        if (pos >= limit) {
+            return eof ? -2 : -1;
+        }
+
+        fieldCount = 0;
+        while (true) {
+            boolean quoted = buffer.get(pos) == '"';
+            boolean doubled = false;
+            int start;
+            int end;
+            if (quoted) {
+                start = pos + 1;
+                int scan = start;
+                while (true) {
+                    scan = find(scan, limit, QUOTES, 0, 0, (byte) '"', (byte) '"', (byte) '"');
+                    if (scan >= limit) {
+                        return -1;
+                    }
+                    if (scan + 1 < limit && buffer.get(scan + 1) == '"') {
+                        doubled = true;
+                        scan += 2;
+                        continue;
+                    }
+                    if (scan + 1 >= limit && !eof) {
+                        // The quote may be the first of a doubled pair split across reads
+                        return -1;
+                    }
+                    break;
+                }
+                end = scan;
+                pos = scan + 1;
+                if (pos < limit && buffer.get(pos) != delimiter && !isLineBreak(buffer.get(pos))) {
+                    throw new IOException("Invalid character between a closing quote and the delimiter in record "
+                            + (recordNumber + 1));
+                }
+            } else {
+                start = pos;
+                pos = find(pos, limit, delimiters, LINE_FEEDS, RETURNS, delimiter, (byte) '\n', (byte) '\r');
+                end = pos;
+            }
+            addField(start, end, doubled);
+
+            if (pos >= limit) {
+                // The last record may end without a line break
+                return eof ? pos : -1;
+            }
+            byte b = buffer.get(pos);
+            if (b == delimiter) {
+                pos++;
+                if (pos >= limit) {
+                    if (!eof) {
+                        return -1;
+                    }
+                    addField(pos, pos, false);
+                    return pos;
+                }
+                continue;
+            }
+            // A line break: CR LF counts as one
+            if (b == '\r') {
+                if (pos + 1 >= limit && !eof) {
+                    return -1;
+                }
+                if (pos + 1 < limit && buffer.get(pos + 1) == '\n') {
+                    pos++;
+                }
+            }
+            return pos + 1;
+        }
+    }
+
+    /**
+     * Position of the first of up to three bytes from pos, or limit when there is none. Eight bytes are
+     * tested per step: XOR with a repeated pattern zeroes matching bytes, and the zero-byte test sets
+     * the high bit of each of them. Bits above the lowest match can be false positives, which the
+     * lowest set bit is not.
+     */
+    private int find(int pos, int limit, long first, long second, long third, byte a, byte b, byte c) {
+        // Written so it cannot overflow when limit is near Integer.MAX_VALUE
+        while (pos <= limit - 8) {
+            long word = buffer.getLong(pos);
+            long matches = zeroBytes(word ^ first);
+            if (second != 0) {
+                matches |= zeroBytes(word ^ second) | zeroBytes(word ^ third);
+            }
+            if (matches != 0) {
+                return pos + (Long.numberOfTrailingZeros(matches) >>> 3);
+            }
+            pos += 8;
+        }
+        while (pos < limit) {
+            byte value = buffer.get(pos);
+            if (value == a || value == b || value == c) {
+                return pos;
+            }
+            pos++;
+        }
+        return limit;
+    }
+
+    private static long zeroBytes(long word) {
+        return (word - ONES) & ~word & HIGHS;
+    }
+
+    private static boolean isLineBreak(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private void addField(int start, int end, boolean doubled) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        escaped[fieldCount] = doubled;
+        fieldCount++;
+    }
+
+    /**
+     * Move the unconsumed bytes to the front of the buffer and read more after them, growing the
+     * buffer when a single record fills it.
+     *
+     * @return false when there is no more input
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int remaining = buffer.limit() - position;
+        if (position == 0 && remaining == buffer.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+            System.arraycopy(buffer.array(), 0, grown.array(), 0, remaining);
+            buffer = grown;
+        } else {
+            System.arraycopy(buffer.array(), position, buffer.array(), 0, remaining);
+        }
+        position = 0;
+        int read = in.read(buffer.array(), remaining, buffer.capacity() - remaining);
+        if (read < 0) {
+            eof = true;
+            buffer.limit(remaining);
+            return true;
+        }
+        buffer.limit(remaining + read);
+        return true;
+    }
+}
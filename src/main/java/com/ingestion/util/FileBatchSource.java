@@ -0,0 +1,175 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.FileConfig;
+import com.ingestion.util.batch.RowBatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of several CSV or JSON files into the same batches, one file after the other,
+ * so a run of small files becomes a few large inserts instead of one insert, and one part, per file.
+ * Files are opened one at a time. The fields of each CSV file are matched to the columns by its own
+ * header, and a column missing from a file is left null for its rows.
+ */
+public class FileBatchSource implements ImportPipeline.BatchSource, Closeable {
+    private final List<Path> files;
+    private final List<String> columns;
+    private final FileConfig fileConfig;
+    private final char delimiter;
+    private final TransferProgress progress;
+
+    private int next;
+    private FileChannel channel;
+    private CsvScanner csv;
+    private int[] sourceIndexes;
+    private JsonRecordReader json;
+
+    public FileBatchSource(List<Path> files, List<String> columns, FileConfig fileConfig, TransferProgress progress) {
+        this.files = files;
+        this.columns = columns;
+        this.fileConfig = fileConfig;
+        this.delimiter = delimiter(fileConfig);
+        this.progress = progress;
+    }
+
+    /**
+     * Whether a file holds JSON records rather than delimited text, by its type or its name.
+     */
+    public static boolean isJson(Path path, FileConfig fileConfig) {
+        if (fileConfig.getFileType() != null) {
+            return fileConfig.getFileType() == FileConfig.FileType.JSON
+                    || fileConfig.getFileType() == FileConfig.FileType.NDJSON;
+        }
+        String name = FileCompression.baseName(path.getFileName().toString()).toLowerCase();
+        return name.endsWith(".json") || name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    /**
+     * The columns of a file: its CSV header, or the keys of its first JSON record.
+     */
+    public static List<String> readColumns(Path path, FileConfig fileConfig) throws IOException {
+        List<String> names = new ArrayList<>();
+        if (isJson(path, fileConfig)) {
+            try (JsonRecordReader records = new JsonRecordReader(FileCompression.open(path))) {
+                if (records.hasNext()) {
+                    names.addAll(records.next().keySet());
+                }
+            }
+        } else if (fileConfig.isHasHeader()) {
+            try (CsvScanner records = new CsvScanner(FileCompression.open(path), delimiter(fileConfig))) {
+                if (records.next()) {
+                    for (int i = 0; i < records.size(); i++) {
+                        names.add(records.get(i));
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    private static char delimiter(FileConfig fileConfig) {
+        return fileConfig.getDelimiter() == null || fileConfig.getDelimiter().isEmpty()
+                ? ',' : fileConfig.getDelimiter().charAt(0);
+    }
+
+    @Override
+    public int read(RowBatch batch) throws IOException {
+        batch.reset();
+        while (!batch.isFull()) {
+            if (csv == null && json == null && !openNext()) {
+                break;
+            }
+            if (json != null ? json.appendBatch(batch) == 0 && !json.hasNext() : !appendCsv(batch)) {
+                closeCurrent();
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * @return false when the current file has no more records
+     */
+    private boolean appendCsv(RowBatch batch) throws IOException {
+        while (!batch.isFull()) {
+            if (!csv.next()) {
+                return false;
+            }
+            int row = batch.addRow();
+            for (int i = 0; i < sourceIndexes.length; i++) {
+                if (sourceIndexes[i] >= 0 && sourceIndexes[i] < csv.size()) {
+                    batch.stringColumn(i).set(row, csv.get(sourceIndexes[i]));
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean openNext() throws IOException {
+        if (next >= files.size()) {
+            return false;
+        }
+        Path path = files.get(next++);
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (isJson(path, fileConfig)) {
+                json = new JsonRecordReader(FileCompression.decompress(
+                        FileChunker.open(channel, new FileChunker.Chunk(0, 0, size), progress), FileCompression.detect(path)));
+                return true;
+            }
+            csv = FileCompression.isCompressed(path)
+                    ? new CsvScanner(FileCompression.decompress(FileChunker.open(channel, new FileChunker.Chunk(0, 0, size),
+                            progress), FileCompression.detect(path)), delimiter)
+                    : CsvScanner.open(channel, 0, size, delimiter, progress);
+            sourceIndexes = new int[columns.size()];
+            if (fileConfig.isHasHeader()) {
+                List<String> header = new ArrayList<>();
+                if (csv.next()) {
+                    for (int i = 0; i < csv.size(); i++) {
+                        header.add(csv.get(i));
+                    }
+                }
+                for (int i = 0; i < sourceIndexes.length; i++) {
+                    sourceIndexes[i] = header.indexOf(columns.get(i));
+                }
+            } else {
+                for (int i = 0; i < sourceIndexes.length; i++) {
+                    sourceIndexes[i] = i;
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            closeCurrent();
+            throw e;
+        }
+    }
+
+    private void closeCurrent() throws IOException {
+        try {
+            if (csv != null) {
+                csv.close();
+            }
+            if (json != null) {
+                json.close();
+            }
+        } finally {
+            csv = null;
+            json = null;
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+    }
+}
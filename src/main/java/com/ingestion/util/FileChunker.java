@@ -0,0 +1,174 @@
+package com.ingestion.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a line-oriented file into byte ranges that start and end on record boundaries.
+ * Delimited text is split after a line feed outside quoted fields, following the quoting rules of
+ * {@link CsvScanner}; newline-delimited JSON, whose strings cannot hold raw line breaks, after any line feed.
+ */
+public class FileChunker {
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+    private static final int CSV_SCAN_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * A half-open byte range [start, end) of a file.
+     */
+    public static class Chunk {
+        private final int index;
+        private final long start;
+        private final long end;
+
+        public Chunk(int index, long start, long end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Split delimited text from dataStart, which must start a record, to its end into chunks of roughly
+     * chunkSize bytes. Finding the quoted fields takes one pass over the file.
+     */
+    public static List<Chunk> splitCsv(Path file, long dataStart, long chunkSize, char delimiter) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        List<Chunk> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = dataStart;
+            ByteBuffer buffer = ByteBuffer.allocate(CSV_SCAN_BUFFER_SIZE);
+            while (start < size) {
+                long end = start + chunkSize >= size ? size : nextRecordStart(channel, start, start + chunkSize, size,
+                        delimiter, buffer);
+                chunks.add(new Chunk(chunks.size(), start, end));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Offset just past the first record of delimited text to end at or after position, scanning from
+     * recordStart, or the file size when there is none. A quote opens a quoted field only at the start
+     * of a field, and a doubled quote inside one is part of its value.
+     */
+    public static long nextRecordStart(FileChannel channel, long recordStart, long position, long size, char delimiter,
+                                       ByteBuffer buffer) throws IOException {
+        boolean quoted = false;
+        boolean closingQuote = false;
+        boolean fieldStart = true;
+        long offset = recordStart;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (quoted) {
+                    if (b == '"') {
+                        quoted = false;
+                        closingQuote = true;
+                    }
+                    continue;
+                }
+                if (closingQuote) {
+                    closingQuote = false;
+                    if (b == '"') {
+                        quoted = true;
+                        continue;
+                    }
+                }
+                if (b == '"' && fieldStart) {
+                    quoted = true;
+                    fieldStart = false;
+                } else if (b == '\n') {
+                    if (offset + i + 1 > position) {
+                        return offset + i + 1;
+                    }
+                    fieldStart = true;
+                } else {
+                    fieldStart = b == delimiter || b == '\r';
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Split the file from dataStart to its end into chunks of roughly chunkSize bytes, ending each
+     * after a line feed. Only for formats whose values cannot contain line breaks.
+     */
+    public static List<Chunk> split(Path file, long dataStart, long chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        List<Chunk> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = dataStart;
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            while (start < size) {
+                long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size, buffer);
+                chunks.add(new Chunk(chunks.size(), start, end));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Offset just past the first line feed at or after position, or the file size when there is none.
+     */
+    public static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        long offset = position;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Open a stream over one chunk that reads from mapped memory and reports consumed bytes.
+     */
+    public static InputStream open(FileChannel channel, Chunk chunk, TransferProgress progress) {
+        return MappedFile.stream(channel, chunk.getStart(), chunk.getEnd(), progress);
+    }
+}
@@ -0,0 +1,101 @@
+package com.ingestion.util;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.ingestion.dto.ImportRequest.Compression;
+import net.jpountz.lz4.LZ4FrameInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Recognizes compressed flat files such as {@code trips.csv.gz} or {@code events.ndjson.zst} by
+ * their last extension and decodes them as a stream, so no file is ever inflated on disk.
+ */
+public class FileCompression {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileCompression() {
+    }
+
+    /**
+     * The compression implied by a file name, {@link Compression#NONE} for plain files.
+     */
+    public static Compression detect(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+            return Compression.GZIP;
+        }
+        if (name.endsWith(".zst") || name.endsWith(".zstd")) {
+            return Compression.ZSTD;
+        }
+        if (name.endsWith(".lz4")) {
+            return Compression.LZ4;
+        }
+        return Compression.NONE;
+    }
+
+    public static Compression detect(Path path) {
+        return detect(path.getFileName().toString());
+    }
+
+    public static boolean isCompressed(Path path) {
+        return detect(path) != Compression.NONE;
+    }
+
+    /**
+     * The file name without its compression extension: {@code trips.csv.gz} becomes {@code trips.csv}.
+     */
+    public static String baseName(String fileName) {
+        if (detect(fileName) == Compression.NONE) {
+            return fileName;
+        }
+        return fileName.substring(0, fileName.lastIndexOf('.'));
+    }
+
+    /**
+     * The extension to keep when storing a file, including a compression suffix, e.g. {@code .csv.gz}.
+     */
+    public static String extension(String fileName) {
+        String base = baseName(fileName);
+        int lastDot = base.lastIndexOf('.');
+        if (lastDot == -1) {
+            throw new IllegalArgumentException("File has no extension: " + fileName);
+        }
+        return fileName.substring(lastDot);
+    }
+
+    /**
+     * Wrap a stream of compressed bytes in a decoder; plain streams are returned unchanged.
+     */
+    public static InputStream decompress(InputStream in, Compression compression) throws IOException {
+        switch (compression) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case ZSTD:
+                return new BufferedInputStream(new ZstdInputStream(in), BUFFER_SIZE);
+            case LZ4:
+                return new BufferedInputStream(new LZ4FrameInputStream(in), BUFFER_SIZE);
+            case NONE:
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * Open a file and decode it according to its name.
+     */
+    public static InputStream open(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        try {
+            return decompress(in, detect(path));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+}
@@ -2,24 +2,38 @@ package com.ingestion.util;
 
 import com.ingestion.dto.FileConfig;
 import com.ingestion.dto.TableSchema;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import com.ingestion.util.batch.BatchSchema;
+import com.ingestion.util.batch.RowBatch;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Component
 public class FileParser {
 
     private final ObjectMapper objectMapper;
+    private final Map<Path, RowOffsetIndex> rowIndexes = new ConcurrentHashMap<>();
+
+    @Value("${file.preview.index-stride:1000}")
+    private int indexStride = 1000;
+
+    @Value("${file.schema.sample-size:1000}")
+    private int schemaSampleSize = 1000;
+
+    @Value("${file.schema.reservoir-sampling:false}")
+    private boolean reservoirSampling;
 
     public FileParser() {
         this.objectMapper = new ObjectMapper();
@@ -27,115 +41,266 @@ public class FileParser {
     }
 
     public TableSchema parseSchema(MultipartFile file, FileConfig config) throws IOException {
-        String fileType = getFileType(file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            return parseSchema(in, file.getOriginalFilename(), config, null);
+        }
+    }
+
+    /**
+     * Infer the schema of a file from a stream. With a progress counter the whole stream is read
+     * and every record is counted as read; without one, reading stops once the sample is full.
+     */
+    public TableSchema parseSchema(InputStream in, String fileName, FileConfig config, TransferProgress progress) throws IOException {
+        if (isColumnar(fileName)) {
+            // The schema of a columnar file is in its footer, so the stream is spooled to reach it
+            Path spool = Files.createTempFile("schema-", "." + getFileType(fileName));
+            try {
+                Files.copy(in, spool, StandardCopyOption.REPLACE_EXISTING);
+                return parseColumnarSchema(spool, fileName, progress);
+            } finally {
+                Files.deleteIfExists(spool);
+            }
+        }
+        String fileType = getFileType(FileCompression.baseName(fileName));
+        in = FileCompression.decompress(in, FileCompression.detect(fileName));
         
         switch (fileType.toLowerCase()) {
             case "csv":
-                return parseCsvSchema(file, config);
+                return parseCsvSchema(in, config, progress);
             case "json":
-                return parseJsonSchema(file);
+            case "ndjson":
+            case "jsonl":
+                return parseJsonSchema(in, progress);
             default:
                 throw new IllegalArgumentException("Unsupported file type: " + fileType);
         }
     }
 
+    /**
+     * Read the schema of a Parquet or Arrow file from its footer, without decoding any values; the
+     * preview is left empty. With a progress counter the footer row count is added as rows read.
+     *
+     * @param fileName the name the file was uploaded as, which decides the format
+     */
+    public TableSchema parseColumnarSchema(Path path, String fileName, TransferProgress progress) throws IOException {
+        List<TableSchema.Column> columns;
+        long rows;
+        if (isParquet(fileName)) {
+            ParquetFile parquet = ParquetFile.read(path);
+            columns = parquet.getColumns();
+            rows = parquet.getRowCount();
+        } else if (isColumnar(fileName)) {
+            ArrowFile arrow = ArrowFile.read(path);
+            columns = arrow.getColumns();
+            rows = arrow.getRowCount();
+        } else {
+            throw new IllegalArgumentException("Not a Parquet or Arrow file: " + fileName);
+        }
+        if (progress != null) {
+            progress.addRowsRead(rows);
+        }
+        return new TableSchema(columns, new ArrayList<>());
+    }
+
+    /**
+     * Whether a file name denotes Parquet or Arrow IPC (Feather v2) data, which ClickHouse decodes
+     * itself. Both formats compress their own pages, so no outer compression suffix is recognized.
+     */
+    public static boolean isColumnar(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return isParquet(name) || name.endsWith(".arrow") || name.endsWith(".feather") || name.endsWith(".ipc");
+    }
+
+    public static boolean isParquet(String fileName) {
+        return fileName.toLowerCase(Locale.ROOT).endsWith(".parquet");
+    }
+
     public List<Map<String, Object>> readData(Path filePath, FileConfig config, int page, int size) throws IOException {
-        String fileType = getFileType(filePath.getFileName().toString());
+        if (isColumnar(filePath.getFileName().toString())) {
+            throw new IllegalArgumentException("Row preview is not available for Parquet and Arrow files");
+        }
+        String fileType = getFileType(FileCompression.baseName(filePath.getFileName().toString()));
         
         switch (fileType.toLowerCase()) {
             case "csv":
-                return readCsvData(filePath, config, page, size);
+                // Compressed files cannot be seeked, so their pages are decoded from the start
+                return FileCompression.isCompressed(filePath)
+                        ? readCompressedCsvData(filePath, config, page, size)
+                        : readCsvData(filePath, config, page, size);
             case "json":
+            case "ndjson":
+            case "jsonl":
                 return readJsonData(filePath, page, size);
             default:
                 throw new IllegalArgumentException("Unsupported file type: " + fileType);
         }
     }
 
-    private TableSchema parseCsvSchema(MultipartFile file, FileConfig config) throws IOException {
-        try (Reader reader = new InputStreamReader(file.getInputStream());
-             CSVParser parser = CSVFormat.DEFAULT
-                     .withDelimiter(config.getDelimiter().charAt(0))
-                     .withFirstRecordAsHeader()
-                     .parse(reader)) {
-
-            List<TableSchema.Column> columns = new ArrayList<>();
+    private TableSchema parseCsvSchema(InputStream in, FileConfig config, TransferProgress progress) throws IOException {
+        try (CsvScanner records = new CsvScanner(in, config.getDelimiter().charAt(0))) {
+            List<String> headers = readHeader(records);
             List<Map<String, Object>> preview = new ArrayList<>();
-            
-            // Read first data row to infer types
-            if (parser.iterator().hasNext()) {
-                CSVRecord firstRow = parser.iterator().next();
-                for (String header : parser.getHeaderNames()) {
-                    String value = firstRow.get(header);
-                    columns.add(new TableSchema.Column(header, inferType(value), true, header, inferType(value)));
+            SchemaInferrer inferrer = new SchemaInferrer(schemaSampleSize, reservoirSampling);
+            while ((progress != null || inferrer.wantsMore()) && records.next()) {
+                if (progress != null) {
+                    progress.addRowsRead(1);
+                    if (!inferrer.wantsMore()) {
+                        // Counted without decoding a single field
+                        continue;
+                    }
                 }
-                
+                String[] row = new String[records.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = records.get(i);
+                }
+                inferrer.add(row);
+
                 // Add first row to preview
-                Map<String, Object> previewRow = new HashMap<>();
-                for (String header : parser.getHeaderNames()) {
-                    previewRow.put(header, firstRow.get(header));
+                if (preview.isEmpty()) {
+                    Map<String, Object> previewRow = new HashMap<>();
+                    for (int i = 0; i < headers.size(); i++) {
+                        previewRow.put(headers.get(i), i < row.length ? row[i] : null);
+                    }
+                    preview.add(previewRow);
                 }
-                preview.add(previewRow);
             }
 
+            List<TableSchema.Column> columns = preview.isEmpty()
+                    ? new ArrayList<>() : inferrer.infer(headers);
             return new TableSchema(columns, preview);
         }
     }
 
-    private TableSchema parseJsonSchema(MultipartFile file) throws IOException {
-        try (Reader reader = new InputStreamReader(file.getInputStream())) {
-            Map<String, Object> firstObject = objectMapper.readValue(reader, Map.class);
-            List<TableSchema.Column> columns = new ArrayList<>();
+    private TableSchema parseJsonSchema(InputStream in, TransferProgress progress) throws IOException {
+        try (JsonRecordReader records = new JsonRecordReader(in)) {
+            // Keys are numbered in order of first appearance; records missing a key sample it as null
+            Map<String, Integer> keys = new LinkedHashMap<>();
             List<Map<String, Object>> preview = new ArrayList<>();
-            
-            for (Map.Entry<String, Object> entry : firstObject.entrySet()) {
-                String type = inferType(entry.getValue());
-                columns.add(new TableSchema.Column(entry.getKey(), type, true, entry.getKey(), type));
+            SchemaInferrer inferrer = new SchemaInferrer(schemaSampleSize, reservoirSampling);
+            while (inferrer.wantsMore() && records.hasNext()) {
+                Map<String, Object> record = records.next();
+                for (String key : record.keySet()) {
+                    keys.putIfAbsent(key, keys.size());
+                }
+                String[] row = new String[keys.size()];
+                for (Map.Entry<String, Object> entry : record.entrySet()) {
+                    row[keys.get(entry.getKey())] = jsonText(entry.getValue());
+                }
+                inferrer.add(row);
+                if (preview.isEmpty()) {
+                    preview.add(record);
+                }
+                if (progress != null) {
+                    progress.addRowsRead(1);
+                }
             }
-            
-            preview.add(firstObject);
-            
-            return new TableSchema(columns, preview);
+            if (progress != null) {
+                progress.addRowsRead(records.skip(Long.MAX_VALUE));
+            }
+
+            return new TableSchema(inferrer.infer(new ArrayList<>(keys.keySet())), preview);
+        }
+    }
+
+    private String jsonText(Object value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Map || value instanceof List) {
+            return objectMapper.writeValueAsString(value);
         }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Build or refresh the persisted row-offset index for an uploaded delimited file.
+     */
+    public RowOffsetIndex indexFile(Path filePath, char delimiter) throws IOException {
+        RowOffsetIndex index = RowOffsetIndex.load(filePath, indexStride, delimiter);
+        rowIndexes.put(filePath.toAbsolutePath(), index);
+        return index;
+    }
+
+    private RowOffsetIndex rowIndex(Path filePath, char delimiter) throws IOException {
+        RowOffsetIndex index = rowIndexes.get(filePath.toAbsolutePath());
+        if (index != null && index.matches(indexStride, delimiter, Files.size(filePath),
+                Files.getLastModifiedTime(filePath).toMillis())) {
+            return index;
+        }
+        return indexFile(filePath, delimiter);
     }
 
     private List<Map<String, Object>> readCsvData(Path filePath, FileConfig config, int page, int size) throws IOException {
-        try (Reader reader = Files.newBufferedReader(filePath);
-             CSVParser parser = CSVFormat.DEFAULT
-                     .withDelimiter(config.getDelimiter().charAt(0))
-                     .withFirstRecordAsHeader()
-                     .parse(reader)) {
+        char delimiter = config.getDelimiter().charAt(0);
+        RowOffsetIndex index = rowIndex(filePath, delimiter);
+        long start = (long) page * size;
+        if (start >= index.getRecordCount() || size <= 0) {
+            return new ArrayList<>();
+        }
 
-            List<Map<String, Object>> result = new ArrayList<>();
-            int start = page * size;
-            int end = start + size;
-            int current = 0;
-
-            for (CSVRecord record : parser) {
-                if (current >= start && current < end) {
-                    Map<String, Object> row = new HashMap<>();
-                    for (String header : parser.getHeaderNames()) {
-                        row.put(header, record.get(header));
-                    }
-                    result.add(row);
-                }
-                current++;
-                if (current >= end) break;
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            List<String> headers;
+            try (CsvScanner records = CsvScanner.open(channel, 0, index.getHeaderEnd(), delimiter, null)) {
+                headers = readHeader(records);
+            }
+            // Seek to the nearest indexed record and scan only from there; mapped pages are read on access
+            try (CsvScanner records = CsvScanner.open(channel, index.seekOffset(start), channel.size(), delimiter, null)) {
+                return readPage(records, headers, index.recordsToSkip(start), size);
             }
+        }
+    }
 
-            return result;
+    private List<Map<String, Object>> readCompressedCsvData(Path filePath, FileConfig config, int page, int size) throws IOException {
+        try (CsvScanner records = new CsvScanner(FileCompression.open(filePath), config.getDelimiter().charAt(0))) {
+            List<String> headers = readHeader(records);
+            return readPage(records, headers, (long) page * size, size);
+        }
+    }
+
+    /**
+     * Read the first record as column names, rejecting blank ones as commons-csv does for a header.
+     */
+    private static List<String> readHeader(CsvScanner records) throws IOException {
+        List<String> headers = new ArrayList<>();
+        if (records.next()) {
+            for (int i = 0; i < records.size(); i++) {
+                headers.add(records.get(i));
+            }
+        }
+        for (String header : headers) {
+            if (header.trim().isEmpty()) {
+                throw new IllegalArgumentException("A header name is missing in " + headers);
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Skip records without decoding them, then read up to size records into a batch.
+     */
+    private static RowBatch readPage(CsvScanner records, List<String> headers, long skip, int size) throws IOException {
+        RowBatch result = new RowBatch(BatchSchema.strings(headers), Math.max(size, 1));
+        while (size > 0 && !result.isFull() && records.next()) {
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            int row = result.addRow();
+            for (int i = 0; i < headers.size(); i++) {
+                result.stringColumn(i).set(row, i < records.size() ? records.get(i) : null);
+            }
         }
+        return result;
     }
 
     private List<Map<String, Object>> readJsonData(Path filePath, int page, int size) throws IOException {
-        try (Reader reader = Files.newBufferedReader(filePath)) {
-            List<Map<String, Object>> allData = objectMapper.readValue(reader, 
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, Map.class));
-            
-            int start = page * size;
-            int end = Math.min(start + size, allData.size());
-            
-            return allData.subList(start, end);
+        try (JsonRecordReader records = new JsonRecordReader(FileCompression.open(filePath))) {
+            List<Map<String, Object>> result = new ArrayList<>();
+            records.skip((long) page * size);
+            while (result.size() < size && records.hasNext()) {
+                result.add(records.next());
+            }
+            return result;
         }
     }
 
@@ -146,19 +311,4 @@ public class FileParser {
         }
         return filename.substring(lastDot + 1);
     }
-
-    private String inferType(Object value) {
-        if (value == null) return "string";
-        
-        if (value instanceof Number) {
-            if (value instanceof Integer || value instanceof Long) {
-                return "integer";
-            } else if (value instanceof Float || value instanceof Double) {
-                return "float";
-            }
-        } else if (value instanceof Boolean) {
-            return "boolean";
-        }
-        return "string";
-    }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,321 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.util.batch.BatchSchema;
+import com.ingestion.util.batch.RowBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Overlaps parsing with inserting for a single stream of records. The calling thread parses into row
+ * batches and hands them over a bounded queue to one or more inserter threads, each on its own pooled
+ * connection. Batches are recycled through a fixed pool, so at most
+ * {@code queue-capacity + inserters + 1} batches exist at once and a parser that outruns the server
+ * blocks instead of buffering the file in memory. With several inserters batches may reach the table
+ * out of file order.
+ * <p>
+ * Batch sizes adapt to the measured row width and insert latency through an {@link AdaptiveBatchSizer},
+ * and a batch that has been filling for longer than the flush delay is handed over early. The delay is
+ * checked as rows arrive, so it bounds how long a batch fills while records keep coming; a source that
+ * blocks waiting for its next record holds the partial batch until that record or the end of input.
+ */
+@Component
+@DependsOn("clickHousePoolConfig")
+public class ImportPipeline {
+    private static final Logger log = LoggerFactory.getLogger(ImportPipeline.class);
+    private static final long POLL_MS = 100;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 1000;
+    // Handed to each inserter after the last batch
+    private static final RowBatch END = new RowBatch(BatchSchema.strings(Collections.emptyList()), 1);
+
+    @Value("${import.pipeline.inserters:2}")
+    private int inserters = 2;
+
+    @Value("${import.pipeline.queue-capacity:4}")
+    private int queueCapacity = 4;
+
+    @Value("${import.adaptive-batch.enabled:true}")
+    private boolean adaptiveBatches = true;
+
+    @Value("${import.adaptive-batch.min-rows:1000}")
+    private int minBatchRows = 1000;
+
+    @Value("${import.adaptive-batch.max-rows:1000000}")
+    private int maxBatchRows = 1000000;
+
+    @Value("${import.adaptive-batch.target-bytes:16777216}")
+    private long targetBatchBytes = 16777216;
+
+    @Value("${import.adaptive-batch.target-latency:1000}")
+    private long targetLatencyMs = 1000;
+
+    @Value("${import.adaptive-batch.max-delay:5000}")
+    private long maxDelayMs = 5000;
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "import-insert-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Fills a batch with the next records of a stream.
+     */
+    @FunctionalInterface
+    public interface BatchSource {
+        /**
+         * Empty the batch and read up to its capacity of records into it.
+         *
+         * @return number of records read, 0 at the end of the input
+         */
+        int read(RowBatch batch) throws IOException;
+    }
+
+    /**
+     * Writes batches for one inserter thread.
+     */
+    interface BatchSink extends AutoCloseable {
+        void write(RowBatch batch) throws Exception;
+
+        @Override
+        default void close() throws Exception {
+        }
+    }
+
+    interface SinkFactory {
+        BatchSink open() throws Exception;
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Whether imports should go through the pipeline; 0 inserters keeps them on the calling thread.
+     */
+    public boolean isEnabled() {
+        return inserters > 0;
+    }
+
+    /**
+     * Read string columns from delimited records; only the selected fields are decoded.
+     *
+     * @param sourceIndexes position in each record of the value for each target column
+     */
+    public static BatchSource csv(CsvScanner records, int[] sourceIndexes) {
+        return batch -> {
+            batch.reset();
+            while (!batch.isFull() && records.next()) {
+                int row = batch.addRow();
+                for (int i = 0; i < sourceIndexes.length; i++) {
+                    if (sourceIndexes[i] < records.size()) {
+                        batch.stringColumn(i).set(row, records.get(sourceIndexes[i]));
+                    }
+                }
+            }
+            return batch.size();
+        };
+    }
+
+    /**
+     * Insert every record of the source into the named columns of a table.
+     *
+     * @param batchSize rows of the first batch, and of every batch when adaptive sizing is off
+     * @return number of rows inserted
+     */
+    public long run(ClickHouseConfig config, String tableName, List<String> columns, BatchSource source,
+                    int batchSize, String jwt, TransferProgress progress) throws IOException {
+        String sql = ClickHouseUtil.buildInsertSql(tableName, columns);
+        // More inserters than pooled connections would only queue on the pool
+        int threads = Math.max(1, Math.min(inserters, ClickHouseConnectionPool.getSettings().getMaxSize()));
+        return run(columns, source, batchSize, threads, () -> new StatementSink(config, sql, jwt), progress);
+    }
+
+    long run(List<String> columns, BatchSource source, int batchSize, int threads, SinkFactory sinks,
+             TransferProgress progress) throws IOException {
+        BatchSchema schema = BatchSchema.strings(columns);
+        // A sizer without room to move keeps every batch at batchSize but still retries on too many parts
+        AdaptiveBatchSizer sizer = adaptiveBatches
+                ? new AdaptiveBatchSizer(batchSize, minBatchRows, maxBatchRows, targetBatchBytes, targetLatencyMs)
+                : new AdaptiveBatchSizer(batchSize, batchSize, batchSize, 0, 0);
+        int capacity = adaptiveBatches ? Math.max(batchSize, maxBatchRows) : batchSize;
+        int batchCount = queueCapacity + threads + 1;
+        BlockingQueue<RowBatch> free = new ArrayBlockingQueue<>(batchCount);
+        BlockingQueue<RowBatch> filled = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        for (int i = 0; i < batchCount; i++) {
+            // Storage grows with the rows actually added, so a large capacity costs nothing up front
+            free.add(new RowBatch(schema, capacity));
+        }
+        PipelineStage parse = progress.addStage("parse", 1);
+        PipelineStage insert = progress.addStage("insert", threads);
+
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> insert(sinks, filled, free, sizer, insert, progress)));
+        }
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                RowBatch batch = take(free, futures);
+                long start = System.nanoTime();
+                parse.addWait(start - waitStart);
+                batch.setLimit(sizer.nextRows(), maxDelayMs > 0 ? start + maxDelayMs * 1_000_000 : 0);
+                int rows = source.read(batch);
+                if (rows == 0) {
+                    parse.addBusy(System.nanoTime() - start);
+                    break;
+                }
+                parse.addBatch(System.nanoTime() - start);
+                progress.addRowsRead(rows);
+
+                waitStart = System.nanoTime();
+                put(filled, batch, futures);
+                parse.addWait(System.nanoTime() - waitStart);
+            }
+            for (int i = 0; i < threads; i++) {
+                put(filled, END, futures);
+            }
+
+            long rows = 0;
+            for (Future<Long> future : futures) {
+                rows += future.get();
+            }
+            log.debug("Pipeline inserted {} rows with {} inserters, last batch size {}", rows, threads, sizer.nextRows());
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to import data", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private long insert(SinkFactory sinks, BlockingQueue<RowBatch> filled, BlockingQueue<RowBatch> free,
+                        AdaptiveBatchSizer sizer, PipelineStage stage, TransferProgress progress) throws Exception {
+        long rows = 0;
+        try (BatchSink sink = sinks.open()) {
+            while (true) {
+                long waitStart = System.nanoTime();
+                RowBatch batch = filled.take();
+                long start = System.nanoTime();
+                stage.addWait(start - waitStart);
+                if (batch == END) {
+                    return rows;
+                }
+                write(sink, batch, sizer);
+                stage.addBatch(System.nanoTime() - start);
+                progress.addRowsWritten(batch.size());
+                rows += batch.size();
+                // Never blocks: the free queue has room for every batch
+                free.put(batch);
+            }
+        }
+    }
+
+    private static void write(BatchSink sink, RowBatch batch, AdaptiveBatchSizer sizer) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                sink.write(batch);
+                sizer.recordInsert(batch.size(), AdaptiveBatchSizer.estimateBytes(batch), System.nanoTime() - start);
+                return;
+            } catch (Exception e) {
+                if (!sizer.recordFailure(e) || attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Insert of {} rows rejected, retrying in {} ms: {}", batch.size(), RETRY_DELAY_MS * attempt,
+                        e.getMessage());
+                Thread.sleep(RETRY_DELAY_MS * attempt);
+            }
+        }
+    }
+
+    /**
+     * Wait for a batch, giving up as soon as an inserter has failed rather than blocking forever.
+     */
+    private static RowBatch take(BlockingQueue<RowBatch> queue, List<Future<Long>> inserters)
+            throws InterruptedException, ExecutionException {
+        RowBatch batch;
+        while ((batch = queue.poll(POLL_MS, TimeUnit.MILLISECONDS)) == null) {
+            checkInserters(inserters);
+        }
+        return batch;
+    }
+
+    private static void put(BlockingQueue<RowBatch> queue, RowBatch batch, List<Future<Long>> inserters)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, POLL_MS, TimeUnit.MILLISECONDS)) {
+            checkInserters(inserters);
+        }
+    }
+
+    private static void checkInserters(List<Future<Long>> inserters) throws InterruptedException, ExecutionException {
+        for (Future<Long> inserter : inserters) {
+            if (inserter.isDone()) {
+                // Rethrows the failure; an inserter only ends normally after the end marker
+                inserter.get();
+            }
+        }
+    }
+
+    private static final class StatementSink implements BatchSink {
+        private final Connection conn;
+        private final PreparedStatement stmt;
+
+        StatementSink(ClickHouseConfig config, String sql, String jwt) throws SQLException {
+            conn = ClickHouseUtil.getConnection(config, jwt);
+            try {
+                stmt = conn.prepareStatement(sql);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(RowBatch batch) throws SQLException {
+            ClickHouseUtil.addBatch(stmt, batch);
+            try {
+                stmt.executeBatch();
+            } catch (SQLException e) {
+                // Leave the statement empty for a retry of the same batch
+                stmt.clearBatch();
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                stmt.close();
+            } finally {
+                conn.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.ingestion.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingestion.util.batch.ColumnType;
+import com.ingestion.util.batch.RowBatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads JSON objects one at a time from either a top-level JSON array or newline-delimited JSON,
+ * so only the current record is held in memory.
+ */
+public class JsonRecordReader implements Iterator<Map<String, Object>>, Closeable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JavaType RECORD_TYPE =
+            MAPPER.getTypeFactory().constructMapType(LinkedHashMap.class, String.class, Object.class);
+
+    private final JsonParser parser;
+    private boolean started;
+    private boolean inArray;
+    private boolean pending;
+    private boolean finished;
+
+    public JsonRecordReader(InputStream in) throws IOException {
+        this.parser = MAPPER.getFactory().createParser(in);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pending) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            if (!started) {
+                started = true;
+                if (token == JsonToken.START_ARRAY) {
+                    inArray = true;
+                    token = parser.nextToken();
+                }
+            }
+            if (token == null || (inArray && token == JsonToken.END_ARRAY)) {
+                finished = true;
+                return false;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object at line "
+                        + parser.getCurrentLocation().getLineNr() + " but found " + token);
+            }
+            pending = true;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read JSON record", e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        pending = false;
+        try {
+            return MAPPER.readValue(parser, RECORD_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read JSON record", e);
+        }
+    }
+
+    /**
+     * Empty the batch and decode up to its capacity of records straight into its columns, without
+     * building a map per record. Keys not in the batch schema are skipped; nested objects and arrays
+     * are stored as JSON text in string columns.
+     *
+     * @return number of records read, 0 at the end of the input
+     */
+    public int readBatch(RowBatch batch) {
+        batch.reset();
+        return appendBatch(batch);
+    }
+
+    /**
+     * Decode records after the rows already in the batch, up to its capacity, so one batch can
+     * collect the records of several files.
+     *
+     * @return number of records added, 0 at the end of the input
+     */
+    public int appendBatch(RowBatch batch) {
+        int before = batch.size();
+        try {
+            while (!batch.isFull() && hasNext()) {
+                pending = false;
+                int row = batch.addRow();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    int column = batch.getSchema().indexOf(parser.getCurrentName());
+                    JsonToken value = parser.nextToken();
+                    if (column < 0) {
+                        parser.skipChildren();
+                    } else if (value != JsonToken.VALUE_NULL) {
+                        setValue(batch, column, row, value);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read JSON record", e);
+        }
+        return batch.size() - before;
+    }
+
+    private void setValue(RowBatch batch, int column, int row, JsonToken value) throws IOException {
+        ColumnType type = batch.getSchema().getType(column);
+        if (value.isStructStart() && type != ColumnType.STRING) {
+            parser.skipChildren();
+            return;
+        }
+        switch (type) {
+            case LONG:
+                batch.longColumn(column).set(row, parser.getValueAsLong());
+                break;
+            case DOUBLE:
+                batch.doubleColumn(column).set(row, parser.getValueAsDouble());
+                break;
+            case BOOLEAN:
+                batch.booleanColumn(column).set(row, parser.getValueAsBoolean());
+                break;
+            default:
+                String text;
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    text = MAPPER.writeValueAsString(MAPPER.readTree(parser));
+                } else if (value == JsonToken.VALUE_TRUE || value == JsonToken.VALUE_FALSE) {
+                    // Same form the JDBC driver uses, accepted by Bool and UInt8 columns alike
+                    text = value == JsonToken.VALUE_TRUE ? "1" : "0";
+                } else {
+                    text = parser.getText();
+                }
+                batch.stringColumn(column).set(row, text);
+        }
+    }
+
+    /**
+     * Skip records without materializing them.
+     *
+     * @return number of records actually skipped
+     */
+    public long skip(long count) {
+        long skipped = 0;
+        try {
+            while (skipped < count && hasNext()) {
+                parser.skipChildren();
+                pending = false;
+                skipped++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read JSON record", e);
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
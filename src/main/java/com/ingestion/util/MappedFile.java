@@ -0,0 +1,120 @@
+package com.ingestion.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads stored files through memory mappings instead of positional reads: bytes come straight from
+ * the page cache without a system call per block or a copy into a read buffer. A region up to 2 GiB
+ * can be mapped as one buffer for {@link CsvScanner}; longer ones are read as a stream over mapped
+ * windows. Mappings are released by the garbage collector, not when the channel closes.
+ */
+public final class MappedFile {
+    /** Largest region mapped as a single buffer. */
+    public static final long MAX_REGION = Integer.MAX_VALUE;
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private MappedFile() {
+    }
+
+    public static boolean fits(long start, long end) {
+        return end - start <= MAX_REGION;
+    }
+
+    /**
+     * Map the bytes [start, end) read-only.
+     */
+    public static MappedByteBuffer map(FileChannel channel, long start, long end) throws IOException {
+        if (!fits(start, end)) {
+            throw new IllegalArgumentException("Cannot map " + (end - start) + " bytes as one buffer");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    }
+
+    /**
+     * Stream the bytes [start, end) from consecutive mapped windows, adding consumed bytes to progress.
+     *
+     * @param progress counter of bytes read, or null
+     */
+    public static InputStream stream(FileChannel channel, long start, long end, TransferProgress progress) {
+        return new MappedInputStream(channel, start, end, progress);
+    }
+
+    private static class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private final TransferProgress progress;
+        private long position;
+        private ByteBuffer window;
+
+        MappedInputStream(FileChannel channel, long start, long end, TransferProgress progress) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextWindow()) {
+                return -1;
+            }
+            position++;
+            count(1);
+            return window.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextWindow()) {
+                return -1;
+            }
+            int read = Math.min(len, window.remaining());
+            window.get(b, off, read);
+            position += read;
+            count(read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            if (window != null && skipped <= window.remaining()) {
+                window.position(window.position() + (int) skipped);
+            } else {
+                window = null;
+            }
+            position += skipped;
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return window == null ? 0 : window.remaining();
+        }
+
+        private boolean nextWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            if (position >= end) {
+                return false;
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, end - position));
+            return true;
+        }
+
+        private void count(long bytes) {
+            if (progress != null) {
+                progress.addBytes(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.TableSchema;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Caches table lists and table schemas per connection identity, so repeated navigation in the UI
+ * is answered from memory instead of with several ClickHouse round-trips. Entries expire after a
+ * TTL, the least recently used ones are evicted beyond the size bound, and writes made by this
+ * application invalidate the affected table right away.
+ */
+@Component
+public class MetadataCache {
+    private static final Logger log = LoggerFactory.getLogger(MetadataCache.class);
+
+    @Value("${clickhouse.metadata-cache.ttl:60000}")
+    private long ttlMs = 60000;
+
+    @Value("${clickhouse.metadata-cache.max-entries:1000}")
+    private int maxEntries = 1000;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    // Bumped by every invalidation; a load that started before one is not stored
+    private long generation;
+
+    /**
+     * The tables of the configured database, loaded on a miss.
+     */
+    public List<String> getTables(ClickHouseConfig config, String jwt, Supplier<List<String>> loader) {
+        return get(Key.of(config, jwt, null), loader);
+    }
+
+    /**
+     * The schema and preview of a table, loaded on a miss.
+     */
+    public TableSchema getTableSchema(ClickHouseConfig config, String tableName, String jwt, Supplier<TableSchema> loader) {
+        return get(Key.of(config, jwt, tableName), loader);
+    }
+
+    /**
+     * Drop what is cached about a table, for every user, along with the table list of its database.
+     * The table name may be qualified as {@code database.table}.
+     */
+    public void invalidate(ClickHouseConfig config, String tableName) {
+        int dot = tableName == null ? -1 : tableName.indexOf('.');
+        String database = dot >= 0 ? tableName.substring(0, dot) : config.getDatabase();
+        String table = dot >= 0 ? tableName.substring(dot + 1) : tableName;
+        synchronized (this) {
+            generation++;
+            entries.keySet().removeIf(key -> Objects.equals(key.host, config.getHost()) && key.port == config.getPort()
+                    && Objects.equals(key.database, database)
+                    && (table == null || key.table == null || key.table.equals(table)));
+        }
+        log.debug("Invalidated cached metadata of {}.{} on {}:{}", database, table == null ? "*" : table,
+                config.getHost(), config.getPort());
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                return (T) entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            loadGeneration = generation;
+        }
+
+        // Loaded outside the lock so a slow server does not block hits on other keys
+        T value = loader.get();
+        synchronized (this) {
+            if (generation == loadGeneration && ttlMs > 0) {
+                entries.put(key, new Entry(value, System.currentTimeMillis() + ttlMs));
+            }
+        }
+        return value;
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class Key {
+        private final String host;
+        private final int port;
+        private final String database;
+        private final String username;
+        private final String password;
+        private final String jwt;
+        private final String table;
+
+        static Key of(ClickHouseConfig config, String jwt, String table) {
+            return new Key(config.getHost(), config.getPort(), config.getDatabase(),
+                    config.getUsername(), config.getPassword(), jwt, table);
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.ImportRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Imports a delimited or newline-delimited JSON file by splitting it into record-aligned byte ranges that are parsed
+ * and inserted concurrently, each worker on its own pooled connection. Parquet files are split on row groups instead.
+ */
+@Component
+@DependsOn("clickHousePoolConfig")
+public class ParallelImporter {
+    private static final Logger log = LoggerFactory.getLogger(ParallelImporter.class);
+
+    @Value("${import.parallel.workers:0}")
+    private int workers;
+
+    @Value("${import.parallel.chunk-size:67108864}")
+    private long chunkSize;
+
+    @Value("${import.batch-size:10000}")
+    private int batchSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        int poolSize = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        // More workers than pooled connections would only queue on the pool
+        poolSize = Math.max(1, Math.min(poolSize, ClickHouseConnectionPool.getSettings().getMaxSize()));
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "parallel-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Parallel importer started with {} workers and {} byte chunks", poolSize, chunkSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Import the records of a delimited file starting at dataStart.
+     *
+     * @param sourceIndexes position in each record of the value for each target column
+     * @return number of rows inserted
+     */
+    public long importCsv(ClickHouseConfig config, String tableName, List<String> columns, int[] sourceIndexes,
+                          Path file, long dataStart, char delimiter, String jwt, TransferProgress progress) throws IOException {
+        List<FileChunker.Chunk> chunks = FileChunker.splitCsv(file, dataStart, chunkSize, delimiter);
+        log.info("Importing {} into {} as {} chunks", file, tableName, chunks.size());
+        return runChunks(chunks, progress, chunk -> () ->
+                importChunk(config, tableName, columns, sourceIndexes, file, chunk, delimiter, jwt, progress));
+    }
+
+    /**
+     * Import a newline-delimited JSON file, one object per line.
+     *
+     * @return number of rows inserted
+     */
+    public long importJsonLines(ClickHouseConfig config, String tableName, List<String> columns,
+                                Path file, String jwt, TransferProgress progress) throws IOException {
+        List<FileChunker.Chunk> chunks = FileChunker.split(file, 0, chunkSize);
+        log.info("Importing {} into {} as {} chunks", file, tableName, chunks.size());
+        return runChunks(chunks, progress, chunk -> () ->
+                importJsonChunk(config, tableName, columns, file, chunk, jwt, progress));
+    }
+
+    /**
+     * Import a Parquet file by sending groups of consecutive row groups, each assembled into a file of
+     * its own with only the selected columns, to ClickHouse {@code FORMAT Parquet} concurrently.
+     *
+     * @param insertQuery statement such as {@code INSERT INTO t (a, b) FORMAT Parquet}
+     * @param columns top-level columns to send, or null for all of them
+     * @return number of rows inserted
+     */
+    public long importParquet(ClickHouseConfig config, String insertQuery, List<String> columns, Path file,
+                              ParquetFile parquet, String jwt, TransferProgress progress) {
+        List<List<Integer>> groups = parquet.splitRowGroups(chunkSize);
+        log.info("Importing {} as {} row group ranges", file, groups.size());
+        return runChunks(groups, progress, rowGroups -> () -> {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ParquetFile.Projection projection = parquet.open(channel, rowGroups, columns, progress);
+                long written = ClickHouseHttpClient.insertStream(config, insertQuery, projection.getStream(),
+                        ImportRequest.Compression.NONE, null, jwt);
+                // The footer row count stands in when the server does not report written rows
+                long rows = written >= 0 ? written : projection.getRowCount();
+                progress.addRowsRead(projection.getRowCount());
+                progress.addRowsWritten(rows);
+                log.debug("Row groups {} imported {} rows", rowGroups, rows);
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * Run one task per chunk. Chunks are inserted independently, so when one fails the rows of the others
+     * stay in the table; the failure reports how many had been inserted.
+     */
+    private <T> long runChunks(List<T> chunks, TransferProgress progress, Function<T, Callable<Long>> task) {
+        CompletionService<Long> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (T chunk : chunks) {
+            futures.add(completion.submit(task.apply(chunk)));
+        }
+
+        long rows = 0;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                rows += completion.take().get();
+            }
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Parallel import interrupted after " + progress.getRowsWritten()
+                    + " rows were inserted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to import data after " + progress.getRowsWritten()
+                    + " rows were inserted; they are not rolled back", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private long importChunk(ClickHouseConfig config, String tableName, List<String> columns, int[] sourceIndexes,
+                             Path file, FileChunker.Chunk chunk, char delimiter, String jwt, TransferProgress progress) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             CsvScanner records = CsvScanner.open(channel, chunk.getStart(), chunk.getEnd(), delimiter, progress);
+             Connection conn = ClickHouseUtil.getConnection(config, jwt)) {
+            long rows = ClickHouseUtil.insertRecords(conn, tableName, columns, sourceIndexes, records, batchSize, progress);
+            log.debug("Chunk {} [{}, {}) imported {} rows", chunk.getIndex(), chunk.getStart(), chunk.getEnd(), rows);
+            return rows;
+        }
+    }
+
+    private long importJsonChunk(ClickHouseConfig config, String tableName, List<String> columns,
+                                 Path file, FileChunker.Chunk chunk, String jwt, TransferProgress progress) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             JsonRecordReader records = new JsonRecordReader(FileChunker.open(channel, chunk, progress));
+             Connection conn = ClickHouseUtil.getConnection(config, jwt)) {
+            long rows = ClickHouseUtil.insertJsonRecords(conn, tableName, columns, records, batchSize, progress);
+            log.debug("Chunk {} [{}, {}) imported {} rows", chunk.getIndex(), chunk.getStart(), chunk.getEnd(), rows);
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.TableSchema;
+import org.apache.parquet.format.ColumnChunk;
+import org.apache.parquet.format.ColumnMetaData;
+import org.apache.parquet.format.ColumnOrder;
+import org.apache.parquet.format.ConvertedType;
+import org.apache.parquet.format.FieldRepetitionType;
+import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.LogicalType;
+import org.apache.parquet.format.RowGroup;
+import org.apache.parquet.format.SchemaElement;
+import org.apache.parquet.format.Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Footer-level access to a Parquet file: its schema, row groups and column chunk locations. Values are
+ * never decoded here; ClickHouse reads them with {@code FORMAT Parquet}. {@link #open} assembles a
+ * self-contained Parquet file from a subset of row groups and top-level columns by copying the
+ * selected column chunks unchanged and writing a footer with their new offsets, so projection and
+ * row-group parallelism cost no more than reading the selected bytes.
+ */
+public class ParquetFile {
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final int TRAILER_LENGTH = 8;
+    private static final String ARROW_SCHEMA_KEY = "ARROW:schema";
+
+    private final FileMetaData metadata;
+    private final List<Field> fields;
+
+    private ParquetFile(FileMetaData metadata) {
+        this.metadata = metadata;
+        this.fields = topLevelFields(metadata.getSchema());
+    }
+
+    public static ParquetFile read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    public static ParquetFile read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < MAGIC.length + TRAILER_LENGTH) {
+            throw new IllegalArgumentException("Not a Parquet file: too short");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, trailer, size - TRAILER_LENGTH);
+        ByteBuffer head = ByteBuffer.allocate(MAGIC.length);
+        readFully(channel, head, 0);
+        byte[] tail = Arrays.copyOfRange(trailer.array(), 4, TRAILER_LENGTH);
+        if (!Arrays.equals(MAGIC, head.array()) || !Arrays.equals(MAGIC, tail)) {
+            throw new IllegalArgumentException("Not a Parquet file or an encrypted one: magic bytes do not match");
+        }
+
+        int footerLength = trailer.getInt(0);
+        long footerStart = size - TRAILER_LENGTH - footerLength;
+        if (footerLength <= 0 || footerStart < MAGIC.length) {
+            throw new IllegalArgumentException("Corrupt Parquet footer length: " + footerLength);
+        }
+        ByteBuffer footer = ByteBuffer.allocate(footerLength);
+        readFully(channel, footer, footerStart);
+        return new ParquetFile(Util.readFileMetaData(new ByteArrayInputStream(footer.array())));
+    }
+
+    public long getRowCount() {
+        return metadata.getNum_rows();
+    }
+
+    public int getRowGroupCount() {
+        return metadata.getRow_groupsSize();
+    }
+
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            names.add(field.name);
+        }
+        return names;
+    }
+
+    /**
+     * One column per top-level field with the ClickHouse type its Parquet type maps to. Nested
+     * groups are suggested as String, as nested JSON values are.
+     */
+    public List<TableSchema.Column> getColumns() {
+        List<TableSchema.Column> columns = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            SchemaElement element = metadata.getSchema().get(field.schemaIndex);
+            String type = clickHouseType(element);
+            if (element.getRepetition_type() == FieldRepetitionType.REPEATED && element.isSetType()) {
+                type = "Array(" + type + ")";
+            } else if (element.getRepetition_type() == FieldRepetitionType.OPTIONAL && element.isSetType()) {
+                type = "Nullable(" + type + ")";
+            }
+            columns.add(new TableSchema.Column(field.name, ColumnTypeDetector.sourceType(type), true, field.name, type));
+        }
+        return columns;
+    }
+
+    /**
+     * Compressed size of the selected top-level columns over all row groups: the bytes {@link #open}
+     * reads from the file to cover every row.
+     *
+     * @param columns names of the top-level columns, or null for all of them
+     */
+    public long getDataBytes(Collection<String> columns) {
+        Set<Integer> selectedFields = selectFields(columns);
+        long bytes = 0;
+        for (RowGroup group : metadata.getRow_groups()) {
+            for (ColumnChunk chunk : group.getColumns()) {
+                ColumnMetaData column = chunk.getMeta_data();
+                if (selectedFields.contains(fieldIndex(column.getPath_in_schema().get(0)))) {
+                    bytes += column.getTotal_compressed_size();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Group consecutive row groups into ranges of about targetBytes of compressed data each, so that
+     * a file with many small row groups does not turn into as many inserts.
+     */
+    public List<List<Integer>> splitRowGroups(long targetBytes) {
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (int i = 0; i < metadata.getRow_groupsSize(); i++) {
+            long bytes = compressedSize(metadata.getRow_groups().get(i));
+            if (!current.isEmpty() && currentBytes + bytes > targetBytes) {
+                groups.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(i);
+            currentBytes += bytes;
+        }
+        if (!current.isEmpty()) {
+            groups.add(current);
+        }
+        return groups;
+    }
+
+    /**
+     * A stream over a Parquet file holding only the given row groups and top-level columns. The
+     * selected column chunks are read from the channel with positional reads as the stream is consumed.
+     *
+     * @param columns names of the top-level columns to keep, or null for all of them
+     */
+    public Projection open(FileChannel channel, List<Integer> rowGroups, Collection<String> columns,
+                           TransferProgress progress) throws IOException {
+        Set<Integer> selectedFields = selectFields(columns);
+        List<FileChunker.Chunk> ranges = new ArrayList<>();
+        List<RowGroup> keptGroups = new ArrayList<>();
+        long position = MAGIC.length;
+        long numRows = 0;
+
+        for (int index : rowGroups) {
+            RowGroup group = metadata.getRow_groups().get(index).deepCopy();
+            List<ColumnChunk> kept = new ArrayList<>();
+            long uncompressed = 0;
+            long compressed = 0;
+            for (ColumnChunk chunk : group.getColumns()) {
+                if (chunk.isSetCrypto_metadata()) {
+                    throw new IllegalArgumentException("Encrypted Parquet columns are not supported");
+                }
+                ColumnMetaData column = chunk.getMeta_data();
+                if (!selectedFields.contains(fieldIndex(column.getPath_in_schema().get(0)))) {
+                    continue;
+                }
+                long start = chunkStart(column);
+                long length = column.getTotal_compressed_size();
+                ranges.add(new FileChunker.Chunk(ranges.size(), start, start + length));
+                rebase(chunk, position - start);
+                if (kept.isEmpty()) {
+                    group.setFile_offset(position);
+                }
+                kept.add(chunk);
+                position += length;
+                uncompressed += column.getTotal_uncompressed_size();
+                compressed += length;
+            }
+            group.setColumns(kept);
+            group.setTotal_byte_size(uncompressed);
+            group.setTotal_compressed_size(compressed);
+            keptGroups.add(group);
+            numRows += group.getNum_rows();
+        }
+
+        FileMetaData footer = metadata.deepCopy();
+        footer.setRow_groups(keptGroups);
+        footer.setNum_rows(numRows);
+        if (selectedFields.size() < fields.size()) {
+            project(footer, selectedFields);
+        }
+        ByteArrayOutputStream trailer = new ByteArrayOutputStream();
+        Util.writeFileMetaData(footer, trailer);
+        int footerLength = trailer.size();
+        trailer.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(footerLength).array());
+        trailer.write(MAGIC);
+
+        List<InputStream> parts = new ArrayList<>(ranges.size() + 2);
+        parts.add(new ByteArrayInputStream(MAGIC));
+        for (FileChunker.Chunk range : ranges) {
+            parts.add(FileChunker.open(channel, range, progress));
+        }
+        parts.add(new ByteArrayInputStream(trailer.toByteArray()));
+        return new Projection(new SequenceInputStream(Collections.enumeration(parts)),
+                position + trailer.size(), position - MAGIC.length, numRows);
+    }
+
+    /**
+     * A Parquet file assembled on the fly, with its total size and the column chunk bytes it reads.
+     */
+    public static class Projection {
+        private final InputStream stream;
+        private final long size;
+        private final long dataBytes;
+        private final long rowCount;
+
+        Projection(InputStream stream, long size, long dataBytes, long rowCount) {
+            this.stream = stream;
+            this.size = size;
+            this.dataBytes = dataBytes;
+            this.rowCount = rowCount;
+        }
+
+        public InputStream getStream() {
+            return stream;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getDataBytes() {
+            return dataBytes;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+    }
+
+    private Set<Integer> selectFields(Collection<String> columns) {
+        Set<Integer> selected = new TreeSet<>();
+        if (columns == null || columns.isEmpty()) {
+            for (int i = 0; i < fields.size(); i++) {
+                selected.add(i);
+            }
+            return selected;
+        }
+        for (String column : columns) {
+            int index = fieldIndex(column);
+            if (index < 0) {
+                throw new IllegalArgumentException("Column not found in Parquet file: " + column);
+            }
+            selected.add(index);
+        }
+        return selected;
+    }
+
+    private int fieldIndex(String name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Keep only the selected top-level fields in the schema and their leaves in the column orders.
+     * The embedded Arrow schema describes every field, so it is dropped rather than left inconsistent.
+     */
+    private void project(FileMetaData footer, Set<Integer> selectedFields) {
+        List<SchemaElement> schema = metadata.getSchema();
+        List<SchemaElement> projected = new ArrayList<>();
+        projected.add(schema.get(0).deepCopy().setNum_children(selectedFields.size()));
+        List<ColumnOrder> orders = new ArrayList<>();
+        int leaf = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            boolean keep = selectedFields.contains(i);
+            if (keep) {
+                projected.addAll(schema.subList(field.schemaIndex, field.schemaEnd));
+            }
+            for (int s = field.schemaIndex; s < field.schemaEnd; s++) {
+                if (schema.get(s).getNum_children() == 0) {
+                    if (keep && metadata.isSetColumn_orders()) {
+                        orders.add(metadata.getColumn_orders().get(leaf));
+                    }
+                    leaf++;
+                }
+            }
+        }
+        footer.setSchema(projected);
+        if (metadata.isSetColumn_orders()) {
+            footer.setColumn_orders(orders);
+        }
+        if (footer.isSetKey_value_metadata()) {
+            footer.getKey_value_metadata().removeIf(entry -> ARROW_SCHEMA_KEY.equals(entry.getKey()));
+        }
+    }
+
+    /**
+     * Shift every offset of a copied column chunk; page indexes and bloom filters are not copied.
+     */
+    private static void rebase(ColumnChunk chunk, long delta) {
+        ColumnMetaData column = chunk.getMeta_data();
+        long start = chunkStart(column);
+        column.setData_page_offset(column.getData_page_offset() + delta);
+        if (column.isSetDictionary_page_offset()) {
+            if (hasDictionary(column)) {
+                column.setDictionary_page_offset(column.getDictionary_page_offset() + delta);
+            } else {
+                column.unsetDictionary_page_offset();
+            }
+        }
+        if (column.isSetIndex_page_offset()) {
+            column.unsetIndex_page_offset();
+        }
+        column.unsetBloom_filter_offset();
+        chunk.setFile_offset(start + delta);
+        chunk.unsetOffset_index_offset();
+        chunk.unsetOffset_index_length();
+        chunk.unsetColumn_index_offset();
+        chunk.unsetColumn_index_length();
+    }
+
+    private static long chunkStart(ColumnMetaData column) {
+        return hasDictionary(column) ? column.getDictionary_page_offset() : column.getData_page_offset();
+    }
+
+    /**
+     * Some writers set a zero dictionary offset for columns without one.
+     */
+    private static boolean hasDictionary(ColumnMetaData column) {
+        return column.isSetDictionary_page_offset() && column.getDictionary_page_offset() > 0
+                && column.getDictionary_page_offset() < column.getData_page_offset();
+    }
+
+    private static long compressedSize(RowGroup group) {
+        if (group.isSetTotal_compressed_size()) {
+            return group.getTotal_compressed_size();
+        }
+        long bytes = 0;
+        for (ColumnChunk chunk : group.getColumns()) {
+            bytes += chunk.getMeta_data().getTotal_compressed_size();
+        }
+        return bytes;
+    }
+
+    private static String clickHouseType(SchemaElement element) {
+        if (!element.isSetType()) {
+            return "String";
+        }
+        LogicalType logical = element.getLogicalType();
+        ConvertedType converted = element.getConverted_type();
+        if (logical != null) {
+            if (logical.isSetSTRING() || logical.isSetENUM() || logical.isSetJSON()) {
+                return "String";
+            }
+            if (logical.isSetUUID()) {
+                return "UUID";
+            }
+            if (logical.isSetDATE()) {
+                return "Date32";
+            }
+            if (logical.isSetDECIMAL()) {
+                return "Decimal(" + logical.getDECIMAL().getPrecision() + ", " + logical.getDECIMAL().getScale() + ")";
+            }
+            if (logical.isSetINTEGER()) {
+                return (logical.getINTEGER().isIsSigned() ? "Int" : "UInt") + logical.getINTEGER().getBitWidth();
+            }
+            if (logical.isSetTIMESTAMP()) {
+                org.apache.parquet.format.TimeUnit unit = logical.getTIMESTAMP().getUnit();
+                return unit.isSetMILLIS() ? "DateTime64(3)" : unit.isSetMICROS() ? "DateTime64(6)" : "DateTime64(9)";
+            }
+        } else if (converted != null) {
+            switch (converted) {
+                case UTF8:
+                case ENUM:
+                case JSON:
+                    return "String";
+                case DATE:
+                    return "Date32";
+                case DECIMAL:
+                    return "Decimal(" + element.getPrecision() + ", " + element.getScale() + ")";
+                case TIMESTAMP_MILLIS:
+                    return "DateTime64(3)";
+                case TIMESTAMP_MICROS:
+                    return "DateTime64(6)";
+                case INT_8:
+                    return "Int8";
+                case INT_16:
+                    return "Int16";
+                case UINT_8:
+                    return "UInt8";
+                case UINT_16:
+                    return "UInt16";
+                case UINT_32:
+                    return "UInt32";
+                case UINT_64:
+                    return "UInt64";
+                default:
+                    break;
+            }
+        }
+        switch (element.getType()) {
+            case BOOLEAN:
+                return "Bool";
+            case INT32:
+                return "Int32";
+            case INT64:
+                return "Int64";
+            case INT96:
+                return "DateTime64(9)";
+            case FLOAT:
+                return "Float32";
+            case DOUBLE:
+                return "Float64";
+            case FIXED_LEN_BYTE_ARRAY:
+                return "FixedString(" + element.getType_length() + ")";
+            case BYTE_ARRAY:
+            default:
+                return "String";
+        }
+    }
+
+    private static List<Field> topLevelFields(List<SchemaElement> schema) {
+        List<Field> fields = new ArrayList<>();
+        int index = 1;
+        int children = schema.get(0).getNum_children();
+        for (int i = 0; i < children && index < schema.size(); i++) {
+            int end = subtreeEnd(schema, index);
+            fields.add(new Field(schema.get(index).getName(), index, end));
+            index = end;
+        }
+        return fields;
+    }
+
+    private static int subtreeEnd(List<SchemaElement> schema, int index) {
+        int next = index + 1;
+        for (int child = 0; child < schema.get(index).getNum_children(); child++) {
+            next = subtreeEnd(schema, next);
+        }
+        return next;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of Parquet file");
+            }
+        }
+    }
+
+    /**
+     * A top-level field and the range [schemaIndex, schemaEnd) of its subtree in the flattened schema.
+     */
+    private static class Field {
+        private final String name;
+        private final int schemaIndex;
+        private final int schemaEnd;
+
+        Field(String name, int schemaIndex, int schemaEnd) {
+            this.name = name;
+            this.schemaIndex = schemaIndex;
+            this.schemaEnd = schemaEnd;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.StageMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counters of one pipeline stage, summed over the threads running it.
+ */
+public class PipelineStage {
+    private final String name;
+    private final int threads;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    public PipelineStage(String name, int threads) {
+        this.name = name;
+        this.threads = threads;
+    }
+
+    public void addBatch(long busy) {
+        batches.increment();
+        busyNanos.add(busy);
+    }
+
+    public void addBusy(long nanos) {
+        busyNanos.add(nanos);
+    }
+
+    public void addWait(long nanos) {
+        waitNanos.add(nanos);
+    }
+
+    public StageMetrics toMetrics() {
+        return new StageMetrics(name, threads, batches.sum(), busyNanos.sum() / 1_000_000, waitNanos.sum() / 1_000_000);
+    }
+}
@@ -0,0 +1,137 @@
+package com.ingestion.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which files of a watched directory were ingested, in an append-only text file with one
+ * line per file: its outcome, size, modification time and path. A file is identified by all three,
+ * so a file that is rewritten under the same name is new again. Appending a line per batch costs the
+ * same however long the ledger is, and a crash loses at most the lines of the batch being written.
+ */
+public class ProcessedFileLedger {
+    private final Path ledgerFile;
+    private final Map<Path, Entry> entries = new HashMap<>();
+
+    public enum Outcome {
+        INGESTED,
+        /** Failed after some of its rows may have been inserted, or after every attempt; not retried. */
+        FAILED
+    }
+
+    private static class Entry {
+        private final Outcome outcome;
+        private final long size;
+        private final long lastModified;
+
+        Entry(Outcome outcome, long size, long lastModified) {
+            this.outcome = outcome;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private ProcessedFileLedger(Path ledgerFile) {
+        this.ledgerFile = ledgerFile;
+    }
+
+    /**
+     * Read a ledger, dropping the entries of files that no longer exist and rewriting it when any were dropped.
+     */
+    public static ProcessedFileLedger open(Path ledgerFile) throws IOException {
+        ProcessedFileLedger ledger = new ProcessedFileLedger(ledgerFile);
+        if (!Files.exists(ledgerFile)) {
+            return ledger;
+        }
+        List<String> lines = Files.readAllLines(ledgerFile, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            String[] fields = line.split("\t", 4);
+            if (fields.length < 4) {
+                // A line cut short by a crash
+                continue;
+            }
+            ledger.entries.put(Paths.get(fields[3]),
+                    new Entry(Outcome.valueOf(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+        }
+        ledger.entries.keySet().removeIf(path -> !Files.exists(path));
+        if (ledger.entries.size() < lines.size()) {
+            ledger.compact();
+        }
+        return ledger;
+    }
+
+    /**
+     * Whether the file, as it is now, has been ingested or given up on.
+     */
+    public synchronized boolean contains(Path file) throws IOException {
+        Entry entry = entries.get(file);
+        if (entry == null) {
+            return false;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() == entry.size && attributes.lastModifiedTime().toMillis() == entry.lastModified;
+        } catch (NoSuchFileException e) {
+            return true;
+        }
+    }
+
+    public synchronized long count(Outcome outcome) {
+        return entries.values().stream().filter(entry -> entry.outcome == outcome).count();
+    }
+
+    /**
+     * Record files with their current size and modification time. They count as recorded only once
+     * their lines are on disk, so a failed write leaves both the ledger and its file as they were.
+     */
+    public synchronized void record(Collection<Path> files, Outcome outcome) throws IOException {
+        Map<Path, Entry> recorded = new LinkedHashMap<>();
+        StringBuilder lines = new StringBuilder();
+        for (Path file : files) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                // Deleted since it was read; there is nothing left to skip
+                continue;
+            }
+            Entry entry = new Entry(outcome, attributes.size(), attributes.lastModifiedTime().toMillis());
+            recorded.put(file, entry);
+            lines.append(line(file, entry));
+        }
+        if (ledgerFile.getParent() != null) {
+            // Shared with the watch definitions and their passwords
+            StateFiles.createDirectories(ledgerFile.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(ledgerFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC)) {
+            writer.write(lines.toString());
+        }
+        entries.putAll(recorded);
+    }
+
+    private void compact() throws IOException {
+        Path temp = ledgerFile.resolveSibling(ledgerFile.getFileName() + ".tmp");
+        StringBuilder lines = new StringBuilder();
+        entries.forEach((file, entry) -> lines.append(line(file, entry)));
+        Files.write(temp, lines.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, ledgerFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String line(Path file, Entry entry) {
+        return entry.outcome + "\t" + entry.size + "\t" + entry.lastModified + "\t" + file + "\n";
+    }
+}
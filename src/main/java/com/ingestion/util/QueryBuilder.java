@@ -0,0 +1,231 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.JoinTable;
+import com.ingestion.dto.QueryFilter;
+import com.ingestion.dto.TableSchema;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Builds a projected, filtered {@code SELECT} for one table, optionally joined to others. Naming the
+ * columns instead of {@code SELECT *} lets ClickHouse read only their column files, and joins, filters
+ * and limits are applied by the server before any row is sent. Identifiers are quoted and values are
+ * rendered as escaped literals, so nothing from a request is pasted into the SQL as is.
+ */
+public class QueryBuilder {
+    private final String table;
+    private final List<String> columns = new ArrayList<>();
+    private final List<QueryFilter> filters = new ArrayList<>();
+    private final List<JoinTable> joins = new ArrayList<>();
+    private Long limit;
+    private Long offset;
+
+    private QueryBuilder(String table) {
+        if (table == null || table.isEmpty()) {
+            throw new IllegalArgumentException("Table name is required");
+        }
+        this.table = table;
+    }
+
+    public static QueryBuilder select(String table) {
+        return new QueryBuilder(table);
+    }
+
+    /**
+     * Read the named columns; without any, every column is read.
+     */
+    public QueryBuilder columns(Collection<String> names) {
+        if (names != null) {
+            columns.addAll(names);
+        }
+        return this;
+    }
+
+    /**
+     * Read the columns of a schema that have {@code selected} set.
+     */
+    public QueryBuilder selected(Collection<TableSchema.Column> schemaColumns) {
+        if (schemaColumns != null) {
+            for (TableSchema.Column column : schemaColumns) {
+                if (column.isSelected()) {
+                    columns.add(column.getName());
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Join further tables. Column and filter names are then read as {@code alias.column} references,
+     * and each selected column is named after its reference in the output.
+     */
+    public QueryBuilder join(Collection<JoinTable> tables) {
+        if (tables != null) {
+            joins.addAll(tables);
+        }
+        return this;
+    }
+
+    public QueryBuilder where(Collection<QueryFilter> conditions) {
+        if (conditions != null) {
+            filters.addAll(conditions);
+        }
+        return this;
+    }
+
+    public QueryBuilder limit(Long limit) {
+        if (limit != null && limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public QueryBuilder offset(Long offset) {
+        if (offset != null && offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative: " + offset);
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    public String build() {
+        boolean joined = !joins.isEmpty();
+        StringBuilder sql = new StringBuilder("SELECT ");
+        sql.append(columns.isEmpty()
+                ? "*"
+                : columns.stream().distinct()
+                        .map(joined ? QueryBuilder::selectReference : ClickHouseUtil::quoteIdentifier)
+                        .collect(Collectors.joining(", ")));
+        sql.append(" FROM ").append(ClickHouseUtil.quoteTableName(table));
+        if (joined) {
+            appendJoins(sql);
+        }
+        if (!filters.isEmpty()) {
+            sql.append(" WHERE ").append(filters.stream().map(filter -> condition(filter, joined))
+                    .collect(Collectors.joining(" AND ")));
+        }
+        if (limit != null) {
+            sql.append(" LIMIT ").append(limit);
+            if (offset != null && offset > 0) {
+                sql.append(" OFFSET ").append(offset);
+            }
+        } else if (offset != null && offset > 0) {
+            // ClickHouse only accepts OFFSET after a LIMIT, so an unbounded page uses the largest one
+            sql.append(" LIMIT ").append(offset).append(", ").append(Long.MAX_VALUE);
+        }
+        return sql.toString();
+    }
+
+    private void appendJoins(StringBuilder sql) {
+        Set<String> aliases = new HashSet<>();
+        String mainAlias = defaultAlias(table);
+        aliases.add(mainAlias);
+        sql.append(" AS ").append(ClickHouseUtil.quoteIdentifier(mainAlias));
+        for (JoinTable join : joins) {
+            if (join.getTable() == null || join.getTable().isEmpty()) {
+                throw new IllegalArgumentException("Joined table name is required");
+            }
+            String alias = join.getAlias() != null && !join.getAlias().isEmpty() ? join.getAlias() : defaultAlias(join.getTable());
+            if (!aliases.add(alias)) {
+                throw new IllegalArgumentException("Duplicate table alias " + alias + "; set a distinct alias for each joined table");
+            }
+            if (join.getOn() == null || join.getOn().isEmpty()) {
+                throw new IllegalArgumentException("Join of " + join.getTable() + " needs at least one key");
+            }
+            JoinTable.Type type = join.getType() != null ? join.getType() : JoinTable.Type.INNER;
+            sql.append(' ').append(type.getSql()).append(' ').append(ClickHouseUtil.quoteTableName(join.getTable()))
+                    .append(" AS ").append(ClickHouseUtil.quoteIdentifier(alias)).append(" ON ");
+            List<String> keys = new ArrayList<>();
+            for (JoinTable.Key key : join.getOn()) {
+                if (key.getLeft() == null || key.getLeft().isEmpty() || key.getRight() == null || key.getRight().isEmpty()) {
+                    throw new IllegalArgumentException("Join key of " + join.getTable() + " needs a left and a right column");
+                }
+                keys.add(columnReference(key.getLeft()) + " = " + columnReference(key.getRight()));
+            }
+            sql.append(String.join(" AND ", keys));
+        }
+    }
+
+    /**
+     * The alias of a table that has none set: its name without the database.
+     */
+    private static String defaultAlias(String tableName) {
+        return tableName.substring(tableName.indexOf('.') + 1);
+    }
+
+    /**
+     * Quote an {@code alias.column} reference; a name without an alias is left for ClickHouse to resolve.
+     */
+    private static String columnReference(String reference) {
+        int dot = reference.indexOf('.');
+        if (dot < 0) {
+            return ClickHouseUtil.quoteIdentifier(reference);
+        }
+        return ClickHouseUtil.quoteIdentifier(reference.substring(0, dot)) + "."
+                + ClickHouseUtil.quoteIdentifier(reference.substring(dot + 1));
+    }
+
+    /**
+     * A selected column named after its reference, so equally named columns of different tables
+     * stay apart in the output header.
+     */
+    private static String selectReference(String reference) {
+        return reference.indexOf('.') < 0
+                ? ClickHouseUtil.quoteIdentifier(reference)
+                : columnReference(reference) + " AS " + ClickHouseUtil.quoteIdentifier(reference);
+    }
+
+    private static String condition(QueryFilter filter, boolean joined) {
+        if (filter.getColumn() == null || filter.getColumn().isEmpty()) {
+            throw new IllegalArgumentException("Filter column is required");
+        }
+        if (filter.getOperator() == null) {
+            throw new IllegalArgumentException("Filter operator is required for column " + filter.getColumn());
+        }
+        String column = joined ? columnReference(filter.getColumn()) : ClickHouseUtil.quoteIdentifier(filter.getColumn());
+        QueryFilter.Operator operator = filter.getOperator();
+        switch (operator) {
+            case IS_NULL:
+            case IS_NOT_NULL:
+                return column + " " + operator.getSql();
+            case IN:
+            case NOT_IN:
+                if (!(filter.getValue() instanceof Collection) || ((Collection<?>) filter.getValue()).isEmpty()) {
+                    throw new IllegalArgumentException(operator + " on column " + filter.getColumn()
+                            + " needs a non-empty list of values");
+                }
+                return column + " " + operator.getSql() + " ("
+                        + ((Collection<?>) filter.getValue()).stream().map(QueryBuilder::literal)
+                                .collect(Collectors.joining(", ")) + ")";
+            default:
+                if (filter.getValue() == null || filter.getValue() instanceof Collection) {
+                    throw new IllegalArgumentException(operator + " on column " + filter.getColumn()
+                            + " needs a single value");
+                }
+                return column + " " + operator.getSql() + " " + literal(filter.getValue());
+        }
+    }
+
+    /**
+     * A SQL literal for a JSON value: numbers and booleans as they are, anything else as a quoted string.
+     */
+    static String literal(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return "'" + value.toString().replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+}
@@ -0,0 +1,258 @@
+package com.ingestion.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Sparse index of CSV record start offsets: the byte offset of every Nth data record after the header.
+ * The index is persisted beside the data file as {@code <file>.idx} and rebuilt when the file or delimiter changes.
+ */
+public class RowOffsetIndex {
+    private static final Logger log = LoggerFactory.getLogger(RowOffsetIndex.class);
+    private static final int MAGIC = 0x52494458; // "RIDX"
+    private static final int VERSION = 2;
+    private static final long SCAN_SEGMENT_SIZE = 256L * 1024 * 1024;
+    static final String SUFFIX = ".idx";
+
+    private final int stride;
+    private final char delimiter;
+    private final long fileSize;
+    private final long lastModified;
+    private final long headerEnd;
+    private final long recordCount;
+    private final long[] offsets;
+
+    private RowOffsetIndex(int stride, char delimiter, long fileSize, long lastModified, long headerEnd,
+                           long recordCount, long[] offsets) {
+        this.stride = stride;
+        this.delimiter = delimiter;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.headerEnd = headerEnd;
+        this.recordCount = recordCount;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Load the persisted index for the file, building and persisting it when missing or stale.
+     */
+    public static RowOffsetIndex load(Path file, int stride, char delimiter) throws IOException {
+        Path indexFile = indexPath(file);
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        if (Files.exists(indexFile)) {
+            try {
+                RowOffsetIndex index = read(indexFile);
+                if (index.matches(stride, delimiter, size, modified)) {
+                    return index;
+                }
+            } catch (IOException e) {
+                log.warn("Discarding unreadable row index {}", indexFile, e);
+            }
+        }
+
+        RowOffsetIndex index = build(file, stride, delimiter);
+        try {
+            index.write(indexFile);
+        } catch (IOException e) {
+            // Preview still works from the in-memory index
+            log.warn("Failed to persist row index {}", indexFile, e);
+        }
+        return index;
+    }
+
+    /**
+     * Scan the file once and record where every stride-th data record starts.
+     * Line breaks inside double-quoted values do not end a record, and blank lines are not records.
+     * As in {@link CsvScanner}, a quote opens a quoted value only at the start of a field.
+     */
+    public static RowOffsetIndex build(Path file, int stride, char delimiter) throws IOException {
+        if (stride <= 0) {
+            throw new IllegalArgumentException("Index stride must be positive: " + stride);
+        }
+        long started = System.nanoTime();
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        long[] offsets = new long[16];
+        int offsetCount = 0;
+        long headerEnd = -1;
+        long records = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean quoted = false;
+            boolean closingQuote = false;
+            boolean fieldStart = true;
+            boolean hasContent = false;
+            long recordStart = 0;
+            long position = 0;
+
+            // Scanned in mapped segments, so the whole pass runs without a read call per block
+            while (position < size) {
+                ByteBuffer buffer = MappedFile.map(channel, position, Math.min(size, position + SCAN_SEGMENT_SIZE));
+                int read = buffer.remaining();
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer.get(i);
+                    if (quoted) {
+                        if (b == '"') {
+                            quoted = false;
+                            closingQuote = true;
+                        }
+                        continue;
+                    }
+                    if (closingQuote) {
+                        closingQuote = false;
+                        if (b == '"') {
+                            quoted = true;
+                            continue;
+                        }
+                    }
+                    if (b == '"' && fieldStart) {
+                        quoted = true;
+                        fieldStart = false;
+                        hasContent = true;
+                    } else if (b == '\n') {
+                        if (hasContent) {
+                            if (headerEnd < 0) {
+                                headerEnd = position + i + 1;
+                            } else {
+                                if (records % stride == 0) {
+                                    if (offsetCount == offsets.length) {
+                                        offsets = Arrays.copyOf(offsets, offsetCount * 2);
+                                    }
+                                    offsets[offsetCount++] = recordStart;
+                                }
+                                records++;
+                            }
+                        }
+                        hasContent = false;
+                        fieldStart = true;
+                        recordStart = position + i + 1;
+                    } else {
+                        fieldStart = b == delimiter || b == '\r';
+                        if (b != '\r') {
+                            hasContent = true;
+                        }
+                    }
+                }
+                position += read;
+            }
+
+            // Last record without a trailing line break
+            if (hasContent) {
+                if (headerEnd < 0) {
+                    headerEnd = size;
+                } else {
+                    if (records % stride == 0) {
+                        if (offsetCount == offsets.length) {
+                            offsets = Arrays.copyOf(offsets, offsetCount + 1);
+                        }
+                        offsets[offsetCount++] = recordStart;
+                    }
+                    records++;
+                }
+            }
+
+            log.debug("Indexed {} records of {} in {} ms", records, file, (System.nanoTime() - started) / 1_000_000);
+            return new RowOffsetIndex(stride, delimiter, size, modified, Math.max(headerEnd, 0), records,
+                    Arrays.copyOf(offsets, offsetCount));
+        }
+    }
+
+    /**
+     * Number of data records in the file, excluding the header.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Byte offset just past the header record.
+     */
+    public long getHeaderEnd() {
+        return headerEnd;
+    }
+
+    /**
+     * Offset of the nearest indexed record at or before the given record number.
+     */
+    public long seekOffset(long record) {
+        int slot = (int) Math.min(record / stride, offsets.length - 1L);
+        return slot < 0 ? headerEnd : offsets[slot];
+    }
+
+    /**
+     * Number of records to skip after {@link #seekOffset(long)} to reach the given record.
+     */
+    public long recordsToSkip(long record) {
+        if (offsets.length == 0) {
+            return record;
+        }
+        return record - Math.min(record / stride, offsets.length - 1L) * stride;
+    }
+
+    public boolean matches(int expectedStride, char expectedDelimiter, long expectedSize, long expectedModified) {
+        return stride == expectedStride && delimiter == expectedDelimiter && fileSize == expectedSize
+                && lastModified == expectedModified;
+    }
+
+    static Path indexPath(Path file) {
+        return file.resolveSibling(file.getFileName().toString() + SUFFIX);
+    }
+
+    private static RowOffsetIndex read(Path indexFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a row index: " + indexFile);
+            }
+            int stride = in.readInt();
+            char delimiter = in.readChar();
+            long fileSize = in.readLong();
+            long lastModified = in.readLong();
+            long headerEnd = in.readLong();
+            long recordCount = in.readLong();
+            long[] offsets = new long[in.readInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = in.readLong();
+            }
+            return new RowOffsetIndex(stride, delimiter, fileSize, lastModified, headerEnd, recordCount, offsets);
+        }
+    }
+
+    private void write(Path indexFile) throws IOException {
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(stride);
+            out.writeChar(delimiter);
+            out.writeLong(fileSize);
+            out.writeLong(lastModified);
+            out.writeLong(headerEnd);
+            out.writeLong(recordCount);
+            out.writeInt(offsets.length);
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
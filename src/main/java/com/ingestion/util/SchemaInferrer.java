@@ -0,0 +1,73 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.TableSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Collects a sample of rows in one pass and infers a ClickHouse type per column from it.
+ * The sample is either the first rows or a uniform reservoir sample across the whole input.
+ */
+public class SchemaInferrer {
+    private final int sampleSize;
+    private final boolean reservoir;
+    private final List<String[]> sample = new ArrayList<>();
+    private final SplittableRandom random = new SplittableRandom();
+    private long seen;
+
+    public SchemaInferrer(int sampleSize, boolean reservoir) {
+        this.sampleSize = Math.max(1, sampleSize);
+        this.reservoir = reservoir;
+    }
+
+    /**
+     * Whether further rows can still change the sample. Head sampling stops after sampleSize rows.
+     */
+    public boolean wantsMore() {
+        return reservoir || sample.size() < sampleSize;
+    }
+
+    /**
+     * Offer one row; values are positional and {@code null} marks a missing value.
+     */
+    public void add(String[] row) {
+        seen++;
+        if (sample.size() < sampleSize) {
+            sample.add(row);
+        } else if (reservoir) {
+            long slot = random.nextLong(seen);
+            if (slot < sampleSize) {
+                sample.set((int) slot, row);
+            }
+        }
+    }
+
+    public int getSampledRows() {
+        return sample.size();
+    }
+
+    /**
+     * Run one detector per column over the sample, columns in parallel.
+     */
+    public List<TableSchema.Column> infer(List<String> names) {
+        ColumnTypeDetector[] detectors = new ColumnTypeDetector[names.size()];
+        IntStream.range(0, detectors.length).parallel().forEach(column -> {
+            ColumnTypeDetector detector = new ColumnTypeDetector();
+            for (String[] row : sample) {
+                detector.accept(column < row.length ? row[column] : null);
+            }
+            detectors[column] = detector;
+        });
+
+        List<TableSchema.Column> columns = new ArrayList<>(names.size());
+        for (int i = 0; i < detectors.length; i++) {
+            String name = names.get(i);
+            columns.add(new TableSchema.Column(name, detectors[i].getSourceType(), true, name,
+                    detectors[i].getClickHouseType()));
+        }
+        return columns;
+    }
+}
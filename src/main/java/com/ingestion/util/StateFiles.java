@@ -0,0 +1,84 @@
+package com.ingestion.util;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ingestion.dto.ClickHouseConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * Reads and writes the JSON state files of schedules and watches, which hold connection settings with
+ * their passwords. API responses leave passwords out; the mapper of these files writes them, and every
+ * file and directory created here is readable by its owner only where the file system supports it.
+ */
+public final class StateFiles {
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    private StateFiles() {
+    }
+
+    /**
+     * A mapper for state files: Java time as ISO text, unknown properties ignored, passwords included.
+     */
+    public static ObjectMapper mapper() {
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .addMixIn(ClickHouseConfig.class, StoredCredentials.class)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .enable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * Create a directory and any missing parents, owner-only.
+     */
+    public static void createDirectories(Path directory) throws IOException {
+        if (POSIX) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Write the value through an owner-only temporary sibling and an atomic move, so a crash leaves either
+     * the previous or the new state and the file is never readable by others, even briefly.
+     */
+    public static void write(ObjectMapper mapper, Path path, Object value) throws IOException {
+        if (path.getParent() != null) {
+            createDirectories(path.getParent());
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        // Left over by a crash, possibly with wider permissions
+        Files.deleteIfExists(temp);
+        Files.createFile(temp, ownerOnly());
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            mapper.writeValue(out, value);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static FileAttribute<?>[] ownerOnly() {
+        return POSIX
+                ? new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))}
+                : new FileAttribute<?>[0];
+    }
+
+    /**
+     * Undoes the write-only access of {@link ClickHouseConfig#getPassword()} for state files.
+     */
+    private abstract static class StoredCredentials {
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        private String password;
+    }
+}
@@ -0,0 +1,114 @@
+package com.ingestion.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Copies every byte read from the source to a second stream and a SHA-256 digest, so a consumer
+ * such as a parser can read an upload while it is being written to disk. Closing the tee leaves
+ * both streams open, so the caller can still {@link #drain()} what the consumer left unread.
+ */
+public class TeeInputStream extends FilterInputStream {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final OutputStream copy;
+    private final MessageDigest digest;
+    private long count;
+
+    public TeeInputStream(InputStream in, OutputStream copy) {
+        super(in);
+        this.copy = copy;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            copy.write(b);
+            digest.update((byte) b);
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            copy.write(b, off, n);
+            digest.update(b, off, n);
+            count += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes still have to reach the copy
+        byte[] buffer = new byte[8192];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() {
+        // Source and copy are owned by the caller
+    }
+
+    /**
+     * Read whatever the consumer left unread, so the copy and digest cover the whole source.
+     */
+    public void drain() throws IOException {
+        byte[] buffer = new byte[8192];
+        while (read(buffer, 0, buffer.length) >= 0) {
+            // copied by read
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Hex SHA-256 of the bytes read so far. Call once, after the source is exhausted.
+     */
+    public String getChecksum() {
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
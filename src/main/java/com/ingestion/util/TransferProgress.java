@@ -0,0 +1,117 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.StageMetrics;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Thread-safe byte and row counters for a running import or export. A cancelled transfer is stopped
+ * by the next counter update, which throws {@link CancellationException} on the thread doing the work.
+ */
+public class TransferProgress {
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private volatile long totalBytes = -1;
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos = -1;
+    private volatile boolean cancelled;
+    private final List<PipelineStage> stages = new CopyOnWriteArrayList<>();
+
+    public void start() {
+        startNanos = System.nanoTime();
+        endNanos = -1;
+    }
+
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void addBytes(long count) {
+        checkCancelled();
+        bytes.addAndGet(count);
+    }
+
+    public void addRowsRead(long count) {
+        checkCancelled();
+        rowsRead.addAndGet(count);
+    }
+
+    public void addRowsWritten(long count) {
+        // Counted first: the rows are already in the table
+        rowsWritten.addAndGet(count);
+        checkCancelled();
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Transfer cancelled");
+        }
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    /**
+     * Expected size of the transfer in bytes, or -1 when unknown.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Register a stage of a pipelined transfer, whose timings are reported with the progress.
+     */
+    public PipelineStage addStage(String name, int threads) {
+        PipelineStage stage = new PipelineStage(name, threads);
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Timings of each pipeline stage so far, empty when the transfer is not pipelined.
+     */
+    public List<StageMetrics> getStages() {
+        return stages.stream().map(PipelineStage::toMetrics).collect(Collectors.toList());
+    }
+
+    public long getElapsedMillis() {
+        long end = endNanos < 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1_000_000;
+    }
+
+    public double getRowsPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : Math.max(rowsRead.get(), rowsWritten.get()) * 1000.0 / elapsed;
+    }
+
+    public double getBytesPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : bytes.get() * 1000.0 / elapsed;
+    }
+}
@@ -0,0 +1,155 @@
+package com.ingestion.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ingestion.dto.ClickHouseConfig;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persists the high-watermarks of incremental exports in a local JSON file, keyed by server, database,
+ * table and watermark column. Every update rewrites the file through a temporary sibling and an atomic
+ * move, so a crash leaves either the previous or the new state. A key can be locked by one export at a
+ * time, which keeps two runs from reading the same watermark and exporting the same rows twice.
+ */
+@Component
+public class WatermarkStore {
+    private static final Logger log = LoggerFactory.getLogger(WatermarkStore.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Value("${file.export.watermark-file:${file.export.dir}/watermarks.json}")
+    private String stateFile;
+
+    private Map<String, Watermark> watermarks;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The state of one incremental export.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Watermark {
+        /**
+         * Highest exported value of the column: a number for numeric columns, the text ClickHouse
+         * prints for anything else.
+         */
+        private Object value;
+        /** Number of the last part file written. */
+        private long part;
+        /** Rows exported by all runs together. */
+        private long rows;
+        private String updatedAt;
+    }
+
+    /**
+     * The key of an export: {@code host:port/database/table/column}, with {@code #name} appended when set.
+     */
+    public static String key(ClickHouseConfig config, String table, String column, String name) {
+        String key = config.getHost() + ":" + config.getPort() + "/" + config.getDatabase() + "/" + table + "/" + column;
+        return name == null || name.isEmpty() ? key : key + "#" + name;
+    }
+
+    public synchronized Watermark get(String key) {
+        Watermark watermark = load().get(key);
+        return watermark == null ? null
+                : new Watermark(watermark.getValue(), watermark.getPart(), watermark.getRows(), watermark.getUpdatedAt());
+    }
+
+    public synchronized Map<String, Watermark> getAll() {
+        return Collections.unmodifiableMap(new TreeMap<>(load()));
+    }
+
+    public synchronized void put(String key, Watermark watermark) {
+        Watermark previous = load().put(key, watermark);
+        try {
+            save();
+        } catch (UncheckedIOException e) {
+            // Keep memory in line with the file, so a restart does not move the watermark back
+            if (previous == null) {
+                watermarks.remove(key);
+            } else {
+                watermarks.put(key, previous);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Forget a watermark, so the next export of the key reads the whole table again.
+     *
+     * @return false when there was none
+     */
+    public synchronized boolean remove(String key) {
+        if (load().remove(key) == null) {
+            return false;
+        }
+        save();
+        return true;
+    }
+
+    /**
+     * Claim a key for one export.
+     *
+     * @return false when another export holds it
+     */
+    public boolean lock(String key) {
+        return running.add(key);
+    }
+
+    public void unlock(String key) {
+        running.remove(key);
+    }
+
+    private Map<String, Watermark> load() {
+        if (watermarks == null) {
+            Path path = Paths.get(stateFile);
+            Map<String, Watermark> loaded = new TreeMap<>();
+            if (Files.exists(path)) {
+                try {
+                    loaded.putAll(MAPPER.readValue(path.toFile(), new TypeReference<Map<String, Watermark>>() {}));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read export watermarks from " + path, e);
+                }
+                log.info("Loaded {} export watermarks from {}", loaded.size(), path);
+            }
+            watermarks = loaded;
+        }
+        return watermarks;
+    }
+
+    private void save() {
+        Path path = Paths.get(stateFile);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            MAPPER.writeValue(temp.toFile(), watermarks);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write export watermarks to " + path, e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.ingestion.util.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column names and storage types shared by every {@link RowBatch} of one stream.
+ */
+public class BatchSchema {
+    private final List<String> names;
+    private final List<ColumnType> types;
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    public BatchSchema(List<String> names, List<ColumnType> types) {
+        if (names.size() != types.size()) {
+            throw new IllegalArgumentException("Got " + names.size() + " column names but " + types.size() + " types");
+        }
+        this.names = Collections.unmodifiableList(new ArrayList<>(names));
+        this.types = Collections.unmodifiableList(new ArrayList<>(types));
+        for (int i = 0; i < names.size(); i++) {
+            positions.putIfAbsent(names.get(i), i);
+        }
+    }
+
+    /**
+     * Schema where every column is stored as dictionary-encoded text.
+     */
+    public static BatchSchema strings(List<String> names) {
+        return new BatchSchema(names, Collections.nCopies(names.size(), ColumnType.STRING));
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String getName(int column) {
+        return names.get(column);
+    }
+
+    public ColumnType getType(int column) {
+        return types.get(column);
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Position of the named column, or -1 when the schema has no such column.
+     */
+    public int indexOf(String name) {
+        Integer position = positions.get(name);
+        return position == null ? -1 : position;
+    }
+}
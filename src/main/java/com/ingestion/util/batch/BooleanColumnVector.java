@@ -0,0 +1,46 @@
+package com.ingestion.util.batch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class BooleanColumnVector extends ColumnVector {
+    private byte[] values;
+
+    BooleanColumnVector(int capacity) {
+        super(capacity);
+        values = new byte[capacity];
+    }
+
+    public void set(int row, boolean value) {
+        values[row] = (byte) (value ? 1 : 0);
+        nulls[row] = false;
+    }
+
+    public boolean getBoolean(int row) {
+        return values[row] != 0;
+    }
+
+    @Override
+    public Object getObject(int row) {
+        return nulls[row] ? null : values[row] != 0;
+    }
+
+    @Override
+    public String getText(int row) {
+        // Same form the JDBC driver uses, accepted by Bool and UInt8 columns alike
+        return values[row] != 0 ? "1" : "0";
+    }
+
+    @Override
+    void writeJson(int row, JsonGenerator gen) throws IOException {
+        gen.writeBoolean(values[row] != 0);
+    }
+
+    @Override
+    void grow(int capacity) {
+        super.grow(capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
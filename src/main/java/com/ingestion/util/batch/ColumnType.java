@@ -0,0 +1,62 @@
+package com.ingestion.util.batch;
+
+/**
+ * Physical storage of a column in a {@link RowBatch}.
+ */
+public enum ColumnType {
+    LONG,
+    DOUBLE,
+    BOOLEAN,
+    /** Exact numeric kept as text and written to JSON as a number, e.g. Decimal or UInt64. */
+    DECIMAL,
+    STRING;
+
+    /**
+     * Storage for a ClickHouse column type such as {@code Nullable(Int32)} or {@code LowCardinality(String)}.
+     */
+    public static ColumnType forClickHouseType(String typeName) {
+        String type = typeName == null ? "" : typeName;
+        while (type.startsWith("Nullable(") || type.startsWith("LowCardinality(")) {
+            type = type.substring(type.indexOf('(') + 1, type.length() - 1);
+        }
+        switch (type) {
+            case "Int8":
+            case "Int16":
+            case "Int32":
+            case "Int64":
+            case "UInt8":
+            case "UInt16":
+            case "UInt32":
+                return LONG;
+            case "UInt64":
+            case "Int128":
+            case "UInt128":
+            case "Int256":
+            case "UInt256":
+                return DECIMAL;
+            case "Float32":
+            case "Float64":
+                return DOUBLE;
+            case "Bool":
+                return BOOLEAN;
+            default:
+                return type.startsWith("Decimal") ? DECIMAL : STRING;
+        }
+    }
+
+    ColumnVector newVector(int capacity) {
+        switch (this) {
+            case LONG:
+                return new LongColumnVector(capacity);
+            case DOUBLE:
+                return new DoubleColumnVector(capacity);
+            case BOOLEAN:
+                return new BooleanColumnVector(capacity);
+            case DECIMAL:
+                return new StringColumnVector(capacity, true);
+            case STRING:
+            default:
+                return new StringColumnVector(capacity, false);
+        }
+    }
+}
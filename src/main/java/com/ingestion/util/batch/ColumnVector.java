@@ -0,0 +1,49 @@
+package com.ingestion.util.batch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * One column of a {@link RowBatch}. Values live in a primitive array sized to the batch
+ * capacity; rows start out null until a value is set.
+ */
+public abstract class ColumnVector {
+    protected boolean[] nulls;
+
+    protected ColumnVector(int capacity) {
+        nulls = new boolean[capacity];
+        Arrays.fill(nulls, true);
+    }
+
+    public boolean isNull(int row) {
+        return nulls[row];
+    }
+
+    public void setNull(int row) {
+        nulls[row] = true;
+    }
+
+    /**
+     * Boxed value of a row, only for callers that need objects such as the map view.
+     */
+    public abstract Object getObject(int row);
+
+    /**
+     * Text form of a non-null row as sent to ClickHouse.
+     */
+    public abstract String getText(int row);
+
+    abstract void writeJson(int row, JsonGenerator gen) throws IOException;
+
+    void grow(int capacity) {
+        int previous = nulls.length;
+        nulls = Arrays.copyOf(nulls, capacity);
+        Arrays.fill(nulls, previous, capacity, true);
+    }
+
+    void reset(int size) {
+        Arrays.fill(nulls, 0, size, true);
+    }
+}
@@ -0,0 +1,45 @@
+package com.ingestion.util.batch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class DoubleColumnVector extends ColumnVector {
+    private double[] values;
+
+    DoubleColumnVector(int capacity) {
+        super(capacity);
+        values = new double[capacity];
+    }
+
+    public void set(int row, double value) {
+        values[row] = value;
+        nulls[row] = false;
+    }
+
+    public double getDouble(int row) {
+        return values[row];
+    }
+
+    @Override
+    public Object getObject(int row) {
+        return nulls[row] ? null : values[row];
+    }
+
+    @Override
+    public String getText(int row) {
+        return Double.toString(values[row]);
+    }
+
+    @Override
+    void writeJson(int row, JsonGenerator gen) throws IOException {
+        gen.writeNumber(values[row]);
+    }
+
+    @Override
+    void grow(int capacity) {
+        super.grow(capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
@@ -0,0 +1,220 @@
+package com.ingestion.util.batch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A batch of rows stored column by column in primitive vectors that share one {@link BatchSchema}.
+ * Producers fill it with {@link #addRow()} and the typed vector setters; writers read the vectors
+ * directly. The batch is also a read-only {@code List} of row maps so it can stand in wherever
+ * rows are exposed as maps: each map is a view created on access, and JSON serialization writes
+ * straight from the vectors without creating maps at all.
+ */
+public class RowBatch extends AbstractList<Map<String, Object>> implements JsonSerializable {
+    private final BatchSchema schema;
+    private final ColumnVector[] columns;
+    private final int capacity;
+    private int allocated;
+    private int size;
+    private int limit;
+    private long deadline;
+
+    /**
+     * @param capacity maximum rows before {@link #isFull()}; storage grows on demand up to it
+     */
+    public RowBatch(BatchSchema schema, int capacity) {
+        this.schema = schema;
+        this.capacity = capacity;
+        this.limit = capacity;
+        this.allocated = Math.max(1, Math.min(capacity, 1024));
+        this.columns = new ColumnVector[schema.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = schema.getType(i).newVector(allocated);
+        }
+    }
+
+    public BatchSchema getSchema() {
+        return schema;
+    }
+
+    public ColumnVector column(int column) {
+        return columns[column];
+    }
+
+    public LongColumnVector longColumn(int column) {
+        return (LongColumnVector) columns[column];
+    }
+
+    public DoubleColumnVector doubleColumn(int column) {
+        return (DoubleColumnVector) columns[column];
+    }
+
+    public BooleanColumnVector booleanColumn(int column) {
+        return (BooleanColumnVector) columns[column];
+    }
+
+    public StringColumnVector stringColumn(int column) {
+        return (StringColumnVector) columns[column];
+    }
+
+    /**
+     * Append a row with every column null and return its index.
+     */
+    public int addRow() {
+        if (size >= capacity) {
+            throw new IllegalStateException("Row batch is full at " + capacity + " rows");
+        }
+        if (size == allocated) {
+            allocated = (int) Math.min(capacity, allocated * 2L);
+            for (ColumnVector column : columns) {
+                column.grow(allocated);
+            }
+        }
+        return size++;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Report the batch full from the given number of rows, at most its capacity, or once
+     * {@link System#nanoTime()} passes the deadline, so producers hand over smaller batches while
+     * input is slow. The deadline is only seen when the producer asks after adding a row, so it cannot
+     * end a batch while the producer is blocked reading the next one. Kept across {@link #reset()}.
+     *
+     * @param deadlineNanos {@code System.nanoTime()} value to flush at, or 0 for none
+     */
+    public void setLimit(int rows, long deadlineNanos) {
+        this.limit = Math.max(1, Math.min(rows, capacity));
+        this.deadline = deadlineNanos;
+    }
+
+    public boolean isFull() {
+        if (size >= limit) {
+            return true;
+        }
+        // The clock is read every 16 rows only, which keeps it off the per-row cost
+        return deadline != 0 && size > 0 && (size & 15) == 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Empty the batch for reuse, keeping its storage.
+     */
+    public void reset() {
+        for (ColumnVector column : columns) {
+            column.reset(size);
+        }
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Map<String, Object> get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return new RowView(row);
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeStartArray();
+        for (int row = 0; row < size; row++) {
+            writeRow(row, gen);
+        }
+        gen.writeEndArray();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        WritableTypeId typeId = typeSer.writeTypePrefix(gen, typeSer.typeId(this, JsonToken.START_ARRAY));
+        for (int row = 0; row < size; row++) {
+            writeRow(row, gen);
+        }
+        typeSer.writeTypeSuffix(gen, typeId);
+    }
+
+    private void writeRow(int row, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        for (int i = 0; i < columns.length; i++) {
+            gen.writeFieldName(schema.getName(i));
+            if (columns[i].isNull(row)) {
+                gen.writeNull();
+            } else {
+                columns[i].writeJson(row, gen);
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * Read-only map over one row; values are boxed only when read.
+     */
+    private class RowView extends AbstractMap<String, Object> {
+        private final int row;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int column = key instanceof String ? schema.indexOf((String) key) : -1;
+            return column < 0 ? null : columns[column].getObject(row);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && schema.indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int column;
+
+                        @Override
+                        public boolean hasNext() {
+                            return column < columns.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int current = column++;
+                            return new SimpleImmutableEntry<>(schema.getName(current), columns[current].getObject(row));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return columns.length;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.ingestion.util.batch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary-encoded text: each distinct value is stored once per batch and rows hold its code,
+ * so repetitive columns keep one String per distinct value instead of one per row. A column that
+ * turns out to be mostly unique, such as timestamps or ids, falls back to plain references for
+ * the rest of the batch, since the dictionary would only add lookups.
+ */
+public class StringColumnVector extends ColumnVector {
+    private static final int MIN_DICTIONARY_SIZE = 1024;
+
+    private final boolean numeric;
+    private int[] codes;
+    private String[] values;
+    private boolean direct;
+    private int assigned;
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> lookup = new HashMap<>();
+
+    StringColumnVector(int capacity, boolean numeric) {
+        super(capacity);
+        this.numeric = numeric;
+        this.codes = new int[capacity];
+    }
+
+    public void set(int row, String value) {
+        if (value == null) {
+            nulls[row] = true;
+            return;
+        }
+        nulls[row] = false;
+        if (direct) {
+            values[row] = value;
+            return;
+        }
+        Integer code = lookup.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            lookup.put(value, code);
+        }
+        codes[row] = code;
+        if (++assigned >= MIN_DICTIONARY_SIZE && dictionary.size() * 2 > assigned) {
+            switchToDirect();
+        }
+    }
+
+    public String getString(int row) {
+        return nulls[row] ? null : value(row);
+    }
+
+    /**
+     * Number of distinct values held in this batch, or -1 once the column stores plain references.
+     */
+    public int getDictionarySize() {
+        return direct ? -1 : dictionary.size();
+    }
+
+    @Override
+    public Object getObject(int row) {
+        return getString(row);
+    }
+
+    @Override
+    public String getText(int row) {
+        return value(row);
+    }
+
+    @Override
+    void writeJson(int row, JsonGenerator gen) throws IOException {
+        if (numeric) {
+            gen.writeNumber(value(row));
+        } else {
+            gen.writeString(value(row));
+        }
+    }
+
+    @Override
+    void grow(int capacity) {
+        super.grow(capacity);
+        codes = Arrays.copyOf(codes, capacity);
+        if (values != null) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    @Override
+    void reset(int size) {
+        super.reset(size);
+        if (values != null) {
+            Arrays.fill(values, 0, size, null);
+        }
+        direct = false;
+        assigned = 0;
+        dictionary.clear();
+        lookup.clear();
+    }
+
+    private String value(int row) {
+        return direct ? values[row] : dictionary.get(codes[row]);
+    }
+
+    private void switchToDirect() {
+        if (values == null || values.length < codes.length) {
+            values = new String[codes.length];
+        }
+        for (int row = 0; row < codes.length; row++) {
+            if (!nulls[row]) {
+                values[row] = dictionary.get(codes[row]);
+            }
+        }
+        direct = true;
+        dictionary.clear();
+        lookup.clear();
+    }
+}
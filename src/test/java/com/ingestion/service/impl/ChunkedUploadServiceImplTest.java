@@ -0,0 +1,73 @@
+package com.ingestion.service.impl;
+
+import com.ingestion.dto.UploadSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChunkedUploadServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ChunkedUploadServiceImpl uploadService = new ChunkedUploadServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(uploadService, "uploadDir", tempDir.toString());
+    }
+
+    @Test
+    void completeUpload_ReassemblesChunksReceivedOutOfOrder() throws IOException {
+        byte[] content = new byte[2500];
+        new Random(7).nextBytes(content);
+        UploadSession session = uploadService.startUpload("trips.csv", content.length, 1000);
+        assertEquals(3, session.getChunkCount());
+        assertEquals(Arrays.asList(0, 1, 2), session.getMissingChunks());
+
+        String uploadId = session.getUploadId();
+        uploadService.writeChunk(uploadId, 2, new ByteArrayInputStream(content, 2000, 500));
+        UploadSession partial = uploadService.writeChunk(uploadId, 0, new ByteArrayInputStream(content, 0, 1000)).get();
+        assertEquals(Collections.singletonList(1), partial.getMissingChunks());
+        assertThrows(IllegalStateException.class, () -> uploadService.completeUpload(uploadId));
+
+        // Resuming after a failure only resends the missing chunk
+        uploadService.writeChunk(uploadId, 1, new ByteArrayInputStream(content, 1000, 1000));
+        Path stored = Paths.get(uploadService.completeUpload(uploadId).get());
+
+        assertArrayEquals(content, Files.readAllBytes(stored));
+        assertTrue(stored.toString().endsWith(".csv"));
+        assertFalse(uploadService.getUpload(uploadId).isPresent());
+    }
+
+    @Test
+    void writeChunk_RejectsWrongLengthAndIndex() throws IOException {
+        String uploadId = uploadService.startUpload("trips.csv", 1500, 1000).getUploadId();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.writeChunk(uploadId, 0, new ByteArrayInputStream(new byte[999])));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.writeChunk(uploadId, 1, new ByteArrayInputStream(new byte[501])));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.writeChunk(uploadId, 2, new ByteArrayInputStream(new byte[1])));
+        assertEquals(0, uploadService.getUpload(uploadId).get().getReceivedChunks());
+    }
+
+    @Test
+    void getUpload_IgnoresIdsThatAreNotUuids() throws IOException {
+        assertFalse(uploadService.getUpload("../../etc").isPresent());
+        assertFalse(uploadService.abortUpload("not-an-id"));
+    }
+}
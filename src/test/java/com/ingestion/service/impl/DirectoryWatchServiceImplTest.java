@@ -0,0 +1,207 @@
+package com.ingestion.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.FileConfig;
+import com.ingestion.dto.WatchRequest;
+import com.ingestion.dto.WatchStatus;
+import com.ingestion.util.ImportPipeline;
+import com.ingestion.util.MetadataCache;
+import com.ingestion.util.TransferProgress;
+import com.ingestion.util.batch.BatchSchema;
+import com.ingestion.util.batch.RowBatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class DirectoryWatchServiceImplTest {
+
+    @Mock
+    private ImportPipeline importPipeline;
+
+    @Mock
+    private MetadataCache metadataCache;
+
+    @TempDir
+    Path tempDir;
+
+    private Path inbox;
+    private DirectoryWatchServiceImpl watchService;
+    private final List<List<String>> inserts = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws Exception {
+        inbox = Files.createDirectory(tempDir.resolve("inbox"));
+        when(importPipeline.run(any(), eq("trips"), anyList(), any(), anyInt(), isNull(), any(TransferProgress.class)))
+            .thenAnswer(invocation -> {
+                List<String> columns = invocation.getArgument(2);
+                ImportPipeline.BatchSource source = invocation.getArgument(3);
+                TransferProgress progress = invocation.getArgument(6);
+                RowBatch batch = new RowBatch(BatchSchema.strings(columns), 100);
+                List<String> ids = new ArrayList<>();
+                while (source.read(batch) > 0) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        ids.add((String) batch.get(i).get("id"));
+                    }
+                }
+                progress.addRowsWritten(ids.size());
+                inserts.add(ids);
+                return (long) ids.size();
+            });
+        watchService = newService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        watchService.stop();
+    }
+
+    @Test
+    void startWatch_CoalescesNewFilesIntoOneInsert() throws Exception {
+        write("a.csv", "id,name\n1,x\n");
+        WatchStatus started = watchService.startWatch(request("*.csv"));
+        write("b.csv", "id,name\n2,y\n3,z\n");
+        write("ignored.json", "{\"id\": 9}\n");
+        write(".c.csv.tmp", "id,name\n9,w\n");
+
+        WatchStatus status = await(started.getWatchId(), s -> s.getFilesIngested() == 2);
+
+        assertEquals(List.of(List.of("1", "2", "3")), inserts);
+        assertEquals(1, status.getBatches());
+        assertEquals(3, status.getRowsWritten());
+        assertEquals(2, status.getLastBatchFiles());
+        assertEquals(WatchStatus.State.RUNNING, status.getState());
+        verify(metadataCache, atLeastOnce()).invalidate(any(), eq("trips"));
+    }
+
+    @Test
+    void start_ResumesWatchWithoutReloadingFiles() throws Exception {
+        write("a.csv", "id,name\n1,x\n");
+        String id = watchService.startWatch(request("*.csv")).getWatchId();
+        await(id, s -> s.getFilesIngested() == 1);
+        watchService.stop();
+
+        write("b.csv", "id,name\n2,y\n");
+        watchService = newService();
+
+        WatchStatus status = await(id, s -> s.getFilesIngested() == 2);
+        assertEquals(List.of(List.of("1"), List.of("2")), inserts);
+        assertEquals(1, status.getBatches());
+    }
+
+    @Test
+    void start_KeepsPasswordsInOwnerOnlyStateButNotInResponses() throws Exception {
+        WatchRequest request = request("*.csv");
+        request.setConnection(new ClickHouseConfig("ch", 8123, "default", "loader", "secret"));
+        String id = watchService.startWatch(request).getWatchId();
+
+        Path state = tempDir.resolve("state");
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(state)));
+        assertEquals("rw-------",
+            PosixFilePermissions.toString(Files.getPosixFilePermissions(state.resolve("watches.json"))));
+        String response = new ObjectMapper().registerModule(new JavaTimeModule())
+            .writeValueAsString(watchService.getWatch(id).orElseThrow(AssertionError::new));
+        assertFalse(response.contains("secret"));
+        watchService.stop();
+
+        watchService = newService();
+
+        WatchStatus resumed = watchService.getWatch(id).orElseThrow(AssertionError::new);
+        assertEquals("secret", resumed.getRequest().getConnection().getPassword());
+    }
+
+    @Test
+    void ingest_RetriesFailedFileAloneThenGivesUp() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        when(importPipeline.run(any(), eq("trips"), anyList(), any(), anyInt(), isNull(), any(TransferProgress.class)))
+            .thenAnswer(invocation -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("Table trips does not exist");
+            });
+        write("a.csv", "id,name\n1,x\n");
+        String id = watchService.startWatch(request("*.csv")).getWatchId();
+
+        WatchStatus status = await(id, s -> s.getFilesFailed() == 1 && s.getFilesPending() == 0);
+
+        assertEquals(2, calls.get());
+        assertEquals("Table trips does not exist", status.getError());
+    }
+
+    @Test
+    void startWatch_RejectsInvalidRequests() {
+        WatchRequest missing = request("*.csv");
+        missing.setDirectory(tempDir.resolve("missing").toString());
+        assertThrows(IllegalArgumentException.class, () -> watchService.startWatch(missing));
+        WatchRequest parquet = request("*.parquet");
+        parquet.setFileConfig(new FileConfig(",", true, 0, FileConfig.FileType.PARQUET));
+        assertThrows(IllegalArgumentException.class, () -> watchService.startWatch(parquet));
+
+        String id = watchService.startWatch(request("*.csv")).getWatchId();
+        assertThrows(IllegalStateException.class, () -> watchService.startWatch(request("*.csv.gz")));
+        assertTrue(watchService.stopWatch(id));
+        assertFalse(watchService.stopWatch(id));
+        assertTrue(watchService.listWatches().isEmpty());
+    }
+
+    private DirectoryWatchServiceImpl newService() {
+        DirectoryWatchServiceImpl service = new DirectoryWatchServiceImpl(importPipeline, metadataCache);
+        ReflectionTestUtils.setField(service, "stateDir", tempDir.resolve("state").toString());
+        ReflectionTestUtils.setField(service, "settleTimeMs", 100L);
+        ReflectionTestUtils.setField(service, "batchDelayMs", 500L);
+        ReflectionTestUtils.setField(service, "retryDelayMs", 50L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 2);
+        service.start();
+        return service;
+    }
+
+    private WatchRequest request(String pattern) {
+        WatchRequest request = new WatchRequest();
+        request.setConnection(new ClickHouseConfig());
+        request.setDirectory(inbox.toString());
+        request.setPattern(pattern);
+        request.setTable("trips");
+        request.setFileConfig(new FileConfig(",", true, 0, null));
+        return request;
+    }
+
+    private WatchStatus await(String watchId, Predicate<WatchStatus> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            WatchStatus status = watchService.getWatch(watchId).orElseThrow(AssertionError::new);
+            if (condition.test(status)) {
+                return status;
+            }
+            Thread.sleep(20);
+        }
+        fail("Watch " + watchId + " did not reach the expected state");
+        return null;
+    }
+
+    private void write(String name, String content) throws Exception {
+        Files.write(inbox.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,145 @@
+package com.ingestion.service.impl;
+
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.ExportRequest;
+import com.ingestion.dto.ExportResult;
+import com.ingestion.util.ClickHouseConnectionPool;
+import com.ingestion.util.TransferProgress;
+import com.ingestion.util.WatermarkStore;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.yandex.clickhouse.util.ClickHouseLZ4OutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs exports against a fake ClickHouse HTTP endpoint that answers both the JDBC driver, whose
+ * responses are LZ4 framed, and the streaming client.
+ */
+public class ExportServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private ClickHouseConfig config;
+    private ExportServiceImpl exportService;
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+    // Result of the watermark query: new rows, highest value and its type
+    private final AtomicReference<String> high = new AtomicReference<>("2\t5\tUInt32");
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String query;
+            try (InputStream in = exchange.getRequestBody()) {
+                query = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            queries.add(query);
+            byte[] body;
+            if (query.startsWith("select timezone()")) {
+                body = compressed("timezone()\tversion()\nString\tString\nUTC\t22.3.1\n");
+            } else if (query.startsWith("SELECT 1")) {
+                body = compressed("1\nUInt8\n1\n");
+            } else if (query.contains("AS new_rows")) {
+                body = compressed("new_rows\thigh\ttype\nUInt64\tString\tString\n" + high.get() + "\n");
+            } else {
+                body = "id,name\n4,d\n5,e\n".getBytes(StandardCharsets.UTF_8);
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        config = new ClickHouseConfig("localhost", server.getAddress().getPort(), "test_db", "test_user", "test_pass");
+
+        WatermarkStore watermarks = new WatermarkStore();
+        ReflectionTestUtils.setField(watermarks, "stateFile", tempDir.resolve("watermarks.json").toString());
+        exportService = new ExportServiceImpl(watermarks);
+        ReflectionTestUtils.setField(exportService, "exportDir", tempDir.resolve("exports").toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ClickHouseConnectionPool.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void exportToFile_IncrementalExportsRowsAboveWatermark() throws Exception {
+        ExportResult first = exportService.exportToFile(incremental("trips", "daily"), null, new TransferProgress());
+
+        assertEquals("5", first.getWatermark());
+        assertEquals(2, first.getRows());
+        Path part = Path.of(first.getFilePath());
+        assertEquals(tempDir.resolve("exports").resolve("trips-daily.part-000001.csv"), part);
+        assertEquals("id,name\n4,d\n5,e\n", Files.readString(part));
+        WatermarkStore.Watermark stored = exportService.getWatermarks().values().iterator().next();
+        assertEquals(new BigDecimal("5"), stored.getValue());
+        assertEquals(1, stored.getPart());
+
+        high.set("0\t\tNullable(UInt32)");
+        queries.clear();
+        ExportResult second = exportService.exportToFile(incremental("trips", "daily"), null, new TransferProgress());
+
+        assertNull(second.getFilePath());
+        assertEquals(0, second.getRows());
+        assertEquals("5", second.getWatermark());
+        assertTrue(queries.stream().anyMatch(query -> query.contains("AS new_rows") && query.contains("> 5")), queries.toString());
+    }
+
+    @Test
+    void exportToFile_KeepsFilesInsideExportDirectory() throws Exception {
+        ExportResult result = exportService.exportToFile(incremental("../../outside", "../x"), null, new TransferProgress());
+
+        Path part = Path.of(result.getFilePath()).toAbsolutePath().normalize();
+        assertEquals(tempDir.resolve("exports").toAbsolutePath().normalize(), part.getParent());
+        assertFalse(Files.exists(tempDir.getParent().resolve("outside-..-x.part-000001.csv")));
+    }
+
+    private ExportRequest incremental(String table, String name) {
+        ExportRequest request = new ExportRequest();
+        request.setConnection(config);
+        request.setTable(table);
+        request.setFormat(ExportRequest.Format.CSV_WITH_NAMES);
+        ExportRequest.Incremental incremental = new ExportRequest.Incremental();
+        incremental.setColumn("id");
+        incremental.setName(name);
+        incremental.setOutput(ExportRequest.Incremental.Output.ROLLING);
+        request.setIncremental(incremental);
+        return request;
+    }
+
+    private static byte[] compressed(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ClickHouseLZ4OutputStream out = new ClickHouseLZ4OutputStream(bytes, 1 << 20)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package com.ingestion.service.impl;
+
+import com.ingestion.dto.FileConfig;
+import com.ingestion.dto.UploadResult;
+import com.ingestion.util.FileParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final FileServiceImpl fileService = new FileServiceImpl(new FileParser());
+
+    @Test
+    void uploadStream_StoresBodyWithChecksumRowsAndSchema() throws IOException {
+        ReflectionTestUtils.setField(fileService, "uploadDir", tempDir.toString());
+        byte[] body = "id,name\n1,alpha\n2,beta\n3,gamma\n".getBytes(StandardCharsets.UTF_8);
+        FileConfig config = new FileConfig();
+        config.setDelimiter(",");
+
+        UploadResult result = fileService.uploadStream(new ByteArrayInputStream(body), "people.csv", config);
+
+        Path stored = Paths.get(result.getFilePath());
+        assertTrue(stored.getFileName().toString().endsWith(".csv"));
+        assertArrayEquals(body, Files.readAllBytes(stored));
+        assertEquals(body.length, result.getBytes());
+        assertEquals(3, result.getRows());
+        assertEquals("93b1868a5ebdfb84c33b733e4093c0a03423b589ca0a06f77cee444176cd7490", result.getSha256());
+        assertEquals("UInt8", result.getSchema().getColumns().get(0).getTargetType());
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void transferFile_CopiesRequestedRange() throws IOException {
+        Path file = tempDir.resolve("data.csv");
+        Files.write(file, "id,name\n1,alpha\n2,beta\n".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long copied = fileService.transferFile(file, 8, 8, out);
+
+        assertEquals(8, copied);
+        assertEquals("1,alpha\n", out.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    void transferFile_StopsAtEndOfFile() throws IOException {
+        Path file = tempDir.resolve("short.csv");
+        Files.write(file, "id\n1\n".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, fileService.transferFile(file, 3, 100, out));
+        assertEquals("1\n", out.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    void resolveFile_RejectsMissingFile() {
+        assertThrows(IOException.class, () -> fileService.resolveFile(tempDir.resolve("missing.csv").toString()));
+        assertThrows(IOException.class, () -> fileService.resolveFile(tempDir.toString()));
+    }
+}
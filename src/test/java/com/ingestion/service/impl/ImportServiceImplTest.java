@@ -0,0 +1,69 @@
+package com.ingestion.service.impl;
+
+import com.ingestion.dto.ImportRequest;
+import com.ingestion.util.ImportPipeline;
+import com.ingestion.util.MetadataCache;
+import com.ingestion.util.ParallelImporter;
+import com.ingestion.util.TransferProgress;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ImportServiceImplTest {
+
+    @Mock
+    private ParallelImporter parallelImporter;
+
+    @Mock
+    private ImportPipeline importPipeline;
+
+    @Mock
+    private MetadataCache metadataCache;
+
+    @TempDir
+    Path tempDir;
+
+    private ImportServiceImpl importService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        importService = new ImportServiceImpl(parallelImporter, importPipeline, metadataCache);
+        ReflectionTestUtils.setField(importService, "uploadDir", Files.createDirectory(tempDir.resolve("uploads")).toString());
+    }
+
+    @Test
+    void importFile_RejectsPathsOutsideUploadDirectory() throws Exception {
+        Path secret = Files.write(tempDir.resolve("secret.csv"), "id\n1\n".getBytes());
+
+        for (String filePath : new String[]{secret.toString(), "../secret.csv", tempDir.resolve("uploads/../secret.csv").toString()}) {
+            ImportRequest request = new ImportRequest();
+            request.setFilePath(filePath);
+            request.setTable("trips");
+            assertThrows(IllegalArgumentException.class,
+                () -> importService.importFile(request, null, new TransferProgress()), filePath);
+        }
+        verifyNoInteractions(parallelImporter, importPipeline, metadataCache);
+    }
+
+    @Test
+    void importFile_ResolvesPathsRelativeToUploadDirectory() {
+        ImportRequest request = new ImportRequest();
+        request.setFilePath("missing.csv");
+        request.setTable("trips");
+
+        IOException e = assertThrows(IOException.class, () -> importService.importFile(request, null, new TransferProgress()));
+        assertEquals("File not found: missing.csv", e.getMessage());
+    }
+}
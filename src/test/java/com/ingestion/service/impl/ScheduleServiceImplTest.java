@@ -0,0 +1,229 @@
+package com.ingestion.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.ExportRequest;
+import com.ingestion.dto.ExportResult;
+import com.ingestion.dto.ImportRequest;
+import com.ingestion.dto.ImportResult;
+import com.ingestion.dto.Schedule;
+import com.ingestion.dto.ScheduleRun;
+import com.ingestion.dto.ScheduleStatus;
+import com.ingestion.dto.TransferRequest;
+import com.ingestion.service.ExportService;
+import com.ingestion.service.ImportService;
+import com.ingestion.util.TransferProgress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ScheduleServiceImplTest {
+
+    @Mock
+    private ImportService importService;
+
+    @Mock
+    private ExportService exportService;
+
+    @TempDir
+    Path tempDir;
+
+    private ScheduleServiceImpl scheduleService;
+
+    @BeforeEach
+    void setUp() {
+        scheduleService = newService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduleService.stop();
+    }
+
+    @Test
+    void createSchedule_RunsAtCronTimesWithThroughput() throws Exception {
+        when(exportService.exportToFile(any(ExportRequest.class), isNull(), any(TransferProgress.class)))
+            .thenAnswer(invocation -> {
+                TransferProgress progress = invocation.getArgument(2);
+                progress.addRowsWritten(500);
+                progress.addBytes(4000);
+                Thread.sleep(5);
+                return new ExportResult("/exports/trips.csv", ExportRequest.Format.CSV, 500, 4000, 1, null);
+            });
+
+        ScheduleStatus created = scheduleService.createSchedule(schedule("* * * * * *", true, exportTransfer()));
+        assertNotNull(created.getNextRunAt());
+
+        ScheduleRun run = awaitRun(created.getSchedule().getId(), ScheduleRun.State.COMPLETED);
+        assertEquals(500, run.getRowsWritten());
+        assertEquals(4000, run.getBytes());
+        assertEquals("/exports/trips.csv", run.getFilePath());
+        assertTrue(run.getRowsPerSecond() > 0);
+        assertNotNull(run.getScheduledAt());
+        assertNotNull(run.getFinishedAt());
+    }
+
+    @Test
+    void runNow_SkipsWhilePreviousRunIsActive() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(importService.importFile(any(ImportRequest.class), isNull(), any(TransferProgress.class)))
+            .thenAnswer(invocation -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return new ImportResult();
+            });
+        String id = scheduleService.createSchedule(schedule("0 0 * * *", false, importTransfer())).getSchedule().getId();
+
+        ScheduleRun first = scheduleService.runNow(id).orElseThrow(AssertionError::new);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ScheduleRun second = scheduleService.runNow(id).orElseThrow(AssertionError::new);
+        release.countDown();
+
+        assertNotEquals(ScheduleRun.State.SKIPPED, first.getState());
+        assertEquals(ScheduleRun.State.SKIPPED, second.getState());
+        assertEquals(ScheduleRun.State.COMPLETED, awaitRun(id, ScheduleRun.State.COMPLETED).getState());
+        verify(importService, times(1)).importFile(any(), isNull(), any());
+        // Disabled schedules only run on demand
+        assertNull(scheduleService.getSchedule(id).orElseThrow(AssertionError::new).getNextRunAt());
+    }
+
+    @Test
+    void start_RestoresSchedulesAndHistory() throws Exception {
+        when(importService.importFile(any(ImportRequest.class), isNull(), any(TransferProgress.class)))
+            .thenThrow(new IllegalStateException("File not found"));
+        String id = scheduleService.createSchedule(schedule("0 0 3 * * *", true, importTransfer())).getSchedule().getId();
+        scheduleService.runNow(id);
+        awaitRun(id, ScheduleRun.State.FAILED);
+        scheduleService.stop();
+
+        scheduleService = newService();
+
+        ScheduleStatus restored = scheduleService.getSchedule(id).orElseThrow(AssertionError::new);
+        assertEquals("0 0 3 * * *", restored.getSchedule().getCron());
+        assertNotNull(restored.getNextRunAt());
+        assertEquals(ScheduleRun.State.FAILED, restored.getLastRun().getState());
+        assertEquals("File not found", restored.getLastRun().getError());
+        assertTrue(scheduleService.deleteSchedule(id));
+        assertFalse(scheduleService.getRuns(id).isPresent());
+    }
+
+    @Test
+    void start_KeepsPasswordsInOwnerOnlyStateButNotInResponses() throws Exception {
+        TransferRequest transfer = importTransfer();
+        transfer.getImportRequest().setConnection(new ClickHouseConfig("ch", 8123, "default", "loader", "secret"));
+        String id = scheduleService.createSchedule(schedule("0 0 3 * * *", true, transfer)).getSchedule().getId();
+
+        Path stateFile = tempDir.resolve("schedules.json");
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(stateFile)));
+        String response = new ObjectMapper().registerModule(new JavaTimeModule())
+            .writeValueAsString(scheduleService.getSchedule(id).orElseThrow(AssertionError::new));
+        assertFalse(response.contains("secret"));
+
+        // An update sent back without the password keeps the stored one
+        TransferRequest resent = importTransfer();
+        resent.getImportRequest().setConnection(new ClickHouseConfig("ch", 8123, "default", "loader", null));
+        scheduleService.updateSchedule(id, schedule("0 0 4 * * *", true, resent));
+        scheduleService.stop();
+
+        scheduleService = newService();
+
+        Schedule restored = scheduleService.getSchedule(id).orElseThrow(AssertionError::new).getSchedule();
+        assertEquals("0 0 4 * * *", restored.getCron());
+        assertEquals("secret", restored.getTransfer().getImportRequest().getConnection().getPassword());
+    }
+
+    @Test
+    void runNow_FreesScheduleAfterError() throws Exception {
+        when(importService.importFile(any(ImportRequest.class), isNull(), any(TransferProgress.class)))
+            .thenThrow(new NoClassDefFoundError("com/example/Missing"))
+            .thenReturn(new ImportResult());
+        String id = scheduleService.createSchedule(schedule("0 0 * * *", false, importTransfer())).getSchedule().getId();
+
+        scheduleService.runNow(id);
+        ScheduleRun failed = awaitRun(id, ScheduleRun.State.FAILED);
+        ScheduleRun second = scheduleService.runNow(id).orElseThrow(AssertionError::new);
+
+        assertNotNull(failed.getFinishedAt());
+        assertEquals("Aborted by an unexpected error", failed.getError());
+        assertNotEquals(ScheduleRun.State.SKIPPED, second.getState());
+        awaitRun(id, ScheduleRun.State.COMPLETED);
+    }
+
+    @Test
+    void createSchedule_RejectsInvalidDefinitions() {
+        assertThrows(IllegalArgumentException.class,
+            () -> scheduleService.createSchedule(schedule("not a cron", true, importTransfer())));
+        assertThrows(IllegalArgumentException.class,
+            () -> scheduleService.createSchedule(schedule("0 * * * *", true, new TransferRequest(
+                TransferRequest.Type.CLICKHOUSE_TO_FILE, null, null))));
+        Schedule zoned = schedule("0 * * * *", true, importTransfer());
+        zoned.setZone("Mars/Olympus");
+        assertThrows(IllegalArgumentException.class, () -> scheduleService.createSchedule(zoned));
+        assertTrue(scheduleService.listSchedules().isEmpty());
+    }
+
+    @Test
+    void parseCron_ReadsUnixExpressionsAtSecondZero() {
+        assertEquals(ScheduleServiceImpl.parseCron("0 */5 * * * *").toString(),
+            ScheduleServiceImpl.parseCron("*/5 * * * *").toString());
+    }
+
+    private ScheduleServiceImpl newService() {
+        ScheduleServiceImpl service = new ScheduleServiceImpl(importService, exportService);
+        ReflectionTestUtils.setField(service, "stateFile", tempDir.resolve("schedules.json").toString());
+        service.start();
+        return service;
+    }
+
+    private ScheduleRun awaitRun(String scheduleId, ScheduleRun.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            List<ScheduleRun> runs = scheduleService.getRuns(scheduleId).orElseThrow(AssertionError::new);
+            for (ScheduleRun run : runs) {
+                if (run.getState() == state) {
+                    return run;
+                }
+            }
+            Thread.sleep(20);
+        }
+        fail("Schedule " + scheduleId + " had no " + state + " run");
+        return null;
+    }
+
+    private static Schedule schedule(String cron, boolean enabled, TransferRequest transfer) {
+        Schedule schedule = new Schedule();
+        schedule.setName("test");
+        schedule.setCron(cron);
+        schedule.setEnabled(enabled);
+        schedule.setTransfer(transfer);
+        return schedule;
+    }
+
+    private static TransferRequest importTransfer() {
+        return new TransferRequest(TransferRequest.Type.FILE_TO_CLICKHOUSE, new ImportRequest(), null);
+    }
+
+    private static TransferRequest exportTransfer() {
+        return new TransferRequest(TransferRequest.Type.CLICKHOUSE_TO_FILE, null, new ExportRequest());
+    }
+}
@@ -0,0 +1,191 @@
+package com.ingestion.service.impl;
+
+import com.ingestion.dto.ExportRequest;
+import com.ingestion.dto.ExportResult;
+import com.ingestion.dto.ImportRequest;
+import com.ingestion.dto.ImportResult;
+import com.ingestion.dto.TransferRequest;
+import com.ingestion.dto.TransferStatus;
+import com.ingestion.service.ExportService;
+import com.ingestion.service.ImportService;
+import com.ingestion.util.TransferProgress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferServiceImplTest {
+
+    @Mock
+    private ImportService importService;
+
+    @Mock
+    private ExportService exportService;
+
+    private TransferServiceImpl transferService;
+    private String jwt = "test-jwt-token";
+
+    @BeforeEach
+    void setUp() {
+        transferService = new TransferServiceImpl(importService, exportService);
+        ReflectionTestUtils.setField(transferService, "workers", 1);
+        ReflectionTestUtils.setField(transferService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(transferService, "maxFinishedJobs", 1);
+        ReflectionTestUtils.setField(transferService, "finishedJobTtl", 60000L);
+        transferService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferService.stop();
+    }
+
+    @Test
+    void startTransfer_ImportCompletesWithCounts() throws Exception {
+        when(importService.importFile(any(ImportRequest.class), anyString(), any(TransferProgress.class)))
+            .thenAnswer(invocation -> {
+                TransferProgress progress = invocation.getArgument(2);
+                progress.setTotalBytes(100);
+                progress.addBytes(100);
+                progress.addRowsRead(10);
+                progress.addRowsWritten(10);
+                return new ImportResult();
+            });
+
+        TransferStatus started = transferService.startTransfer(
+            new TransferRequest(TransferRequest.Type.FILE_TO_CLICKHOUSE, new ImportRequest(), null), jwt);
+        TransferStatus finished = awaitFinished(started.getTransferId());
+
+        assertEquals(TransferStatus.State.COMPLETED, finished.getState());
+        assertEquals(10, finished.getRowsWritten());
+        assertEquals(100, finished.getBytes());
+        assertEquals(100.0, finished.getProgress());
+        assertNotNull(finished.getFinishedAt());
+    }
+
+    @Test
+    void startTransfer_ExportFailureIsReported() throws Exception {
+        when(exportService.exportToFile(any(ExportRequest.class), anyString(), any(TransferProgress.class)))
+            .thenThrow(new RuntimeException("Failed", new IOException("Connection refused")));
+
+        TransferStatus started = transferService.startTransfer(
+            new TransferRequest(TransferRequest.Type.CLICKHOUSE_TO_FILE, null, new ExportRequest()), jwt);
+        TransferStatus finished = awaitFinished(started.getTransferId());
+
+        assertEquals(TransferStatus.State.FAILED, finished.getState());
+        assertEquals("Connection refused", finished.getError());
+    }
+
+    @Test
+    void startTransfer_MissingRequestIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> transferService.startTransfer(
+            new TransferRequest(TransferRequest.Type.FILE_TO_CLICKHOUSE, null, null), jwt));
+    }
+
+    @Test
+    void cancelTransfer_QueuedJobNeverRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(exportService.exportToFile(any(ExportRequest.class), anyString(), any(TransferProgress.class)))
+            .thenAnswer(invocation -> {
+                release.await(5, TimeUnit.SECONDS);
+                return new ExportResult();
+            });
+        TransferRequest request = new TransferRequest(TransferRequest.Type.CLICKHOUSE_TO_FILE, null, new ExportRequest());
+
+        TransferStatus running = transferService.startTransfer(request, jwt);
+        TransferStatus queued = transferService.startTransfer(request, jwt);
+
+        assertTrue(transferService.cancelTransfer(queued.getTransferId()));
+        release.countDown();
+
+        assertEquals(TransferStatus.State.COMPLETED, awaitFinished(running.getTransferId()).getState());
+        assertEquals(TransferStatus.State.CANCELLED, transferService.getStatus(queued.getTransferId()).get().getState());
+        verify(exportService, times(1)).exportToFile(any(), anyString(), any());
+    }
+
+    @Test
+    void cancelTransfer_StopsRunningJobAtNextProgressUpdate() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        when(importService.importFile(any(ImportRequest.class), anyString(), any(TransferProgress.class)))
+            .thenAnswer(invocation -> {
+                TransferProgress progress = invocation.getArgument(2);
+                started.countDown();
+                try {
+                    // Ignores interrupts, like a blocking socket read
+                    while (true) {
+                        progress.addRowsRead(1);
+                        Thread.onSpinWait();
+                    }
+                } finally {
+                    stopped.countDown();
+                }
+            });
+
+        TransferStatus running = transferService.startTransfer(
+            new TransferRequest(TransferRequest.Type.FILE_TO_CLICKHOUSE, new ImportRequest(), null), jwt);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(transferService.cancelTransfer(running.getTransferId()));
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        TransferStatus finished = awaitFinished(running.getTransferId());
+
+        assertEquals(TransferStatus.State.CANCELLED, finished.getState());
+        assertFalse(transferService.cancelTransfer(running.getTransferId()));
+    }
+
+    @Test
+    void startTransfer_ErrorStillFinishesJob() throws Exception {
+        when(exportService.exportToFile(any(ExportRequest.class), anyString(), any(TransferProgress.class)))
+            .thenThrow(new NoClassDefFoundError("com/example/Missing"));
+
+        TransferStatus started = transferService.startTransfer(
+            new TransferRequest(TransferRequest.Type.CLICKHOUSE_TO_FILE, null, new ExportRequest()), jwt);
+        TransferStatus finished = awaitFinished(started.getTransferId());
+
+        assertEquals(TransferStatus.State.FAILED, finished.getState());
+        assertNotNull(finished.getFinishedAt());
+    }
+
+    @Test
+    void listTransfers_EvictsOldestFinishedJobs() throws Exception {
+        when(exportService.exportToFile(any(ExportRequest.class), anyString(), any(TransferProgress.class)))
+            .thenReturn(new ExportResult());
+        TransferRequest request = new TransferRequest(TransferRequest.Type.CLICKHOUSE_TO_FILE, null, new ExportRequest());
+
+        TransferStatus first = transferService.startTransfer(request, jwt);
+        awaitFinished(first.getTransferId());
+        TransferStatus second = transferService.startTransfer(request, jwt);
+        awaitFinished(second.getTransferId());
+
+        assertEquals(1, transferService.listTransfers().size());
+        assertFalse(transferService.getStatus(first.getTransferId()).isPresent());
+        assertTrue(transferService.getStatus(second.getTransferId()).isPresent());
+    }
+
+    private TransferStatus awaitFinished(String transferId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            TransferStatus status = transferService.getStatus(transferId).orElseThrow();
+            if (status.getState().isFinished()) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        fail("Transfer did not finish: " + transferId);
+        return null;
+    }
+}
@@ -0,0 +1,64 @@
+package com.ingestion.util;
+
+import com.ingestion.util.batch.BatchSchema;
+import com.ingestion.util.batch.RowBatch;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveBatchSizerTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    void recordInsert_GrowsAtMostTwofoldUpToByteTarget() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 100, 1_000_000, 100_000, 1000);
+
+        sizer.recordInsert(1000, 10_000, MS);
+        assertEquals(2000, sizer.nextRows());
+        for (int i = 0; i < 10; i++) {
+            sizer.recordInsert(sizer.nextRows(), sizer.nextRows() * 10L, MS);
+        }
+        // 100 kB at 10 bytes per row
+        assertEquals(10_000, sizer.nextRows());
+    }
+
+    @Test
+    void recordInsert_ShrinksToLatencyTargetAtOnce() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10_000, 100, 1_000_000, 0, 1000);
+
+        // 10 seconds for 10000 rows: 1 ms per row
+        sizer.recordInsert(10_000, 0, 10_000 * MS);
+        assertEquals(1000, sizer.nextRows());
+        sizer.recordInsert(1000, 0, 100_000 * MS);
+        assertEquals(100, sizer.nextRows());
+    }
+
+    @Test
+    void recordFailure_ReactsToServerErrors() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, 100, 1_000_000, 0, 0);
+
+        assertTrue(sizer.recordFailure(new RuntimeException(
+                new SQLException("Too many parts", null, AdaptiveBatchSizer.TOO_MANY_PARTS))));
+        assertEquals(2000, sizer.nextRows());
+        assertFalse(sizer.recordFailure(new SQLException("Memory limit", null, AdaptiveBatchSizer.MEMORY_LIMIT_EXCEEDED)));
+        assertEquals(1000, sizer.nextRows());
+        assertFalse(sizer.recordFailure(new SQLException("Syntax error", null, 62)));
+        assertEquals(1000, sizer.nextRows());
+    }
+
+    @Test
+    void estimateBytes_ScalesSampleToBatch() {
+        RowBatch batch = new RowBatch(BatchSchema.strings(Arrays.asList("id", "name")), 1000);
+        for (int i = 0; i < 1000; i++) {
+            int row = batch.addRow();
+            batch.stringColumn(0).set(row, "1234");
+            batch.stringColumn(1).set(row, "abcdefghi");
+        }
+
+        assertEquals(15_000, AdaptiveBatchSizer.estimateBytes(batch));
+    }
+}
@@ -0,0 +1,110 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.PoolStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClickHouseConnectionPoolTest {
+
+    private ClickHouseConfig config;
+    private ClickHouseConnectionPool.Settings previousSettings;
+
+    @BeforeEach
+    void setUp() {
+        config = new ClickHouseConfig();
+        config.setHost("localhost");
+        config.setPort(1);
+        config.setDatabase("test_db");
+        config.setUsername("test_user");
+        config.setPassword("test_pass");
+
+        previousSettings = ClickHouseConnectionPool.getSettings();
+        ClickHouseConnectionPool.Settings settings = new ClickHouseConnectionPool.Settings();
+        settings.setMaxSize(2);
+        settings.setConnectionTimeoutMs(250);
+        settings.setValidationTimeoutMs(250);
+        ClickHouseConnectionPool.configure(settings);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ClickHouseConnectionPool.configure(previousSettings);
+        ClickHouseConnectionPool.shutdown();
+    }
+
+    @Test
+    void poolKey_SameIdentityIsEqual() {
+        ClickHouseConfig copy = new ClickHouseConfig("localhost", 1, "test_db", "test_user", "test_pass");
+
+        assertEquals(ClickHouseConnectionPool.PoolKey.of(config, "jwt"),
+            ClickHouseConnectionPool.PoolKey.of(copy, "jwt"));
+        assertNotEquals(ClickHouseConnectionPool.PoolKey.of(config, "jwt"),
+            ClickHouseConnectionPool.PoolKey.of(copy, "other-jwt"));
+    }
+
+    @Test
+    void getConnection_UnreachableServerReusesOnePool() {
+        assertThrows(SQLException.class, () -> ClickHouseConnectionPool.getConnection(config, null));
+        assertThrows(SQLException.class, () -> ClickHouseConnectionPool.getConnection(config, null));
+
+        List<PoolStats> stats = ClickHouseConnectionPool.getStats();
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.get(0).getMaxSize());
+        assertEquals(2, stats.get(0).getBorrowCount());
+        assertEquals(0, stats.get(0).getActive());
+    }
+
+    @Test
+    void getConnection_NewPoolFailsFastOnUnreachableServer() {
+        ClickHouseConnectionPool.Settings settings = new ClickHouseConnectionPool.Settings();
+        settings.setFirstConnectionTimeoutMs(300);
+        ClickHouseConnectionPool.configure(settings);
+
+        long start = System.nanoTime();
+        assertThrows(SQLException.class, () -> ClickHouseConnectionPool.getConnection(config, null));
+
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        assertEquals(1, ClickHouseConnectionPool.getStats().size());
+    }
+
+    @Test
+    void evict_ClosesPool() {
+        assertThrows(SQLException.class, () -> ClickHouseConnectionPool.getConnection(config, null));
+
+        ClickHouseConnectionPool.evict(config, null);
+
+        assertTrue(ClickHouseConnectionPool.getStats().isEmpty());
+    }
+
+    @Test
+    void getConnection_DoesNotEvictPoolWithBorrowInProgress() throws Exception {
+        ClickHouseConnectionPool.Settings settings = new ClickHouseConnectionPool.Settings();
+        settings.setMaxPools(1);
+        settings.setConnectionTimeoutMs(1000);
+        ClickHouseConnectionPool.configure(settings);
+        Thread waiting = new Thread(() -> {
+            try {
+                ClickHouseConnectionPool.getConnection(config, null).close();
+            } catch (SQLException expected) {
+                // Times out against the unreachable server
+            }
+        });
+        waiting.start();
+        Thread.sleep(300);
+
+        ClickHouseConfig other = new ClickHouseConfig("localhost", 1, "other_db", "test_user", "test_pass");
+        assertThrows(SQLException.class, () -> ClickHouseConnectionPool.getConnection(other, null));
+        List<PoolStats> stats = ClickHouseConnectionPool.getStats();
+        waiting.join();
+
+        // The pool still lending a connection is kept open rather than evicted for the new one
+        assertEquals(2, stats.size());
+    }
+}
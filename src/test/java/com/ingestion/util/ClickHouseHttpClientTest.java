@@ -0,0 +1,111 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.ImportRequest;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClickHouseHttpClientTest {
+
+    private HttpServer server;
+    private ClickHouseConfig config;
+    private final AtomicReference<String> lastQuery = new AtomicReference<>();
+    private final AtomicReference<String> lastUser = new AtomicReference<>();
+    private final AtomicReference<String> lastInsertBody = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            if (rawQuery.contains("query=INSERT")) {
+                InputStream body = exchange.getRequestBody();
+                if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                    body = new GZIPInputStream(body);
+                }
+                lastInsertBody.set(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                lastQuery.set(URLDecoder.decode(rawQuery, StandardCharsets.UTF_8));
+                exchange.getResponseHeaders().add("X-ClickHouse-Summary", "{\"read_rows\":\"2\",\"written_rows\":\"2\"}");
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+            try (InputStream in = exchange.getRequestBody()) {
+                lastQuery.set(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            lastUser.set(exchange.getRequestHeaders().getFirst("X-ClickHouse-User"));
+            if (lastQuery.get().startsWith("BROKEN")) {
+                byte[] error = "Code: 62. DB::Exception: Syntax error".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(500, error.length);
+                exchange.getResponseBody().write(error);
+            } else {
+                byte[] body = "id,name\n1,a\n2,b\n3,c\n".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+
+        config = new ClickHouseConfig("localhost", server.getAddress().getPort(), "test_db", "test_user", "test_pass");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void streamQuery_CopiesBodyAndCountsRows() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TransferProgress progress = new TransferProgress();
+
+        long bytes = ClickHouseHttpClient.streamQuery(config, "SELECT * FROM t FORMAT CSVWithNames", null, out, 1, progress);
+
+        assertEquals("id,name\n1,a\n2,b\n3,c\n", out.toString());
+        assertEquals(out.size(), bytes);
+        assertEquals(bytes, progress.getBytes());
+        assertEquals(3, progress.getRowsWritten());
+        assertEquals("SELECT * FROM t FORMAT CSVWithNames", lastQuery.get());
+        assertEquals("test_user", lastUser.get());
+    }
+
+    @Test
+    void streamQuery_ServerErrorIsReported() {
+        RuntimeException error = assertThrows(RuntimeException.class, () ->
+            ClickHouseHttpClient.streamQuery(config, "BROKEN", null, new ByteArrayOutputStream(), 0, new TransferProgress()));
+
+        assertTrue(error.getCause().getMessage().contains("Syntax error"));
+    }
+
+    @Test
+    void insertStream_SendsCompressedBodyAndReadsSummary() {
+        byte[] csv = "id,name\n1,a\n2,b\n".getBytes(StandardCharsets.UTF_8);
+
+        long written = ClickHouseHttpClient.insertStream(config, "INSERT INTO t FORMAT CSVWithNames",
+            new ByteArrayInputStream(csv), ImportRequest.Compression.GZIP,
+            Collections.singletonMap("input_format_with_names_use_header", "1"), null);
+
+        assertEquals(2, written);
+        assertEquals("id,name\n1,a\n2,b\n", lastInsertBody.get());
+        assertTrue(lastQuery.get().contains("query=INSERT INTO t FORMAT CSVWithNames"));
+        assertTrue(lastQuery.get().contains("input_format_with_names_use_header=1"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.TableSchema;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnTypeDetectorTest {
+
+    @Test
+    void detect_PicksNarrowestIntegerType() {
+        assertEquals("UInt8", detect("0", "17", "255"));
+        assertEquals("UInt16", detect("0", "256"));
+        assertEquals("Int8", detect("-128", "127"));
+        assertEquals("Int32", detect("-1", "2147483647"));
+        assertEquals("Int64", detect("-1", "2147483648"));
+        assertEquals("UInt64", detect("18446744073709551615"));
+        assertEquals("String", detect("18446744073709551616"));
+    }
+
+    @Test
+    void detect_KeepsLeadingZerosAsString() {
+        assertEquals("String", detect("00501", "02134"));
+    }
+
+    @Test
+    void detect_DistinguishesDecimalAndFloat() {
+        assertEquals("Decimal(5, 2)", detect("12.50", "-199.99", "7"));
+        assertEquals("Float64", detect("1.5", "2.25"));
+        assertEquals("Float64", detect("1e10", "nan"));
+    }
+
+    @Test
+    void detect_RecognizesDatesBooleansAndNulls() {
+        assertEquals("Date", detect("2024-01-31", "1999-12-01"));
+        assertEquals("Date32", detect("1950-06-01"));
+        assertEquals("DateTime", detect("2024-01-31 10:15:00", "2024-02-01T00:00:59"));
+        assertEquals("DateTime64(3)", detect("2024-01-31 10:15:00.123"));
+        assertEquals("String", detect("2024-02-30"));
+        assertEquals("Bool", detect("true", "FALSE"));
+        assertEquals("Nullable(UInt8)", detect("1", "", "3"));
+        assertEquals("Nullable(String)", detect(null, null));
+    }
+
+    @Test
+    void detect_MarksRepetitiveStringsLowCardinality() {
+        String[] values = new String[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 3 == 0 ? "red" : "blue";
+        }
+        assertEquals("LowCardinality(String)", detect(values));
+        assertEquals("String", detect("a", "b", "c"));
+    }
+
+    @Test
+    void infer_ReservoirSampleCoversLateRows() {
+        SchemaInferrer inferrer = new SchemaInferrer(10, true);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(inferrer.wantsMore());
+            inferrer.add(new String[]{String.valueOf(i), i < 500 ? "1" : "x"});
+        }
+        assertEquals(10, inferrer.getSampledRows());
+
+        List<TableSchema.Column> columns = inferrer.infer(Arrays.asList("id", "flag"));
+        assertEquals("UInt16", columns.get(0).getTargetType());
+        assertEquals("integer", columns.get(0).getType());
+        assertEquals("id", columns.get(0).getTargetName());
+    }
+
+    private static String detect(String... values) {
+        ColumnTypeDetector detector = new ColumnTypeDetector();
+        for (String value : values) {
+            detector.accept(value);
+        }
+        return detector.getClickHouseType();
+    }
+}
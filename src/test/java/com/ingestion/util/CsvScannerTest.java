@@ -0,0 +1,133 @@
+package com.ingestion.util;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvScannerTest {
+
+    @Test
+    void next_SplitsQuotedAndUnquotedFields() throws IOException {
+        String csv = "id,name,note\r\n1,\"Smith, J\",\"said \"\"hi\"\"\"\n\n2,,\"two\nlines\"\n3,caf\u00e9,\"\"";
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("id", "name", "note"),
+                Arrays.asList("1", "Smith, J", "said \"hi\""),
+                Arrays.asList("2", "", "two\nlines"),
+                Arrays.asList("3", "caf\u00e9", "")), scan(new CsvScanner(bytes(csv), ',')));
+    }
+
+    @Test
+    void next_ExposesFieldOffsets() throws IOException {
+        CsvScanner scanner = new CsvScanner(bytes("ab;\"c;d\"\n"), ';');
+
+        assertTrue(scanner.next());
+        assertEquals(2, scanner.size());
+        assertEquals(0, scanner.start(0));
+        assertEquals(2, scanner.end(0));
+        // Offsets of a quoted field exclude the quotes
+        assertEquals(4, scanner.start(1));
+        assertEquals(7, scanner.end(1));
+        assertEquals(';', scanner.buffer().get(5));
+        assertFalse(scanner.next());
+        assertEquals(1, scanner.getRecordNumber());
+    }
+
+    @Test
+    void next_MatchesCommonsCsvAcrossReadBoundaries() throws IOException {
+        Random random = new Random(7);
+        String[] values = {"", "a", "plain text", "x,y", "quote\"d", "multi\nline", "cr\r\nlf", "\u00fcml\u00e4ut", " spaced "};
+        for (int round = 0; round < 50; round++) {
+            StringBuilder csv = new StringBuilder();
+            int records = 1 + random.nextInt(40);
+            for (int r = 0; r < records; r++) {
+                int fields = 1 + random.nextInt(6);
+                for (int f = 0; f < fields; f++) {
+                    String value = values[random.nextInt(values.length)];
+                    boolean quote = random.nextBoolean() || value.matches("(?s).*[,\"\r\n].*") || value.isEmpty() && fields == 1;
+                    csv.append(f > 0 ? "," : "").append(quote ? "\"" + value.replace("\"", "\"\"") + "\"" : value);
+                }
+                csv.append(random.nextBoolean() ? "\n" : "\r\n");
+            }
+            String text = csv.toString();
+            List<List<String>> expected = commonsCsv(text);
+
+            assertEquals(expected, scan(new CsvScanner(bytes(text), ',')), text);
+            // A stream that returns a few bytes per read cuts records and quotes at every position
+            int chunk = 1 + random.nextInt(5);
+            assertEquals(expected, scan(new CsvScanner(trickle(text, chunk), ',')), text);
+        }
+    }
+
+    @Test
+    void next_GrowsBufferForLongRecords() throws IOException {
+        char[] chars = new char[200_000];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+
+        List<List<String>> records = scan(new CsvScanner(trickle("1,\"" + value + "\"\n2,b\n", 8192), ','));
+
+        assertEquals(Arrays.asList(Arrays.asList("1", value), Arrays.asList("2", "b")), records);
+    }
+
+    @Test
+    void next_RejectsMalformedQuotes() {
+        assertThrows(IOException.class, () -> scan(new CsvScanner(bytes("1,\"open\n"), ',')));
+        assertThrows(IOException.class, () -> scan(new CsvScanner(bytes("1,\"a\"b,2\n"), ',')));
+        assertThrows(IllegalArgumentException.class, () -> new CsvScanner(bytes(""), '"'));
+    }
+
+    private static List<List<String>> scan(CsvScanner scanner) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvScanner closing = scanner) {
+            while (closing.next()) {
+                List<String> fields = new ArrayList<>();
+                for (int i = 0; i < closing.size(); i++) {
+                    fields.add(closing.get(i));
+                }
+                records.add(fields);
+            }
+        }
+        return records;
+    }
+
+    private static List<List<String>> commonsCsv(String text) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CSVParser parser = CSVFormat.DEFAULT.parse(new StringReader(text))) {
+            for (CSVRecord record : parser) {
+                List<String> fields = new ArrayList<>();
+                record.forEach(fields::add);
+                records.add(fields);
+            }
+        }
+        return records;
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream trickle(String text, int chunk) {
+        return new FilterInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+}
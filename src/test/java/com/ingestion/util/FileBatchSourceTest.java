@@ -0,0 +1,87 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.FileConfig;
+import com.ingestion.util.batch.BatchSchema;
+import com.ingestion.util.batch.RowBatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileBatchSourceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void read_FillsBatchesAcrossFilesMatchingEachHeader() throws Exception {
+        Path first = write("a.csv", "id,name\n1,x\n2,y\n");
+        Path second = write("b.csv", "name,id\nz,3\n");
+        Path third = tempDir.resolve("c.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(third))) {
+            out.write("id\n4\n5\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<String> columns = Arrays.asList("id", "name");
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (FileBatchSource source = new FileBatchSource(Arrays.asList(first, second, third), columns,
+                new FileConfig(",", true, 0, null), new TransferProgress())) {
+            RowBatch batch = new RowBatch(BatchSchema.strings(columns), 3);
+            int read;
+            while ((read = source.read(batch)) > 0) {
+                batchSizes.add(read);
+                for (Map<String, Object> row : batch) {
+                    Map<String, Object> values = new HashMap<>(row);
+                    values.values().removeIf(Objects::isNull);
+                    rows.add(values);
+                }
+            }
+        }
+
+        assertEquals(List.of(3, 2), batchSizes);
+        assertEquals(List.of(Map.of("id", "1", "name", "x"), Map.of("id", "2", "name", "y"),
+                Map.of("id", "3", "name", "z"), Map.of("id", "4"), Map.of("id", "5")), rows);
+    }
+
+    @Test
+    void read_CombinesJsonFiles() throws Exception {
+        Path first = write("a.ndjson", "{\"id\": 1, \"name\": \"x\"}\n");
+        Path second = write("b.json", "[{\"id\": 2, \"name\": \"y\"}, {\"id\": 3, \"extra\": true}]");
+
+        List<String> columns = Arrays.asList("id", "name");
+        try (FileBatchSource source = new FileBatchSource(Arrays.asList(first, second), columns,
+                new FileConfig(",", true, 0, null), new TransferProgress())) {
+            RowBatch batch = new RowBatch(BatchSchema.strings(columns), 10);
+            assertEquals(3, source.read(batch));
+            assertEquals("1", batch.get(0).get("id"));
+            assertEquals("y", batch.get(1).get("name"));
+            assertNull(batch.get(2).get("name"));
+            assertEquals(0, source.read(batch));
+        }
+    }
+
+    @Test
+    void readColumns_ReadsHeaderOrFirstRecord() throws Exception {
+        FileConfig config = new FileConfig(";", true, 0, null);
+        assertEquals(List.of("id", "name"), FileBatchSource.readColumns(write("a.csv", "id;name\n1;x\n"), config));
+        assertEquals(List.of("id", "at"), FileBatchSource.readColumns(write("a.jsonl", "{\"id\": 1, \"at\": \"t\"}\n"), config));
+        assertEquals(List.of(), FileBatchSource.readColumns(write("b.csv", "1;x\n"), new FileConfig(";", false, 0, null)));
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.write(tempDir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
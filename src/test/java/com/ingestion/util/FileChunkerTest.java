@@ -0,0 +1,85 @@
+package com.ingestion.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileChunkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void split_ChunksEndOnLineBoundaries() throws Exception {
+        Path file = tempDir.resolve("data.csv");
+        StringBuilder content = new StringBuilder("id,name\n");
+        for (int i = 0; i < 100; i++) {
+            content.append(i).append(",name-").append(i).append('\n');
+        }
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = Files.readAllBytes(file);
+
+        List<FileChunker.Chunk> chunks = FileChunker.split(file, 8, 100);
+
+        assertTrue(chunks.size() > 1);
+        assertEquals(8, chunks.get(0).getStart());
+        assertEquals(bytes.length, chunks.get(chunks.size() - 1).getEnd());
+        for (int i = 0; i < chunks.size(); i++) {
+            FileChunker.Chunk chunk = chunks.get(i);
+            assertEquals('\n', bytes[(int) chunk.getEnd() - 1]);
+            if (i > 0) {
+                assertEquals(chunks.get(i - 1).getEnd(), chunk.getStart());
+            }
+        }
+    }
+
+    @Test
+    void splitCsv_KeepsQuotedLineBreaksInOneChunk() throws Exception {
+        Path file = tempDir.resolve("notes.csv");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append(i).append(",\"line one\nline \"\"two\"\"\n,three\",5\"in\r\n");
+        }
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<FileChunker.Chunk> chunks = FileChunker.splitCsv(file, 0, 40, ',');
+
+        assertTrue(chunks.size() > 1);
+        int records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (FileChunker.Chunk chunk : chunks) {
+                try (CsvScanner scanner = CsvScanner.open(channel, chunk.getStart(), chunk.getEnd(), ',', new TransferProgress())) {
+                    while (scanner.next()) {
+                        assertEquals(3, scanner.size());
+                        assertEquals("line one\nline \"two\"\n,three", scanner.get(1));
+                        assertEquals("5\"in", scanner.get(2));
+                        records++;
+                    }
+                }
+            }
+        }
+        assertEquals(50, records);
+    }
+
+    @Test
+    void open_ReadsOnlyTheChunkAndReportsBytes() throws Exception {
+        Path file = tempDir.resolve("lines.csv");
+        Files.write(file, "a\nbb\nccc\n".getBytes(StandardCharsets.UTF_8));
+        TransferProgress progress = new TransferProgress();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream in = FileChunker.open(channel, new FileChunker.Chunk(0, 2, 5), progress)) {
+            assertEquals("bb\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(3, progress.getBytes());
+    }
+}
@@ -0,0 +1,98 @@
+package com.ingestion.util;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.ingestion.dto.FileConfig;
+import com.ingestion.dto.ImportRequest.Compression;
+import com.ingestion.dto.TableSchema;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileCompressionTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void detect_UsesLastExtension() {
+        assertEquals(Compression.GZIP, FileCompression.detect("trips.csv.gz"));
+        assertEquals(Compression.ZSTD, FileCompression.detect("events.NDJSON.ZST"));
+        assertEquals(Compression.LZ4, FileCompression.detect("trips.csv.lz4"));
+        assertEquals(Compression.NONE, FileCompression.detect("trips.csv"));
+
+        assertEquals("events.ndjson", FileCompression.baseName("events.ndjson.zst"));
+        assertEquals(".csv.gz", FileCompression.extension("trips.2024.csv.gz"));
+        assertEquals(".json", FileCompression.extension("trips.json"));
+        assertThrows(IllegalArgumentException.class, () -> FileCompression.extension("trips.gz"));
+    }
+
+    @Test
+    void open_DecodesEachFormat() throws IOException {
+        String text = "id,name\n1,alpha\n";
+        for (String suffix : new String[]{".gz", ".zst", ".lz4"}) {
+            Path file = write("data.csv" + suffix, text);
+            try (InputStream in = FileCompression.open(file)) {
+                assertEquals(text, new String(in.readAllBytes(), StandardCharsets.UTF_8), suffix);
+            }
+        }
+    }
+
+    @Test
+    void readData_PagesThroughCompressedCsvAndJson() throws IOException {
+        StringBuilder csv = new StringBuilder("id,name\n");
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            csv.append(i).append(",name").append(i).append('\n');
+            ndjson.append("{\"id\":").append(i).append("}\n");
+        }
+        FileParser parser = new FileParser();
+        FileConfig config = new FileConfig();
+        config.setDelimiter(",");
+
+        List<Map<String, Object>> page = parser.readData(write("data.csv.gz", csv.toString()), config, 2, 10);
+        assertEquals(10, page.size());
+        assertEquals("20", page.get(0).get("id"));
+        assertEquals("name29", page.get(9).get("name"));
+
+        page = parser.readData(write("data.ndjson.zst", ndjson.toString()), config, 4, 10);
+        assertEquals(10, page.size());
+        assertEquals(40, page.get(0).get("id"));
+
+        TableSchema schema = parser.parseSchema(Files.newInputStream(tempDir.resolve("data.csv.gz")),
+                "data.csv.gz", config, null);
+        assertEquals("UInt8", schema.getColumns().get(0).getTargetType());
+    }
+
+    private Path write(String name, String text) throws IOException {
+        Path file = tempDir.resolve(name);
+        try (OutputStream out = compress(Files.newOutputStream(file), FileCompression.detect(name))) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    private static OutputStream compress(OutputStream out, Compression compression) throws IOException {
+        switch (compression) {
+            case GZIP:
+                return new GZIPOutputStream(out);
+            case ZSTD:
+                return new ZstdOutputStream(out);
+            case LZ4:
+                return new LZ4FrameOutputStream(out);
+            default:
+                return out;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.FileConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readData_PagesFromIndexedOffsets() throws IOException {
+        StringBuilder csv = new StringBuilder("id;note\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append(i).append(i % 10 == 0 ? ";\"line\nbreak; quoted\"\n" : ";plain\r\n");
+        }
+        Path file = Files.write(tempDir.resolve("notes.csv"), csv.toString().getBytes(StandardCharsets.UTF_8));
+        FileParser parser = new FileParser();
+        ReflectionTestUtils.setField(parser, "indexStride", 7);
+        FileConfig config = new FileConfig(";", true, 0, null);
+
+        List<Map<String, Object>> page = parser.readData(file, config, 3, 10);
+
+        assertEquals(10, page.size());
+        assertEquals("30", page.get(0).get("id"));
+        assertEquals("line\nbreak; quoted", page.get(0).get("note"));
+        assertEquals("plain", page.get(9).get("note"));
+        assertEquals("39", page.get(9).get("id"));
+        assertTrue(parser.readData(file, config, 10, 10).isEmpty());
+    }
+
+    @Test
+    void readData_FillsMissingFieldsWithNull() throws IOException {
+        Path file = Files.write(tempDir.resolve("short.csv"), "a,b,c\n1,2\n".getBytes(StandardCharsets.UTF_8));
+
+        List<Map<String, Object>> page = new FileParser().readData(file, new FileConfig(",", true, 0, null), 0, 10);
+
+        assertEquals(1, page.size());
+        assertEquals("2", page.get(0).get("b"));
+        assertNull(page.get(0).get("c"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.StageMetrics;
+import com.ingestion.util.batch.RowBatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImportPipelineTest {
+
+    private static final List<String> COLUMNS = Arrays.asList("id", "name");
+
+    private ImportPipeline pipeline;
+    private TransferProgress progress;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new ImportPipeline();
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 2);
+        ReflectionTestUtils.setField(pipeline, "adaptiveBatches", false);
+        progress = new TransferProgress();
+        progress.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.stop();
+    }
+
+    @Test
+    void run_InsertsEveryRowThroughRecycledBatches() throws IOException {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        Map<RowBatch, Boolean> batches = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        long rows = pipeline.run(COLUMNS, counter(1000), 7, 3, () -> batch -> {
+            batches.put(batch, true);
+            for (int row = 0; row < batch.size(); row++) {
+                ids.add(batch.stringColumn(0).getString(row));
+            }
+        }, progress);
+
+        assertEquals(1000, rows);
+        assertEquals(1000, ids.size());
+        assertEquals(1000, progress.getRowsRead());
+        assertEquals(1000, progress.getRowsWritten());
+        // queue capacity + inserters + 1
+        assertTrue(batches.size() <= 6, "Allocated " + batches.size() + " batches");
+
+        List<StageMetrics> stages = progress.getStages();
+        assertEquals(Arrays.asList("parse", "insert"), Arrays.asList(stages.get(0).getName(), stages.get(1).getName()));
+        assertEquals(143, stages.get(0).getBatches());
+        assertEquals(143, stages.get(1).getBatches());
+        assertEquals(3, stages.get(1).getThreads());
+    }
+
+    @Test
+    void run_BlocksParserWhenInsertsFallBehind() throws IOException {
+        AtomicInteger maxAhead = new AtomicInteger();
+        ImportPipeline.BatchSource source = counter(200);
+
+        pipeline.run(COLUMNS, batch -> {
+            maxAhead.accumulateAndGet((int) (progress.getRowsRead() - progress.getRowsWritten()), Math::max);
+            return source.read(batch);
+        }, 10, 1, () -> batch -> Thread.sleep(5), progress);
+
+        // Never more rows in flight than the batches in the pool
+        assertTrue(maxAhead.get() <= 4 * 10, "Parser ran " + maxAhead.get() + " rows ahead");
+        assertTrue(progress.getStages().get(0).getWaitMs() > 0);
+    }
+
+    @Test
+    void run_StopsParsingWhenAnInserterFails() {
+        AtomicInteger reads = new AtomicInteger();
+        ImportPipeline.BatchSource source = counter(Integer.MAX_VALUE);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> pipeline.run(COLUMNS, batch -> {
+            reads.incrementAndGet();
+            return source.read(batch);
+        }, 10, 2, () -> batch -> {
+            throw new IllegalStateException("insert failed");
+        }, progress));
+
+        assertEquals("insert failed", e.getCause().getMessage());
+        assertTrue(reads.get() < 100);
+        assertEquals(0, progress.getRowsWritten());
+    }
+
+    @Test
+    void run_GrowsBatchesAndRetriesTooManyParts() throws IOException {
+        ReflectionTestUtils.setField(pipeline, "adaptiveBatches", true);
+        ReflectionTestUtils.setField(pipeline, "minBatchRows", 10);
+        List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger calls = new AtomicInteger();
+
+        long rows = pipeline.run(COLUMNS, counter(5000), 10, 1, () -> batch -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new SQLException("Too many parts", null, AdaptiveBatchSizer.TOO_MANY_PARTS);
+            }
+            sizes.add(batch.size());
+        }, progress);
+
+        assertEquals(5000, rows);
+        assertEquals(5000, progress.getRowsWritten());
+        assertEquals(10, sizes.get(0));
+        // Fast inserts of narrow rows double the batch up to the rows that are left
+        assertTrue(sizes.size() < 15, "Inserted " + sizes);
+    }
+
+    @Test
+    void csv_FillsSelectedColumnsInTargetOrder() throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (CsvScanner records = new CsvScanner(new ByteArrayInputStream("1,a,x\n2,b\n3,c,z\n".getBytes(StandardCharsets.UTF_8)), ',')) {
+            pipeline.run(COLUMNS, ImportPipeline.csv(records, new int[]{2, 0}), 2, 1, () -> batch -> {
+                for (int row = 0; row < batch.size(); row++) {
+                    rows.add(Arrays.asList(batch.stringColumn(0).getString(row), batch.stringColumn(1).getString(row)));
+                }
+            }, progress);
+        }
+
+        assertEquals(Arrays.asList(Arrays.asList("x", "1"), Arrays.asList(null, "2"), Arrays.asList("z", "3")), rows);
+    }
+
+    private static ImportPipeline.BatchSource counter(int total) {
+        AtomicInteger next = new AtomicInteger();
+        return batch -> {
+            batch.reset();
+            while (!batch.isFull() && next.get() < total) {
+                int row = batch.addRow();
+                batch.stringColumn(0).set(row, String.valueOf(next.getAndIncrement()));
+                batch.stringColumn(1).set(row, "row");
+            }
+            return batch.size();
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.FileConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonRecordReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reader_ReadsArrayAndNewlineDelimitedRecords() throws Exception {
+        assertEquals(List.of("1", "2", "3"), ids("[{\"id\": 1}, {\"id\": 2},\n {\"id\": 3}]"));
+        assertEquals(List.of("1", "2", "3"), ids("{\"id\": 1}\n{\"id\": 2}\n\n{\"id\": 3}\n"));
+        assertEquals(List.of(), ids("[]"));
+    }
+
+    @Test
+    void skip_PassesOverNestedRecordsWithoutReadingThem() throws Exception {
+        String json = "[{\"id\": 1, \"tags\": [\"a\", {\"b\": 2}]}, {\"id\": 2, \"nested\": {\"x\": [1, 2]}}, {\"id\": 3}]";
+        try (JsonRecordReader reader = reader(json)) {
+            assertEquals(2, reader.skip(2));
+            assertEquals(3, reader.next().get("id"));
+            assertEquals(0, reader.skip(5));
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    void reader_RejectsNonObjectRecords() throws Exception {
+        try (JsonRecordReader reader = reader("[1, 2]")) {
+            assertThrows(IllegalArgumentException.class, reader::hasNext);
+        }
+    }
+
+    @Test
+    void readData_PagesNewlineDelimitedFile() throws Exception {
+        Path file = tempDir.resolve("events.ndjson");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            content.append("{\"id\": ").append(i).append(", \"name\": \"n").append(i).append("\"}\n");
+        }
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<Map<String, Object>> page = new FileParser().readData(file, new FileConfig(",", true, 0, null), 2, 10);
+
+        assertEquals(5, page.size());
+        assertEquals(20, page.get(0).get("id"));
+        assertEquals("n24", page.get(4).get("name"));
+    }
+
+    private static List<String> ids(String json) throws Exception {
+        List<String> ids = new ArrayList<>();
+        try (JsonRecordReader reader = reader(json)) {
+            reader.forEachRemaining(record -> ids.add(String.valueOf(record.get("id"))));
+        }
+        return ids;
+    }
+
+    private static JsonRecordReader reader(String json) throws Exception {
+        return new JsonRecordReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
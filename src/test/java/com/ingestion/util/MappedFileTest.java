@@ -0,0 +1,81 @@
+package com.ingestion.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void stream_ReadsRangeAndCountsBytes() throws IOException {
+        Path file = Files.write(tempDir.resolve("data.csv"), "header\n1,a\n2,b\n3,c\n".getBytes(StandardCharsets.UTF_8));
+        TransferProgress progress = new TransferProgress();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream in = MappedFile.stream(channel, 7, 19, progress)) {
+            assertEquals('1', in.read());
+            assertEquals(4, in.skip(4));
+            byte[] buffer = new byte[4];
+            int read;
+            while ((read = in.read(buffer, 0, buffer.length)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        assertEquals(",b\n3,c\n", out.toString(StandardCharsets.UTF_8.name()));
+        assertEquals(12, progress.getBytes());
+    }
+
+    @Test
+    void map_ExposesRangeAsBuffer() throws IOException {
+        Path file = Files.write(tempDir.resolve("data.csv"), "header\n1,a\n".getBytes(StandardCharsets.UTF_8));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = MappedFile.map(channel, 7, 11);
+            assertEquals(4, buffer.remaining());
+            assertEquals('1', buffer.get(0));
+            assertThrows(IllegalArgumentException.class, () -> MappedFile.map(channel, 0, MappedFile.MAX_REGION + 1));
+        }
+        assertTrue(MappedFile.fits(0, MappedFile.MAX_REGION));
+    }
+
+    @Test
+    void csvScannerOpen_ReportsConsumedBytes() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            csv.append(i).append(",\"name ").append(i).append("\"\n");
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(tempDir.resolve("large.csv"), bytes);
+        TransferProgress progress = new TransferProgress();
+
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             CsvScanner scanner = CsvScanner.open(channel, 0, channel.size(), ',', progress)) {
+            while (scanner.next()) {
+                assertEquals("name " + records, scanner.get(1));
+                records++;
+                // Reported in blocks, never ahead of the records returned
+                assertTrue(progress.getBytes() <= scanner.end(1) + 2);
+            }
+        }
+
+        assertEquals(20_000, records);
+        assertEquals(bytes.length, progress.getBytes());
+    }
+}
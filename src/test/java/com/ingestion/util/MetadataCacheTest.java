@@ -0,0 +1,98 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.ClickHouseConfig;
+import com.ingestion.dto.TableSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetadataCacheTest {
+
+    private MetadataCache cache;
+    private ClickHouseConfig config;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new MetadataCache();
+        config = new ClickHouseConfig("localhost", 8123, "analytics", "default", "");
+    }
+
+    @Test
+    void getTableSchema_LoadsOnceWithinTtl() {
+        TableSchema first = cache.getTableSchema(config, "trips", "jwt", this::load);
+        TableSchema second = cache.getTableSchema(config, "trips", "jwt", this::load);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        // Another identity does not share entries
+        cache.getTableSchema(config, "trips", "other-jwt", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getTableSchema_ReloadsAfterTtl() throws InterruptedException {
+        ReflectionTestUtils.setField(cache, "ttlMs", 20L);
+        cache.getTableSchema(config, "trips", "jwt", this::load);
+        Thread.sleep(40);
+        cache.getTableSchema(config, "trips", "jwt", this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_EvictsLeastRecentlyUsed() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        cache.getTableSchema(config, "a", "jwt", this::load);
+        cache.getTableSchema(config, "b", "jwt", this::load);
+        cache.getTableSchema(config, "a", "jwt", this::load);
+        cache.getTableSchema(config, "c", "jwt", this::load);
+        assertEquals(2, cache.size());
+
+        cache.getTableSchema(config, "a", "jwt", this::load);
+        assertEquals(3, loads.get());
+        cache.getTableSchema(config, "b", "jwt", this::load);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void invalidate_DropsTableAndTableListForEveryUser() {
+        cache.getTables(config, "jwt", () -> Arrays.asList("trips", "zones"));
+        cache.getTableSchema(config, "trips", "jwt", this::load);
+        cache.getTableSchema(config, "trips", "other-jwt", this::load);
+        cache.getTableSchema(config, "zones", "jwt", this::load);
+
+        cache.invalidate(config, "analytics.trips");
+
+        assertEquals(1, cache.size());
+        cache.getTableSchema(config, "zones", "jwt", this::load);
+        assertEquals(3, loads.get());
+
+        cache.invalidate(config, null);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void get_DoesNotStoreLoadRacingAnInvalidation() {
+        cache.getTableSchema(config, "trips", "jwt", () -> {
+            cache.invalidate(config, "trips");
+            return load();
+        });
+        assertEquals(0, cache.size());
+
+        List<String> tables = cache.getTables(config, "jwt", ArrayList::new);
+        assertSame(tables, cache.getTables(config, "jwt", ArrayList::new));
+    }
+
+    private TableSchema load() {
+        loads.incrementAndGet();
+        return new TableSchema(new ArrayList<>(), new ArrayList<>());
+    }
+}
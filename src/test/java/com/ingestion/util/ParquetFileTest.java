@@ -0,0 +1,193 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.TableSchema;
+import org.apache.parquet.format.ColumnChunk;
+import org.apache.parquet.format.ColumnMetaData;
+import org.apache.parquet.format.CompressionCodec;
+import org.apache.parquet.format.DataPageHeader;
+import org.apache.parquet.format.Encoding;
+import org.apache.parquet.format.FieldRepetitionType;
+import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.PageHeader;
+import org.apache.parquet.format.PageType;
+import org.apache.parquet.format.RowGroup;
+import org.apache.parquet.format.SchemaElement;
+import org.apache.parquet.format.Type;
+import org.apache.parquet.format.Util;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParquetFileTest {
+
+    private static final String[] COLUMNS = {"id", "amount", "note"};
+    private static final int[] GROUP_ROWS = {3, 4};
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = writeParquet(tempDir.resolve("data.parquet"));
+    }
+
+    @Test
+    void read_DescribesFooter() throws IOException {
+        ParquetFile parquet = ParquetFile.read(file);
+
+        assertEquals(7, parquet.getRowCount());
+        assertEquals(2, parquet.getRowGroupCount());
+        assertEquals(Arrays.asList(COLUMNS), parquet.getColumnNames());
+        List<TableSchema.Column> columns = parquet.getColumns();
+        assertEquals("Int64", columns.get(0).getTargetType());
+        assertEquals("Nullable(Int64)", columns.get(1).getTargetType());
+        assertEquals("integer", columns.get(1).getType());
+        assertEquals("Int64", columns.get(2).getTargetType());
+    }
+
+    @Test
+    void open_CopiesOnlySelectedColumnChunks() throws IOException {
+        ParquetFile parquet = ParquetFile.read(file);
+        TransferProgress progress = new TransferProgress();
+        Path projected = tempDir.resolve("projected.parquet");
+
+        ParquetFile.Projection projection;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            projection = parquet.open(channel, Collections.singletonList(1), Arrays.asList("note", "id"), progress);
+            try (InputStream in = projection.getStream()) {
+                Files.copy(in, projected);
+            }
+        }
+
+        assertEquals(Files.size(projected), projection.getSize());
+        assertEquals(4, projection.getRowCount());
+        assertEquals(progress.getBytes(), projection.getDataBytes());
+
+        // The assembled file is valid on its own and its rebased offsets point at the copied pages
+        ParquetFile result = ParquetFile.read(projected);
+        assertEquals(4, result.getRowCount());
+        assertEquals(Arrays.asList("id", "note"), result.getColumnNames());
+        FileMetaData footer = readFooter(projected);
+        byte[] bytes = Files.readAllBytes(projected);
+        for (ColumnChunk chunk : footer.getRow_groups().get(0).getColumns()) {
+            ColumnMetaData column = chunk.getMeta_data();
+            int columnIndex = Arrays.asList(COLUMNS).indexOf(column.getPath_in_schema().get(0));
+            assertArrayEquals(values(1, columnIndex), readPage(bytes, column.getData_page_offset()));
+        }
+    }
+
+    @Test
+    void open_RejectsUnknownColumn() throws IOException {
+        ParquetFile parquet = ParquetFile.read(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThrows(IllegalArgumentException.class, () ->
+                    parquet.open(channel, Collections.singletonList(0), Collections.singletonList("missing"), null));
+        }
+    }
+
+    @Test
+    void splitRowGroups_GroupsUpToTargetSize() throws IOException {
+        ParquetFile parquet = ParquetFile.read(file);
+
+        assertEquals(Collections.singletonList(Arrays.asList(0, 1)), parquet.splitRowGroups(Long.MAX_VALUE));
+        assertEquals(Arrays.asList(Collections.singletonList(0), Collections.singletonList(1)),
+                parquet.splitRowGroups(1));
+        assertTrue(parquet.getDataBytes(Collections.singletonList("id")) < parquet.getDataBytes(null));
+    }
+
+    @Test
+    void read_RejectsOtherFiles() throws IOException {
+        Path csv = tempDir.resolve("data.csv");
+        Files.write(csv, "id,name\n1,alpha\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> ParquetFile.read(csv));
+    }
+
+    /**
+     * Plain-encoded, uncompressed INT64 columns with one data page per column chunk.
+     */
+    private static Path writeParquet(Path path) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("PAR1".getBytes(StandardCharsets.US_ASCII));
+        List<RowGroup> rowGroups = new ArrayList<>();
+        for (int group = 0; group < GROUP_ROWS.length; group++) {
+            List<ColumnChunk> chunks = new ArrayList<>();
+            long groupBytes = 0;
+            for (int column = 0; column < COLUMNS.length; column++) {
+                long offset = out.size();
+                byte[] data = values(group, column);
+                PageHeader page = new PageHeader(PageType.DATA_PAGE, data.length, data.length);
+                page.setData_page_header(new DataPageHeader(GROUP_ROWS[group], Encoding.PLAIN, Encoding.RLE, Encoding.RLE));
+                Util.writePageHeader(page, out);
+                out.write(data);
+                long length = out.size() - offset;
+
+                ColumnMetaData metadata = new ColumnMetaData(Type.INT64, Collections.singletonList(Encoding.PLAIN),
+                        Collections.singletonList(COLUMNS[column]), CompressionCodec.UNCOMPRESSED,
+                        GROUP_ROWS[group], length, length, offset);
+                ColumnChunk chunk = new ColumnChunk(offset);
+                chunk.setMeta_data(metadata);
+                chunks.add(chunk);
+                groupBytes += length;
+            }
+            rowGroups.add(new RowGroup(chunks, groupBytes, GROUP_ROWS[group]));
+        }
+
+        List<SchemaElement> schema = new ArrayList<>();
+        schema.add(new SchemaElement("schema").setNum_children(COLUMNS.length));
+        for (int column = 0; column < COLUMNS.length; column++) {
+            // amount is declared optional to exercise the Nullable mapping; no page holds a null
+            schema.add(new SchemaElement(COLUMNS[column]).setType(Type.INT64).setRepetition_type(
+                    column == 1 ? FieldRepetitionType.OPTIONAL : FieldRepetitionType.REQUIRED));
+        }
+        FileMetaData footer = new FileMetaData(1, schema, 7, rowGroups);
+        ByteArrayOutputStream trailer = new ByteArrayOutputStream();
+        Util.writeFileMetaData(footer, trailer);
+        out.write(trailer.toByteArray());
+        out.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(trailer.size()).array());
+        out.write("PAR1".getBytes(StandardCharsets.US_ASCII));
+        return Files.write(path, out.toByteArray());
+    }
+
+    private static byte[] values(int group, int column) {
+        ByteBuffer buffer = ByteBuffer.allocate(GROUP_ROWS[group] * 8).order(ByteOrder.LITTLE_ENDIAN);
+        for (int row = 0; row < GROUP_ROWS[group]; row++) {
+            buffer.putLong(group * 1000L + column * 100L + row);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] readPage(byte[] file, long offset) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(file, (int) offset, file.length - (int) offset);
+        PageHeader header = Util.readPageHeader(in);
+        byte[] data = new byte[header.getCompressed_page_size()];
+        assertEquals(data.length, in.read(data));
+        return data;
+    }
+
+    private static FileMetaData readFooter(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        int length = ByteBuffer.wrap(bytes, bytes.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        return Util.readFileMetaData(new ByteArrayInputStream(bytes, bytes.length - 8 - length, length));
+    }
+}
@@ -0,0 +1,86 @@
+package com.ingestion.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcessedFileLedgerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void record_SurvivesReopening() throws Exception {
+        Path ledgerFile = tempDir.resolve("state/dir.ledger");
+        Path loaded = write("a.csv", "id\n1\n");
+        Path failed = write("b.csv", "id\n2\n");
+        Path fresh = write("c.csv", "id\n3\n");
+
+        ProcessedFileLedger ledger = ProcessedFileLedger.open(ledgerFile);
+        ledger.record(Collections.singletonList(loaded), ProcessedFileLedger.Outcome.INGESTED);
+        ledger.record(Collections.singletonList(failed), ProcessedFileLedger.Outcome.FAILED);
+
+        ProcessedFileLedger reopened = ProcessedFileLedger.open(ledgerFile);
+        assertTrue(reopened.contains(loaded));
+        assertTrue(reopened.contains(failed));
+        assertFalse(reopened.contains(fresh));
+        assertEquals(1, reopened.count(ProcessedFileLedger.Outcome.INGESTED));
+        assertEquals(1, reopened.count(ProcessedFileLedger.Outcome.FAILED));
+    }
+
+    @Test
+    void contains_TreatsRewrittenFileAsNew() throws Exception {
+        Path file = write("a.csv", "id\n1\n");
+        ProcessedFileLedger ledger = ProcessedFileLedger.open(tempDir.resolve("dir.ledger"));
+        ledger.record(Collections.singletonList(file), ProcessedFileLedger.Outcome.INGESTED);
+
+        Files.write(file, "id\n1\n2\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+
+        assertFalse(ledger.contains(file));
+    }
+
+    @Test
+    void open_DropsDeletedFilesAndTruncatedLines() throws Exception {
+        Path ledgerFile = tempDir.resolve("dir.ledger");
+        Path kept = write("a.csv", "id\n1\n");
+        Path deleted = write("b.csv", "id\n2\n");
+        ProcessedFileLedger.open(ledgerFile).record(Arrays.asList(kept, deleted), ProcessedFileLedger.Outcome.INGESTED);
+        Files.delete(deleted);
+        Files.write(ledgerFile, "INGESTED\t12".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        ProcessedFileLedger ledger = ProcessedFileLedger.open(ledgerFile);
+
+        assertEquals(1, ledger.count(ProcessedFileLedger.Outcome.INGESTED));
+        assertTrue(ledger.contains(kept));
+        assertEquals(1, Files.readAllLines(ledgerFile).size());
+    }
+
+    @Test
+    void record_FailedWriteLeavesFilesUnrecorded() throws Exception {
+        Path file = write("a.csv", "id\n1\n");
+        // A regular file where the ledger's directory should be
+        Path blocker = write("state", "");
+        ProcessedFileLedger ledger = ProcessedFileLedger.open(blocker.resolve("dir.ledger"));
+
+        assertThrows(IOException.class,
+            () -> ledger.record(Collections.singletonList(file), ProcessedFileLedger.Outcome.INGESTED));
+
+        assertFalse(ledger.contains(file));
+        assertEquals(0, ledger.count(ProcessedFileLedger.Outcome.INGESTED));
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.write(tempDir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,97 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.JoinTable;
+import com.ingestion.dto.QueryFilter;
+import com.ingestion.dto.QueryFilter.Operator;
+import com.ingestion.dto.TableSchema;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryBuilderTest {
+
+    @Test
+    void build_ProjectsSelectedColumns() {
+        String sql = QueryBuilder.select("default.trips")
+                .selected(Arrays.asList(
+                        new TableSchema.Column("trip_id", "UInt64", true, "trip_id", "UInt64"),
+                        new TableSchema.Column("pickup", "DateTime", false, "pickup", "DateTime"),
+                        new TableSchema.Column("fare", "Float64", true, "fare", "Float64")))
+                .limit(10L)
+                .build();
+
+        assertEquals("SELECT `trip_id`, `fare` FROM `default`.`trips` LIMIT 10", sql);
+    }
+
+    @Test
+    void build_ReadsEverythingWithoutColumns() {
+        assertEquals("SELECT * FROM `trips`", QueryBuilder.select("trips").columns(null).build());
+        assertEquals("SELECT * FROM `trips` LIMIT 5, 9223372036854775807",
+                QueryBuilder.select("trips").offset(5L).build());
+    }
+
+    @Test
+    void build_RendersFiltersAsEscapedLiterals() {
+        String sql = QueryBuilder.select("trips")
+                .columns(Collections.singletonList("fare"))
+                .where(Arrays.asList(
+                        new QueryFilter("fare", Operator.GE, new BigDecimal("2.50")),
+                        new QueryFilter("vendor", Operator.IN, Arrays.asList("CMT", "it's")),
+                        new QueryFilter("note", Operator.LIKE, "%\\%"),
+                        new QueryFilter("shared", Operator.EQ, true),
+                        new QueryFilter("dropoff", Operator.IS_NOT_NULL, null)))
+                .limit(100L)
+                .offset(200L)
+                .build();
+
+        assertEquals("SELECT `fare` FROM `trips` WHERE `fare` >= 2.50 AND `vendor` IN ('CMT', 'it\\'s')"
+                + " AND `note` LIKE '%\\\\%' AND `shared` = true AND `dropoff` IS NOT NULL"
+                + " LIMIT 100 OFFSET 200", sql);
+    }
+
+    @Test
+    void build_JoinsTablesByQualifiedKeys() {
+        String sql = QueryBuilder.select("nyc.trips")
+                .columns(Arrays.asList("trips.fare", "z.name", "trips.fare"))
+                .join(Collections.singletonList(new JoinTable("nyc.zones", "z", JoinTable.Type.LEFT,
+                        Arrays.asList(new JoinTable.Key("trips.pickup_zone", "z.id"),
+                                new JoinTable.Key("trips.borough", "z.borough")))))
+                .where(Collections.singletonList(new QueryFilter("z.name", Operator.NE, "")))
+                .build();
+
+        assertEquals("SELECT `trips`.`fare` AS `trips.fare`, `z`.`name` AS `z.name`"
+                + " FROM `nyc`.`trips` AS `trips` LEFT JOIN `nyc`.`zones` AS `z`"
+                + " ON `trips`.`pickup_zone` = `z`.`id` AND `trips`.`borough` = `z`.`borough`"
+                + " WHERE `z`.`name` != ''", sql);
+    }
+
+    @Test
+    void build_RejectsInvalidJoins() {
+        JoinTable.Key key = new JoinTable.Key("trips.id", "trips.id");
+        assertThrows(IllegalArgumentException.class, () -> QueryBuilder.select("trips")
+                .join(Collections.singletonList(new JoinTable("other.trips", null, null,
+                        Collections.singletonList(key)))).build());
+        assertThrows(IllegalArgumentException.class, () -> QueryBuilder.select("trips")
+                .join(Collections.singletonList(new JoinTable("zones", null, JoinTable.Type.INNER,
+                        Collections.emptyList()))).build());
+        assertThrows(IllegalArgumentException.class, () -> QueryBuilder.select("trips")
+                .join(Collections.singletonList(new JoinTable("zones", null, JoinTable.Type.INNER,
+                        Collections.singletonList(new JoinTable.Key("trips.zone", null))))).build());
+    }
+
+    @Test
+    void build_RejectsInvalidFilters() {
+        assertThrows(IllegalArgumentException.class, () -> QueryBuilder.select("trips")
+                .where(Collections.singletonList(new QueryFilter("vendor", Operator.IN, Collections.emptyList()))).build());
+        assertThrows(IllegalArgumentException.class, () -> QueryBuilder.select("trips")
+                .where(Collections.singletonList(new QueryFilter("fare", Operator.GT, null))).build());
+        assertThrows(IllegalArgumentException.class, () -> QueryBuilder.select("trips")
+                .where(Collections.singletonList(new QueryFilter("fare", null, 1))).build());
+        assertThrows(IllegalArgumentException.class, () -> QueryBuilder.select("trips").limit(-1L));
+        assertThrows(IllegalArgumentException.class, () -> QueryBuilder.select(""));
+    }
+}
@@ -0,0 +1,86 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.FileConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RowOffsetIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void build_SkipsQuotedLineBreaksAndBlankLines() throws Exception {
+        Path file = tempDir.resolve("quoted.csv");
+        String content = "id,note\n0,\"multi\nline\"\n\n1,plain\r\n2,\"with \"\"quotes\"\"\"\n3,last";
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+        RowOffsetIndex index = RowOffsetIndex.build(file, 2, ',');
+
+        assertEquals(4, index.getRecordCount());
+        assertEquals(content.indexOf("0,"), index.getHeaderEnd());
+        assertEquals(content.indexOf("0,"), index.seekOffset(1));
+        assertEquals(1, index.recordsToSkip(1));
+        assertEquals(content.indexOf("2,"), index.seekOffset(3));
+        assertEquals(1, index.recordsToSkip(3));
+    }
+
+    @Test
+    void build_QuoteInsideUnquotedFieldIsLiteral() throws Exception {
+        Path file = tempDir.resolve("inches.csv");
+        String content = "id;item\n1;12\" pizza\n2;\"quoted;\nvalue\"\n3;last\n";
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+        RowOffsetIndex index = RowOffsetIndex.build(file, 1, ';');
+
+        assertEquals(3, index.getRecordCount());
+        assertEquals(content.indexOf("2;"), index.seekOffset(1));
+        assertEquals(content.indexOf("3;"), index.seekOffset(2));
+    }
+
+    @Test
+    void load_PersistsIndexBesideFileAndRebuildsWhenStale() throws Exception {
+        Path file = tempDir.resolve("data.csv");
+        Files.write(file, "id\n1\n2\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, RowOffsetIndex.load(file, 1, ',').getRecordCount());
+        assertTrue(Files.exists(RowOffsetIndex.indexPath(file)));
+
+        Files.write(file, "id\n1\n2\n3\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(3, RowOffsetIndex.load(file, 1, ',').getRecordCount());
+    }
+
+    @Test
+    void readData_DeepPagesMatchSequentialParse() throws Exception {
+        Path file = tempDir.resolve("pages.csv");
+        StringBuilder content = new StringBuilder("id,name\n");
+        for (int i = 0; i < 95; i++) {
+            content.append(i).append(",\"name\n").append(i).append("\"\n");
+        }
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        FileParser parser = new FileParser();
+        ReflectionTestUtils.setField(parser, "indexStride", 7);
+        FileConfig config = new FileConfig(",", true, 0, null);
+
+        List<Map<String, Object>> page = parser.readData(file, config, 4, 10);
+        assertEquals(10, page.size());
+        assertEquals("40", page.get(0).get("id"));
+        assertEquals("name\n49", page.get(9).get("name"));
+
+        List<Map<String, Object>> last = parser.readData(file, config, 9, 10);
+        assertEquals(5, last.size());
+        assertEquals("94", last.get(4).get("id"));
+
+        assertTrue(parser.readData(file, config, 10, 10).isEmpty());
+    }
+}
@@ -0,0 +1,88 @@
+package com.ingestion.util;
+
+import com.ingestion.dto.ClickHouseConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WatermarkStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void put_PersistsWatermarksAcrossInstances() {
+        Path file = tempDir.resolve("state").resolve("watermarks.json");
+        WatermarkStore store = store(file);
+
+        store.put("a", new WatermarkStore.Watermark(new BigDecimal("12345678901234567890.5"), 1, 10, "t1"));
+        store.put("b", new WatermarkStore.Watermark("2024-01-31 23:59:59", 3, 30, "t2"));
+
+        assertTrue(Files.exists(file));
+        assertFalse(Files.exists(file.resolveSibling("watermarks.json.tmp")));
+        WatermarkStore reloaded = store(file);
+        // Numbers come back without losing digits, so the next filter starts exactly above them
+        assertEquals(new BigDecimal("12345678901234567890.5"), reloaded.get("a").getValue());
+        assertEquals("2024-01-31 23:59:59", reloaded.get("b").getValue());
+        assertEquals(3, reloaded.get("b").getPart());
+        assertEquals(30, reloaded.get("b").getRows());
+        assertEquals(2, reloaded.getAll().size());
+    }
+
+    @Test
+    void remove_ForgetsWatermark() {
+        Path file = tempDir.resolve("watermarks.json");
+        WatermarkStore store = store(file);
+        store.put("a", new WatermarkStore.Watermark(5L, 1, 5, "t1"));
+
+        assertTrue(store.remove("a"));
+        assertFalse(store.remove("a"));
+        assertNull(store(file).get("a"));
+    }
+
+    @Test
+    void get_ReturnsCopy() {
+        WatermarkStore store = store(tempDir.resolve("watermarks.json"));
+        store.put("a", new WatermarkStore.Watermark(5L, 1, 5, "t1"));
+
+        store.get("a").setPart(99);
+
+        assertEquals(1, store.get("a").getPart());
+    }
+
+    @Test
+    void lock_AdmitsOneExportPerKey() {
+        WatermarkStore store = store(tempDir.resolve("watermarks.json"));
+
+        assertTrue(store.lock("a"));
+        assertFalse(store.lock("a"));
+        assertTrue(store.lock("b"));
+        store.unlock("a");
+        assertTrue(store.lock("a"));
+    }
+
+    @Test
+    void key_SeparatesConnectionsColumnsAndNames() {
+        ClickHouseConfig config = new ClickHouseConfig();
+        config.setHost("ch");
+        config.setPort(8123);
+        config.setDatabase("taxi");
+
+        assertEquals("ch:8123/taxi/trips/trip_id", WatermarkStore.key(config, "trips", "trip_id", null));
+        assertEquals("ch:8123/taxi/trips/trip_id#daily", WatermarkStore.key(config, "trips", "trip_id", "daily"));
+        assertNotEquals(WatermarkStore.key(config, "trips", "trip_id", null),
+                WatermarkStore.key(config, "trips", "pickup_datetime", null));
+    }
+
+    private static WatermarkStore store(Path file) {
+        WatermarkStore store = new WatermarkStore();
+        ReflectionTestUtils.setField(store, "stateFile", file.toString());
+        return store;
+    }
+}
@@ -0,0 +1,118 @@
+package com.ingestion.util.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingestion.util.JsonRecordReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RowBatchTest {
+
+    @Test
+    void serialize_WritesRowsFromVectors() throws Exception {
+        BatchSchema schema = new BatchSchema(Arrays.asList("id", "score", "active", "amount", "name"),
+                Arrays.asList(ColumnType.LONG, ColumnType.DOUBLE, ColumnType.BOOLEAN, ColumnType.DECIMAL, ColumnType.STRING));
+        RowBatch batch = new RowBatch(schema, 10);
+        int row = batch.addRow();
+        batch.longColumn(0).set(row, 7);
+        batch.doubleColumn(1).set(row, 1.5);
+        batch.booleanColumn(2).set(row, true);
+        batch.stringColumn(3).set(row, "12.50");
+        batch.stringColumn(4).set(row, "a");
+        batch.addRow();
+
+        assertEquals("[{\"id\":7,\"score\":1.5,\"active\":true,\"amount\":12.50,\"name\":\"a\"},"
+                        + "{\"id\":null,\"score\":null,\"active\":null,\"amount\":null,\"name\":null}]",
+                new ObjectMapper().writeValueAsString(batch));
+    }
+
+    @Test
+    void get_ExposesRowsAsMaps() {
+        RowBatch batch = new RowBatch(new BatchSchema(Arrays.asList("id", "name"),
+                Arrays.asList(ColumnType.LONG, ColumnType.STRING)), 2);
+        int row = batch.addRow();
+        batch.longColumn(0).set(row, 42);
+        batch.stringColumn(1).set(row, "x");
+
+        Map<String, Object> map = batch.get(0);
+        assertEquals(42L, map.get("id"));
+        assertEquals("x", map.get("name"));
+        assertNull(map.get("missing"));
+        assertEquals(Map.of("id", 42L, "name", "x"), map);
+    }
+
+    @Test
+    void addRow_GrowsUpToCapacityAndResetClearsDictionary() {
+        RowBatch batch = new RowBatch(BatchSchema.strings(List.of("color")), 3000);
+        while (!batch.isFull()) {
+            int row = batch.addRow();
+            batch.stringColumn(0).set(row, row % 2 == 0 ? "red" : "blue");
+        }
+        assertEquals(3000, batch.size());
+        assertEquals(2, batch.stringColumn(0).getDictionarySize());
+        assertEquals("blue", batch.get(2999).get("color"));
+        assertThrows(IllegalStateException.class, batch::addRow);
+
+        batch.reset();
+        assertEquals(0, batch.size());
+        assertEquals(0, batch.stringColumn(0).getDictionarySize());
+        assertTrue(batch.stringColumn(0).isNull(batch.addRow()));
+    }
+
+    @Test
+    void set_MostlyUniqueColumnStopsDictionaryEncoding() {
+        RowBatch batch = new RowBatch(BatchSchema.strings(List.of("id")), 5000);
+        for (int i = 0; i < 5000; i++) {
+            batch.stringColumn(0).set(batch.addRow(), "id-" + i);
+        }
+        assertEquals(-1, batch.stringColumn(0).getDictionarySize());
+        assertEquals("id-0", batch.get(0).get("id"));
+        assertEquals("id-4999", batch.get(4999).get("id"));
+
+        batch.reset();
+        batch.stringColumn(0).set(batch.addRow(), "again");
+        assertEquals(1, batch.stringColumn(0).getDictionarySize());
+    }
+
+    @Test
+    void readBatch_DecodesJsonRecordsIntoColumns() throws Exception {
+        String json = "{\"id\": 1, \"tags\": [\"a\"], \"ok\": true, \"extra\": {\"x\": 1}}\n"
+                + "{\"id\": 2, \"ok\": null}\n{\"id\": 3}\n";
+        RowBatch batch = new RowBatch(BatchSchema.strings(List.of("id", "tags", "ok")), 2);
+        try (JsonRecordReader reader = new JsonRecordReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            assertEquals(2, reader.readBatch(batch));
+            assertEquals("1", batch.get(0).get("id"));
+            assertEquals("[\"a\"]", batch.get(0).get("tags"));
+            assertEquals("1", batch.get(0).get("ok"));
+            assertNull(batch.get(1).get("ok"));
+
+            assertEquals(1, reader.readBatch(batch));
+            assertEquals("3", batch.get(0).get("id"));
+            assertEquals(0, reader.readBatch(batch));
+        }
+    }
+
+    @Test
+    void setLimit_FlushesAtRowsOrDeadline() {
+        RowBatch batch = new RowBatch(BatchSchema.strings(Collections.singletonList("id")), 100);
+        batch.setLimit(5, 0);
+        while (!batch.isFull()) {
+            batch.addRow();
+        }
+        assertEquals(5, batch.size());
+
+        batch.reset();
+        batch.setLimit(100, System.nanoTime() - 1);
+        while (!batch.isFull()) {
+            batch.addRow();
+        }
+        assertEquals(16, batch.size());
+    }
+}